@@ -0,0 +1,134 @@
+package io.github.vletard.analogy.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import io.github.vletard.analogy.DefaultProportion;
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.set.ImmutableSet;
+import io.github.vletard.analogy.tuple.Tuple;
+import io.github.vletard.analogy.util.CharacterSequence;
+
+/**
+ * Deterministic generator of valid analogical proportions used as benchmark inputs.
+ * Inputs only depend on the provided seed and parameters, such that results remain comparable across commits.
+ * @author Vincent Letard
+ */
+public class AnalogyGenerator {
+  private final Random random;
+
+  public AnalogyGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Checks that a generated proportion is valid, such that the benchmarks never measure inputs other than the intended ones.
+   * @param proportion the list of the four items A, B, C and D
+   * @return the checked proportion.
+   * @throws IllegalStateException if the proportion is not valid.
+   */
+  private static <T> List<T> checked(List<T> proportion) {
+    if (!new DefaultProportion<T>(proportion.get(0), proportion.get(1), proportion.get(2), proportion.get(3)).isValid())
+      throw new IllegalStateException("Invalid generated proportion " + proportion + ".");
+    return proportion;
+  }
+
+  private char item(int alphabetSize) {
+    return (char) ('a' + this.random.nextInt(alphabetSize));
+  }
+
+  /**
+   * Generates a valid proportion between four sequences by performing random steps of a factorization:
+   * each step appends the same random item to A and B, to A and C, to C and D or to B and D.
+   * @param steps the number of steps, the length of A being about half of it
+   * @param alphabetSize the number of distinct items (at most 26)
+   * @return the list of the four sequences A, B, C and D.
+   * @throws IllegalStateException if the generated proportion is not valid.
+   */
+  public List<Sequence<Character>> sequenceProportion(int steps, int alphabetSize) {
+    StringBuilder a = new StringBuilder(), b = new StringBuilder(), c = new StringBuilder(), d = new StringBuilder();
+    for (int i = 0; i < steps; i++) {
+      char item = this.item(alphabetSize);
+      switch (this.random.nextInt(4)) {
+      case 0 : a.append(item); b.append(item); break;
+      case 1 : a.append(item); c.append(item); break;
+      case 2 : c.append(item); d.append(item); break;
+      default : b.append(item); d.append(item); break;
+      }
+    }
+    List<Sequence<Character>> proportion = new ArrayList<Sequence<Character>>();
+    proportion.add(new CharacterSequence(a.toString()));
+    proportion.add(new CharacterSequence(b.toString()));
+    proportion.add(new CharacterSequence(c.toString()));
+    proportion.add(new CharacterSequence(d.toString()));
+    return checked(proportion);
+  }
+
+  /**
+   * Generates a valid proportion between four sets of integers.
+   * Each item of the universe is given one of the valid membership patterns of an analogy between booleans.
+   * @param universe the number of candidate items
+   * @return the list of the four sets A, B, C and D.
+   * @throws IllegalStateException if the generated proportion is not valid.
+   */
+  public List<ImmutableSet<Integer>> setProportion(int universe) {
+    final boolean[][] patterns = new boolean[][]{
+      {false, false, false, false}, {true, true, false, false}, {true, false, true, false},
+      {false, false, true, true}, {false, true, false, true}, {true, true, true, true}
+    };
+    List<HashSet<Integer>> sets = new ArrayList<HashSet<Integer>>();
+    for (int i = 0; i < 4; i++)
+      sets.add(new HashSet<Integer>());
+    for (int item = 0; item < universe; item++) {
+      boolean[] pattern = patterns[this.random.nextInt(patterns.length)];
+      for (int i = 0; i < 4; i++)
+        if (pattern[i])
+          sets.get(i).add(item);
+    }
+    List<ImmutableSet<Integer>> proportion = new ArrayList<ImmutableSet<Integer>>();
+    for (HashSet<Integer> set: sets)
+      proportion.add(new ImmutableSet<Integer>(set));
+    return checked(proportion);
+  }
+
+  /**
+   * Generates a valid proportion between four tuples of sequences, each key holding a valid sequence proportion.
+   * @param keys the number of keys of the tuples
+   * @param steps the number of factorization steps of each sequence proportion
+   * @param alphabetSize the number of distinct items of the sequences
+   * @return the list of the four tuples A, B, C and D.
+   * @throws IllegalStateException if the generated proportion is not valid.
+   */
+  public List<Tuple<Sequence<Character>>> tupleProportion(int keys, int steps, int alphabetSize) {
+    List<HashMap<String, Sequence<Character>>> maps = new ArrayList<HashMap<String, Sequence<Character>>>();
+    for (int i = 0; i < 4; i++)
+      maps.add(new HashMap<String, Sequence<Character>>());
+    for (int k = 0; k < keys; k++) {
+      List<Sequence<Character>> proportion = this.sequenceProportion(steps, alphabetSize);
+      for (int i = 0; i < 4; i++)
+        maps.get(i).put("key" + k, proportion.get(i));
+    }
+    List<Tuple<Sequence<Character>>> proportion = new ArrayList<Tuple<Sequence<Character>>>();
+    for (HashMap<String, Sequence<Character>> map: maps)
+      proportion.add(new Tuple<Sequence<Character>>(map));
+    return checked(proportion);
+  }
+
+  /**
+   * Returns a copy of a sequence with its last item replaced by an item out of the alphabet,
+   * making any proportion it was part of invalid.
+   * @param sequence the sequence to alter
+   * @return the altered sequence.
+   */
+  public static Sequence<Character> alter(Sequence<Character> sequence) {
+    List<Character> items = new ArrayList<Character>(sequence.toList());
+    if (items.isEmpty())
+      items.add('#');
+    else
+      items.set(items.size() - 1, '#');
+    return new CharacterSequence(items);
+  }
+}
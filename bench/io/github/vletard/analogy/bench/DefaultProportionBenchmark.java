@@ -0,0 +1,58 @@
+package io.github.vletard.analogy.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.vletard.analogy.DefaultProportion;
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.tuple.Tuple;
+
+/**
+ * Benchmarks of the generic verification of proportions, on nested tuples of sequences.
+ * @author Vincent Letard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DefaultProportionBenchmark {
+
+  @Param({"4", "16", "64"})
+  public int keys;
+
+  @Param({"4", "8"})
+  public int steps;
+
+  @Param({"2", "26"})
+  public int alphabetSize;
+
+  private Tuple<Sequence<Character>> a, b, c, d;
+
+  @Setup
+  public void setup() {
+    List<Tuple<Sequence<Character>>> proportion = new AnalogyGenerator(42).tupleProportion(this.keys, this.steps, this.alphabetSize);
+    this.a = proportion.get(0);
+    this.b = proportion.get(1);
+    this.c = proportion.get(2);
+    this.d = proportion.get(3);
+  }
+
+  @Benchmark
+  public boolean isValid() {
+    return new DefaultProportion<Tuple<Sequence<Character>>>(this.a, this.b, this.c, this.d).isValid();
+  }
+}
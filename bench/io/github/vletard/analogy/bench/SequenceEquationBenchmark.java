@@ -0,0 +1,78 @@
+package io.github.vletard.analogy.bench;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SubtypeRebuilder;
+import io.github.vletard.analogy.sequence.LatticeSequenceEquation;
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.sequence.SequenceEquation;
+
+/**
+ * Benchmarks of the sequence equation engines, searching the first solution and the solutions of the best degree.
+ * The size of the inputs is the number of factorization steps of the generated proportion, and small alphabets
+ * lead to many more solutions than large ones.
+ * @author Vincent Letard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SequenceEquationBenchmark {
+
+  @Param({"8", "16", "24"})
+  public int steps;
+
+  @Param({"2", "4", "26"})
+  public int alphabetSize;
+
+  @Param({"default", "lattice"})
+  public String engine;
+
+  private Sequence<Character> a, b, c;
+
+  @Setup
+  public void setup() {
+    List<Sequence<Character>> proportion = new AnalogyGenerator(42).sequenceProportion(this.steps, this.alphabetSize);
+    this.a = proportion.get(0);
+    this.b = proportion.get(1);
+    this.c = proportion.get(2);
+  }
+
+  private SequenceEquation<Character, Sequence<Character>> equation(SolvingOptions options) {
+    if (this.engine.equals("lattice"))
+      return new LatticeSequenceEquation<Character, Sequence<Character>>(this.a, this.b, this.c, SubtypeRebuilder.<Sequence<Character>>identity(), false, options);
+    else
+      return new SequenceEquation<Character, Sequence<Character>>(this.a, this.b, this.c, SubtypeRebuilder.<Sequence<Character>>identity(), options);
+  }
+
+  @Benchmark
+  public Solution<Sequence<Character>> firstSolution() {
+    Iterator<Solution<Sequence<Character>>> it = this.equation(SolvingOptions.DEFAULT).iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+
+  @Benchmark
+  public void bestDegree(Blackhole blackhole) {
+    for (Solution<Sequence<Character>> solution: this.equation(SolvingOptions.DEFAULT.withMaxDistinctDegrees(1)))
+      blackhole.consume(solution);
+  }
+}
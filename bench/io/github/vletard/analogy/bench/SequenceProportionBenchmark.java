@@ -0,0 +1,60 @@
+package io.github.vletard.analogy.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.sequence.SequenceProportion;
+
+/**
+ * Benchmarks of the verification of proportions between sequences, on valid and invalid proportions.
+ * A new proportion is built for each invocation, as the validity is cached by each instance.
+ * @author Vincent Letard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SequenceProportionBenchmark {
+
+  @Param({"8", "12", "16"})
+  public int steps;
+
+  @Param({"2", "4", "26"})
+  public int alphabetSize;
+
+  @Param({"true", "false"})
+  public boolean valid;
+
+  private Sequence<Character> a, b, c, d;
+
+  @Setup
+  public void setup() {
+    List<Sequence<Character>> proportion = new AnalogyGenerator(42).sequenceProportion(this.steps, this.alphabetSize);
+    this.a = proportion.get(0);
+    this.b = proportion.get(1);
+    this.c = proportion.get(2);
+    this.d = this.valid ? proportion.get(3) : AnalogyGenerator.alter(proportion.get(3));
+    if (this.isValid() != this.valid)
+      throw new IllegalStateException("The generated proportion is expected to be " + (this.valid ? "valid." : "invalid."));
+  }
+
+  @Benchmark
+  public boolean isValid() {
+    return new SequenceProportion<Character>(this.a, this.b, this.c, this.d).isValid();
+  }
+}
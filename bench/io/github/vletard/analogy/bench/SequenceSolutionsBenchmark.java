@@ -0,0 +1,67 @@
+package io.github.vletard.analogy.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SubtypeRebuilder;
+import io.github.vletard.analogy.sequence.LatticeSequenceEquation;
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.sequence.SequenceEquation;
+
+/**
+ * Benchmarks of the sequence equation engines, enumerating every solution.
+ * Sizes are kept smaller than in {@link SequenceEquationBenchmark}, since the number of solutions grows exponentially.
+ * @author Vincent Letard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SequenceSolutionsBenchmark {
+
+  @Param({"6", "10", "14"})
+  public int steps;
+
+  @Param({"2", "4", "26"})
+  public int alphabetSize;
+
+  @Param({"default", "lattice"})
+  public String engine;
+
+  private Sequence<Character> a, b, c;
+
+  @Setup
+  public void setup() {
+    List<Sequence<Character>> proportion = new AnalogyGenerator(42).sequenceProportion(this.steps, this.alphabetSize);
+    this.a = proportion.get(0);
+    this.b = proportion.get(1);
+    this.c = proportion.get(2);
+  }
+
+  @Benchmark
+  public void allSolutions(Blackhole blackhole) {
+    SequenceEquation<Character, Sequence<Character>> equation;
+    if (this.engine.equals("lattice"))
+      equation = new LatticeSequenceEquation<Character, Sequence<Character>>(this.a, this.b, this.c, SubtypeRebuilder.<Sequence<Character>>identity());
+    else
+      equation = new SequenceEquation<Character, Sequence<Character>>(this.a, this.b, this.c, SubtypeRebuilder.<Sequence<Character>>identity());
+    for (Solution<Sequence<Character>> solution: equation)
+      blackhole.consume(solution);
+  }
+}
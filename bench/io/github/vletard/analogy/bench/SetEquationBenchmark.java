@@ -0,0 +1,76 @@
+package io.github.vletard.analogy.bench;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.vletard.analogy.DefaultProportion;
+import io.github.vletard.analogy.set.BitImmutableSet;
+import io.github.vletard.analogy.set.ImmutableSet;
+import io.github.vletard.analogy.set.SetSolution;
+import io.github.vletard.analogy.set.SetUniverse;
+import io.github.vletard.analogy.set.SimpleSetEquation;
+import io.github.vletard.analogy.set.SortedImmutableSet;
+
+/**
+ * Benchmarks of set equations and proportions on large sets,
+ * stored as hash sets, as bitsets of a shared universe or as sorted arrays.
+ * @author Vincent Letard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SetEquationBenchmark {
+
+  @Param({"100", "10000", "100000"})
+  public int universe;
+
+  @Param({"hash", "bitset", "sorted"})
+  public String representation;
+
+  private ImmutableSet<Integer> a, b, c, d;
+
+  @Setup
+  public void setup() {
+    List<ImmutableSet<Integer>> proportion = new AnalogyGenerator(42).setProportion(this.universe);
+    if (this.representation.equals("bitset")) {
+      SetUniverse<Integer> items = new SetUniverse<Integer>();
+      for (int i = 0; i < proportion.size(); i++)
+        proportion.set(i, new BitImmutableSet<Integer>(items, proportion.get(i).asSet()));
+    }
+    else if (this.representation.equals("sorted")) {
+      for (int i = 0; i < proportion.size(); i++)
+        proportion.set(i, new SortedImmutableSet<Integer>(proportion.get(i).asSet()));
+    }
+    this.a = proportion.get(0);
+    this.b = proportion.get(1);
+    this.c = proportion.get(2);
+    this.d = proportion.get(3);
+  }
+
+  @Benchmark
+  public SetSolution<Integer, ImmutableSet<Integer>> solve() {
+    Iterator<SetSolution<Integer, ImmutableSet<Integer>>> it = new SimpleSetEquation<Integer>(this.a, this.b, this.c).iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+
+  @Benchmark
+  public boolean proportion() {
+    return new DefaultProportion<ImmutableSet<Integer>>(this.a, this.b, this.c, this.d).isValid();
+  }
+}
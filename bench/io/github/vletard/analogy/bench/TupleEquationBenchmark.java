@@ -0,0 +1,70 @@
+package io.github.vletard.analogy.bench;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.tuple.SimpleTupleEquation;
+import io.github.vletard.analogy.tuple.Tuple;
+
+/**
+ * Benchmarks of tuple equations with many keys, each key holding a small sequence equation.
+ * Since the solutions of a tuple equation combine those of its keys, only a fixed number of them is enumerated.
+ * @author Vincent Letard
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TupleEquationBenchmark {
+  private static final int SOLUTIONS = 100;
+
+  @Param({"4", "16", "64"})
+  public int keys;
+
+  @Param({"4", "8"})
+  public int steps;
+
+  @Param({"2", "26"})
+  public int alphabetSize;
+
+  private Tuple<Sequence<Character>> a, b, c;
+
+  @Setup
+  public void setup() {
+    List<Tuple<Sequence<Character>>> proportion = new AnalogyGenerator(42).tupleProportion(this.keys, this.steps, this.alphabetSize);
+    this.a = proportion.get(0);
+    this.b = proportion.get(1);
+    this.c = proportion.get(2);
+  }
+
+  @Benchmark
+  public Solution<Tuple<Sequence<Character>>> firstSolution() {
+    Iterator<Solution<Tuple<Sequence<Character>>>> it = new SimpleTupleEquation<Sequence<Character>>(this.a, this.b, this.c).iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+
+  @Benchmark
+  public void firstSolutions(Blackhole blackhole) {
+    Iterator<Solution<Tuple<Sequence<Character>>>> it = new SimpleTupleEquation<Sequence<Character>>(this.a, this.b, this.c).iterator();
+    for (int i = 0; i < SOLUTIONS && it.hasNext(); i++)
+      blackhole.consume(it.next());
+  }
+}
@@ -0,0 +1,65 @@
+package io.github.vletard.analogy;
+
+/**
+ * An analogy domain provides the engine solving the equations and checking the proportions between the items of one structure
+ * (sequences, tuples, sets, or any user-defined type).
+ * Domains are registered in the {@link DomainRegistry} for the type of their items, and are selected from the runtime classes
+ * of the items by {@link DefaultEquation#factory(Object, Object, Object)} and {@link DefaultProportion#isValid()}.
+ * Items that do not all belong to a common domain are handled as atomic items.
+ * @author Vincent Letard
+ */
+public abstract class AnalogyDomain {
+  private final Class<?> type;
+
+  /**
+   * Constructs a domain for the items of the provided type and of its subtypes.
+   * @param type the type of the items of this domain
+   */
+  protected AnalogyDomain(Class<?> type) {
+    this.type = type;
+  }
+
+  /**
+   * Returns the type of the items of this domain.
+   * @return the type this domain is registered for.
+   */
+  public Class<?> getType() {
+    return this.type;
+  }
+
+  /**
+   * Checks whether the provided item belongs to this domain.
+   * @param item the item to be checked
+   * @return true if the item is an instance of the type of this domain.
+   */
+  public boolean contains(Object item) {
+    return this.type.isInstance(item);
+  }
+
+  /**
+   * Builds the equation A : B :: C : ? between items of this domain.
+   * @param <E> the type of the items
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param rebuilder the rebuilder for the subtype of the items, or null to build solutions of the base type of the domain
+   * @param options the solving options of the created equation
+   * @return a newly created equation.
+   */
+  public abstract <E> DefaultEquation<E, ? extends Solution<E>> equation(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options);
+
+  /**
+   * Checks the proportion A : B :: C : D between items of this domain, that are not equal two by two.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param d item
+   * @return true if the proportion is valid.
+   */
+  public abstract boolean isValidProportion(Object a, Object b, Object c, Object d);
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + " [" + this.type.getName() + "]";
+  }
+}
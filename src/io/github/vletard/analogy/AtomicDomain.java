@@ -0,0 +1,26 @@
+package io.github.vletard.analogy;
+
+/**
+ * Domain of the items that are only compared for equality, solved by {@link AtomicEquation}.
+ * @author Vincent Letard
+ */
+class AtomicDomain extends AnalogyDomain {
+
+  AtomicDomain() {
+    super(Object.class);
+  }
+
+  @Override
+  public <E> DefaultEquation<E, ? extends Solution<E>> equation(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options) {
+    return new AtomicEquation<E>(a, b, c, options);
+  }
+
+  /**
+   * {@inheritDoc}
+   * Atomic items are only in proportion when they are equal two by two.
+   */
+  @Override
+  public boolean isValidProportion(Object a, Object b, Object c, Object d) {
+    return false;
+  }
+}
@@ -8,6 +8,10 @@ public class AtomicEquation<T> extends DefaultEquation<T, Solution<T>> {
   public AtomicEquation(T A, T B, T C) {
     super(A, B, C);
   }
+
+  public AtomicEquation(T A, T B, T C, SolvingOptions options) {
+    super(A, B, C, options);
+  }
   
   /**
    * Returns the single solution of this atomic equation, or throws a {@link NoSolutionException}
@@ -23,9 +27,24 @@ public class AtomicEquation<T> extends DefaultEquation<T, Solution<T>> {
       throw new NoSolutionException();
   }
   
+  /**
+   * {@inheritDoc}
+   * The check is exact for atomic equations.
+   */
+  @Override
+  public boolean isFeasible() {
+    if (!new DegreeCutoff(this.getOptions()).accepts(1))
+      return false;
+    if (this.a == this.b || this.a == this.c)
+      return true;
+    return this.a != null && (this.a.equals(this.b) || this.a.equals(this.c));
+  }
+
   @Override
   public Iterator<Solution<T>> iterator(){
     ArrayList<Solution<T>> solution = new ArrayList<Solution<T>>();
+    if (!new DegreeCutoff(this.getOptions()).accepts(1) || !this.getOptions().getBudget().check())
+      return solution.iterator();
     if (this.a == this.b)
       solution.add(new AtomicSolution<T>(this.c, 1, this));
     else if (this.a == this.c)
@@ -42,6 +61,6 @@ public class AtomicEquation<T> extends DefaultEquation<T, Solution<T>> {
 
   @Override
   public AtomicEquation<T> dual() {
-    return new AtomicEquation<T>(this.a, this.c, this.b);
+    return new AtomicEquation<T>(this.a, this.c, this.b, this.getOptions());
   }
 }
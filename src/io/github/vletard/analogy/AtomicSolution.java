@@ -9,6 +9,12 @@ public class AtomicSolution<T> extends Solution<T> {
     this.crossedRelation = AtomicRelation.newCrossedRelation(equation);
   }
 
+  private AtomicSolution(T content, int degree, AtomicRelation straightRelation, AtomicRelation crossedRelation) {
+    super(content, degree);
+    this.straightRelation = straightRelation;
+    this.crossedRelation = crossedRelation;
+  }
+
   @Override
   public Relation getStraightRelation() {
     return straightRelation;
@@ -18,4 +24,9 @@ public class AtomicSolution<T> extends Solution<T> {
   public Relation getCrossedRelation() {
     return crossedRelation;
   }
+
+  @Override
+  public AtomicSolution<T> dual() {
+    return new AtomicSolution<T>(this.getContent(), this.getDegree(), this.crossedRelation, this.straightRelation);
+  }
 }
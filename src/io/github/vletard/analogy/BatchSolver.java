@@ -0,0 +1,280 @@
+package io.github.vletard.analogy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Facade solving batches of independent equations and proportions on a shared {@link Executor}.
+ * Each equation or proportion is a separate task completing its own {@link CompletableFuture}: a task failing or
+ * exhausting its budget does not affect the others, and a per-task budget (see {@link #withTaskBudget(long, long, long, TimeUnit)})
+ * keeps one slow equation from holding its thread longer than its deadline. The results of a batch are also available
+ * as a stream, in the order of the submitted items.
+ *
+ * Solvers are immutable, each modification returns a new instance sharing the executor.
+ * @author Vincent Letard
+ */
+public class BatchSolver {
+
+  /**
+   * Solutions of one equation of a batch.
+   * @param <T> the type of the items of the equation
+   */
+  public static class Result<T> {
+    private final List<Solution<T>> solutions;
+    private final BudgetExhaustion exhaustion;
+    private final long elapsedNanos;
+
+    private Result(List<Solution<T>> solutions, BudgetExhaustion exhaustion, long elapsedNanos) {
+      this.solutions = Collections.unmodifiableList(solutions);
+      this.exhaustion = exhaustion;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the solutions of the equation, in ascending order of degree.
+     * @return an unmodifiable list of the solutions.
+     */
+    public List<Solution<T>> getSolutions() {
+      return this.solutions;
+    }
+
+    /**
+     * Returns why the enumeration of the solutions was cut, in which case the solutions may be incomplete.
+     * @return the exhaustion of the budget of the task, or null if every solution was enumerated.
+     */
+    public BudgetExhaustion getExhaustion() {
+      return this.exhaustion;
+    }
+
+    /**
+     * Returns the time spent solving the equation.
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+      return this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "Result [solutions=" + this.solutions.size() + (this.exhaustion == null ? "" : ", exhaustion=" + this.exhaustion)
+          + ", elapsed=" + this.elapsedNanos + "ns]";
+    }
+  }
+
+  private final Executor executor;
+  private final SolvingOptions options;
+  private final boolean unique;
+  private final long maxExpansions, maxFrontierSize, timeout;
+  private final TimeUnit unit;
+
+  private BatchSolver(Executor executor, SolvingOptions options, boolean unique, long maxExpansions, long maxFrontierSize, long timeout, TimeUnit unit) {
+    this.executor = executor;
+    this.options = options;
+    this.unique = unique;
+    this.maxExpansions = maxExpansions;
+    this.maxFrontierSize = maxFrontierSize;
+    this.timeout = timeout;
+    this.unit = unit;
+  }
+
+  /**
+   * Constructs a solver enumerating every solution with the default options.
+   * On Java 21 and later, {@code Executors.newVirtualThreadPerTaskExecutor()} runs each task on its own virtual thread.
+   * @param executor the executor running the tasks
+   */
+  public BatchSolver(Executor executor) {
+    this(executor, SolvingOptions.DEFAULT, false, SearchBudget.UNBOUNDED, SearchBudget.UNBOUNDED, SearchBudget.UNBOUNDED, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns a copy of this solver with the provided solving options.
+   * A limited budget set in these options is shared by every task, each task reporting its own exhaustion through a
+   * {@link SearchBudget#view()} of it, whereas a per-task budget is set with {@link #withTaskBudget(long, long, long, TimeUnit)}.
+   * @param options the options of every equation
+   * @return the new solver.
+   */
+  public BatchSolver withOptions(SolvingOptions options) {
+    return new BatchSolver(this.executor, options, this.unique, this.maxExpansions, this.maxFrontierSize, this.timeout, this.unit);
+  }
+
+  /**
+   * Returns a copy of this solver enumerating only the distinct solutions of each equation.
+   * @param unique whether duplicate solutions are ignored
+   * @return the new solver.
+   */
+  public BatchSolver withUniqueSolutions(boolean unique) {
+    return new BatchSolver(this.executor, this.options, unique, this.maxExpansions, this.maxFrontierSize, this.timeout, this.unit);
+  }
+
+  /**
+   * Returns a copy of this solver giving each task its own budget, its deadline starting when the task starts.
+   * Any limit set to {@link SearchBudget#UNBOUNDED} does not constrain the tasks.
+   * @param maxExpansions the maximum number of search states expanded by each task
+   * @param maxFrontierSize the maximum size of the search frontier of each task
+   * @param timeout the duration of each task
+   * @param unit the unit of the timeout
+   * @return the new solver.
+   */
+  public BatchSolver withTaskBudget(long maxExpansions, long maxFrontierSize, long timeout, TimeUnit unit) {
+    return new BatchSolver(this.executor, this.options, this.unique, maxExpansions, maxFrontierSize, timeout, unit);
+  }
+
+  private boolean hasTaskBudget() {
+    return this.maxExpansions != SearchBudget.UNBOUNDED || this.maxFrontierSize != SearchBudget.UNBOUNDED || this.timeout != SearchBudget.UNBOUNDED;
+  }
+
+  /**
+   * Solves an equation in the calling thread, with the options and the budget of this solver.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> Result<T> solve(T a, T b, T c) {
+    long start = System.nanoTime();
+    SolvingOptions options = this.options;
+    if (this.hasTaskBudget())
+      options = options.withBudget(new SearchBudget(this.maxExpansions, this.maxFrontierSize, this.timeout, this.unit));
+    else
+      options = options.withBudget(options.getBudget().view()); // the exhaustion of the shared budget by other tasks is not reported
+    DefaultEquation<T, ? extends Solution<T>> equation = DefaultEquation.factory(a, b, c, options);
+    Iterable<? extends Solution<T>> solutions = this.unique ? equation.uniqueSolutions() : equation;
+    ArrayList<Solution<T>> list = new ArrayList<Solution<T>>();
+    for (Solution<T> solution: solutions)
+      list.add(solution);
+    return new Result<T>(list, options.getBudget().getExhaustion(), System.nanoTime() - start);
+  }
+
+  /**
+   * Submits the equation A : B :: C : ? to the executor.
+   * @param <T> the type of the items
+   * @param a item
+   * @param b item
+   * @param c item
+   * @return a future completed with the solutions of the equation, or exceptionally if the solving failed.
+   */
+  public <T> CompletableFuture<Result<T>> submit(final T a, final T b, final T c) {
+    final CompletableFuture<Result<T>> future = new CompletableFuture<Result<T>>();
+    this.executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (future.isDone())
+          return; // cancelled before it started
+        try {
+          future.complete(BatchSolver.this.solve(a, b, c));
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Submits the proportion A : B :: C : D to the executor.
+   * @param <T> the type of the items
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param d item
+   * @return a future completed with the validity of the proportion, or exceptionally if the check failed.
+   */
+  public <T> CompletableFuture<Boolean> check(final T a, final T b, final T c, final T d) {
+    final CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+    this.executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (future.isDone())
+          return;
+        try {
+          future.complete(new DefaultProportion<T>(a, b, c, d).isValid());
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        }
+      }
+    });
+    return future;
+  }
+
+  private static void checkArity(List<?> items, int arity) {
+    if (items.size() != arity)
+      throw new IllegalArgumentException("Expected " + arity + " items, found " + items.size() + ".");
+  }
+
+  /**
+   * Submits a batch of equations to the executor.
+   * @param <T> the type of the items
+   * @param triples the items A, B and C of each equation
+   * @return the futures of the equations, in the order of the triples.
+   * @throws IllegalArgumentException if a triple does not hold exactly 3 items, before any equation is submitted.
+   */
+  public <T> List<CompletableFuture<Result<T>>> submitAll(Iterable<? extends List<? extends T>> triples) {
+    for (List<? extends T> triple: triples)
+      checkArity(triple, 3);
+    ArrayList<CompletableFuture<Result<T>>> futures = new ArrayList<CompletableFuture<Result<T>>>();
+    for (List<? extends T> triple: triples)
+      futures.add(this.<T>submit(triple.get(0), triple.get(1), triple.get(2)));
+    return futures;
+  }
+
+  /**
+   * Submits a batch of proportions to the executor.
+   * @param <T> the type of the items
+   * @param quadruples the items A, B, C and D of each proportion
+   * @return the futures of the proportions, in the order of the quadruples.
+   * @throws IllegalArgumentException if a quadruple does not hold exactly 4 items, before any proportion is submitted.
+   */
+  public <T> List<CompletableFuture<Boolean>> checkAll(Iterable<? extends List<? extends T>> quadruples) {
+    for (List<? extends T> quadruple: quadruples)
+      checkArity(quadruple, 4);
+    ArrayList<CompletableFuture<Boolean>> futures = new ArrayList<CompletableFuture<Boolean>>();
+    for (List<? extends T> quadruple: quadruples)
+      futures.add(this.<T>check(quadruple.get(0), quadruple.get(1), quadruple.get(2), quadruple.get(3)));
+    return futures;
+  }
+
+  /**
+   * Returns the results of submitted tasks as a stream in the order of the futures, each element waiting for its own task only.
+   * A failed task makes the stream throw a {@link java.util.concurrent.CompletionException} when its element is reached.
+   * @param <R> the type of the results
+   * @param futures the futures of the tasks
+   * @return an ordered stream of the results.
+   */
+  public static <R> Stream<R> ordered(List<CompletableFuture<R>> futures) {
+    return futures.stream().map(new Function<CompletableFuture<R>, R>() {
+      @Override
+      public R apply(CompletableFuture<R> future) {
+        return future.join();
+      }
+    });
+  }
+
+  /**
+   * Solves a batch of equations, returning their results in the order of the triples.
+   * Every equation is submitted before the stream is returned.
+   * @param <T> the type of the items
+   * @param triples the items A, B and C of each equation
+   * @return an ordered stream of the results.
+   */
+  public <T> Stream<Result<T>> solveAll(Iterable<? extends List<? extends T>> triples) {
+    return ordered(this.<T>submitAll(triples));
+  }
+
+  /**
+   * Returns the executor running the tasks of this solver.
+   * @return the executor.
+   */
+  public Executor getExecutor() {
+    return this.executor;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchSolver [options=" + this.options + ", unique=" + this.unique
+        + (this.hasTaskBudget() ? ", taskBudget=[expansions=" + this.maxExpansions + ", frontier=" + this.maxFrontierSize
+            + ", timeout=" + this.timeout + " " + this.unit + "]" : "") + "]";
+  }
+}
@@ -0,0 +1,28 @@
+package io.github.vletard.analogy;
+
+/**
+ * An enum representing the reasons why a {@link SearchBudget} was exhausted.
+ * @author Vincent Letard
+ *
+ */
+public enum BudgetExhaustion {
+  /**
+   * The maximum number of expanded search states has been reached.
+   */
+  EXPANSIONS,
+
+  /**
+   * The frontier of the search has grown beyond its maximum size.
+   */
+  FRONTIER,
+
+  /**
+   * The deadline of the search has passed.
+   */
+  DEADLINE,
+
+  /**
+   * The searching thread has been interrupted.
+   */
+  INTERRUPTED
+}
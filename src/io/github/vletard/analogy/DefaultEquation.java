@@ -3,17 +3,13 @@ package io.github.vletard.analogy;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-
-import io.github.vletard.analogy.sequence.Sequence;
-import io.github.vletard.analogy.sequence.SequenceEquation;
-import io.github.vletard.analogy.sequence.SimpleSequenceEquation;
-import io.github.vletard.analogy.set.ImmutableSet;
-import io.github.vletard.analogy.set.SetEquation;
-import io.github.vletard.analogy.set.SimpleSetEquation;
-import io.github.vletard.analogy.tuple.SimpleTupleEquation;
-import io.github.vletard.analogy.tuple.SubTupleRebuilder;
-import io.github.vletard.analogy.tuple.Tuple;
-import io.github.vletard.analogy.tuple.TupleEquation;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This abstract class gives the basis for the behaviour of an analogical equation.
@@ -30,6 +26,8 @@ public abstract class DefaultEquation<T, S extends Solution<T>> implements Itera
 
   public final T a, b, c;
 
+  private final SolvingOptions options;
+
   /**
    * Simple constructor that assigns each item to a field.
    * @param a item
@@ -37,11 +35,58 @@ public abstract class DefaultEquation<T, S extends Solution<T>> implements Itera
    * @param c item
    */
   protected DefaultEquation(T a, T b, T c){
+    this(a, b, c, SolvingOptions.DEFAULT);
+  }
+
+  /**
+   * Constructor that assigns each item to a field, with the options constraining the search of the solutions.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param options the solving options
+   */
+  protected DefaultEquation(T a, T b, T c, SolvingOptions options){
     this.a = a;
     this.b = b;
     this.c = c;
+    this.options = options;
+  }
+
+  /**
+   * Returns the options constraining the search of the solutions of this equation.
+   * @return the solving options.
+   */
+  public SolvingOptions getOptions() {
+    return this.options;
   }
   
+  /**
+   * Performs the cheap checks that are necessary for this equation to have a solution, without searching for any.
+   * Structured equations run them on all their parts before starting any search, so that unsolvable equations are dismissed early.
+   * @return false if this equation has no solution, true if it may have one.
+   */
+  public boolean isFeasible() {
+    return true;
+  }
+
+  /**
+   * Estimates the cost of searching the solutions of this equation, relatively to the other equations.
+   * Structured equations solve their cheapest parts first, so that a part without solution is more likely to be found
+   * before the expensive searches are started.
+   * @return the estimated cost, 1 for equations solved in constant time.
+   */
+  public long estimateCost() {
+    return 1;
+  }
+
+  /**
+   * Returns the rebuilder of the solutions of this equation.
+   * @return the rebuilder, or null if the solutions are built as the base type of the items.
+   */
+  public SubtypeRebuilder<?, ?> getRebuilder() {
+    return null;
+  }
+
   /**
    * Returns the dual analogical equation corresponding to A : C :: B : ?
    * @return the dual equation.
@@ -58,25 +103,193 @@ public abstract class DefaultEquation<T, S extends Solution<T>> implements Itera
    * @return a newly created DefaultEquation
    */
   public static <E> DefaultEquation<E, ? extends Solution<E>> factory(E a, E b, E c) {
-    if (a instanceof ImmutableSet && b instanceof ImmutableSet && c instanceof ImmutableSet) {
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SimpleSetEquation<Object>((ImmutableSet<Object>) a, (ImmutableSet<Object>) b, (ImmutableSet<Object>) c);
-    } else if (a instanceof Tuple && b instanceof Tuple && c instanceof Tuple)
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SimpleTupleEquation<Object>((Tuple<Object>) a, (Tuple<Object>) b, (Tuple<Object>) c);
-    else if (a instanceof Sequence && b instanceof Sequence && c instanceof Sequence)
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SimpleSequenceEquation<Object>((Sequence<Object>) a, (Sequence<Object>) b, (Sequence<Object>) c);
-    else
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new AtomicEquation<Object>(a, b, c);
+    return factory(a, b, c, SolvingOptions.DEFAULT);
+  }
+
+  /**
+   * Analyzes the runtime types of the provided items and builds the suitable equation subtype,
+   * then returns the created instance as a DefaultEquation.
+   * The equation is built by the {@link AnalogyDomain} registered for the items in the {@link DomainRegistry}.
+   * @param <E> the type of items in the expected DefaultEquation
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param options the solving options of the created equation
+   * @return a newly created DefaultEquation
+   */
+  public static <E> DefaultEquation<E, ? extends Solution<E>> factory(E a, E b, E c, SolvingOptions options) {
+    return DomainRegistry.common(a, b, c).equation(a, b, c, null, options);
   }
   
   public static <E, T extends E> DefaultEquation<E, ? extends Solution<E>> factory(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder) {
-    if (a instanceof ImmutableSet && b instanceof ImmutableSet && c instanceof ImmutableSet) {
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SetEquation<Object, ImmutableSet<Object>>((ImmutableSet<Object>) a, (ImmutableSet<Object>) b, (ImmutableSet<Object>) c, (SubtypeRebuilder<ImmutableSet<Object>, ImmutableSet<Object>>) rebuilder);
-    } else if (a instanceof Tuple && b instanceof Tuple && c instanceof Tuple && rebuilder instanceof SubTupleRebuilder)
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new TupleEquation<Object, Tuple<Object>>((Tuple<Object>) a, (Tuple<Object>) b, (Tuple<Object>) c, (SubTupleRebuilder<Object, Tuple<Object>>) rebuilder);
-    else if (a instanceof Sequence && b instanceof Sequence && c instanceof Sequence)
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SequenceEquation<Object, Sequence<Object>>((Sequence<Object>) a, (Sequence<Object>) b, (Sequence<Object>) c, (SubtypeRebuilder<Sequence<Object>, Sequence<Object>>) rebuilder);
+    return factory(a, b, c, rebuilder, SolvingOptions.DEFAULT);
+  }
+
+  /**
+   * Analyzes the runtime types of the provided items and builds the suitable equation subtype using the provided rebuilder,
+   * then returns the created instance as a DefaultEquation.
+   * @param <E> the type of items in the expected DefaultEquation
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param rebuilder the rebuilder for the subtype of the items
+   * @param options the solving options of the created equation
+   * @return a newly created DefaultEquation
+   */
+  public static <E, T extends E> DefaultEquation<E, ? extends Solution<E>> factory(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options) {
+    return DomainRegistry.common(a, b, c).equation(a, b, c, rebuilder, options);
+  }
+
+  /**
+   * Spliterator over the partitions of the search of a {@link SplittableIterator}.
+   * Solutions of different partitions are interleaved, thus the spliterator is not ORDERED.
+   * The number of solutions is unknown, its estimate is halved on each split so that the stream framework bounds the number of partitions.
+   */
+  private static class PartitionSpliterator<S> implements Spliterator<S> {
+    private final Iterator<S> it;
+    private long estimate;
+
+    private PartitionSpliterator(Iterator<S> it, long estimate) {
+      this.it = it;
+      this.estimate = estimate;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super S> action) {
+      if (!this.it.hasNext())
+        return false;
+      action.accept(this.it.next());
+      return true;
+    }
+
+    @Override
+    public Spliterator<S> trySplit() {
+      if (!(this.it instanceof SplittableIterator))
+        return null;
+      Iterator<S> part = ((SplittableIterator<S>) this.it).trySplit();
+      if (part == null)
+        return null;
+      this.estimate >>>= 1;
+      return new PartitionSpliterator<S>(part, this.estimate);
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.estimate;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.NONNULL;
+    }
+  }
+
+  /**
+   * Spliterator ignoring the duplicates of a source spliterator, the solutions already listed being shared by every split.
+   */
+  private static class DistinctSpliterator<S> implements Spliterator<S>, Consumer<S> {
+    private final Spliterator<S> source;
+    private final Set<S> listed;
+    private S current;
+
+    private DistinctSpliterator(Spliterator<S> source, Set<S> listed) {
+      this.source = source;
+      this.listed = listed;
+      this.current = null;
+    }
+
+    @Override
+    public void accept(S solution) {
+      this.current = solution;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super S> action) {
+      while (this.source.tryAdvance(this)) {
+        S solution = this.current;
+        this.current = null;
+        if (this.listed.add(solution)) {
+          action.accept(solution);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Spliterator<S> trySplit() {
+      Spliterator<S> part = this.source.trySplit();
+      return (part == null) ? null : new DistinctSpliterator<S>(part, this.listed);
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.source.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return (this.source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED)) | Spliterator.DISTINCT;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * The spliterator is ORDERED by ascending degree; it only splits by buffering batches of solutions,
+   * thus parallel processing of its elements does not parallelize the search itself.
+   */
+  @Override
+  public Spliterator<S> spliterator() {
+    return Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /**
+   * Returns a spliterator splitting the search of the solutions when the iterator of this equation is a {@link SplittableIterator},
+   * or the ordered {@link #spliterator()} otherwise.
+   */
+  private Spliterator<S> partitions() {
+    Iterator<S> it = this.iterator();
+    if (it instanceof SplittableIterator)
+      return new PartitionSpliterator<S>(it, Long.MAX_VALUE);
     else
-      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new AtomicEquation<Object>(a, b, c);
+      return Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /**
+   * Returns a sequential stream of the solutions of this equation, in ascending order of degree.
+   * @return an ordered stream of the solutions.
+   */
+  public Stream<S> stream() {
+    return StreamSupport.stream(this.spliterator(), false);
+  }
+
+  /**
+   * Returns a parallel stream of the solutions of this equation.
+   * When the search of the equation can be partitioned (see {@link SplittableIterator}), each partition is searched by its own
+   * thread of the common pool and the stream is not ordered: each partition provides its solutions in ascending order of degree,
+   * but the partitions are interleaved. Otherwise, the solutions are searched by a single thread and the stream is ordered.
+   * @return a parallel stream of the solutions.
+   */
+  public Stream<S> parallelStream() {
+    return StreamSupport.stream(this.partitions(), true);
+  }
+
+  /**
+   * Returns a sequential stream of the solutions of this equation where duplicates are ignored, in ascending order of degree.
+   * @return an ordered and distinct stream of the solutions.
+   */
+  public Stream<S> uniqueStream() {
+    return StreamSupport.stream(new DistinctSpliterator<S>(this.spliterator(), ConcurrentHashMap.<S>newKeySet()), false);
+  }
+
+  /**
+   * Returns a parallel stream of the solutions of this equation where duplicates are ignored,
+   * partitioned as in {@link #parallelStream()}. Since the partitions are interleaved, a duplicate found in several partitions
+   * is not necessarily provided with its lowest degree.
+   * @return a distinct parallel stream of the solutions.
+   */
+  public Stream<S> uniqueParallelStream() {
+    return StreamSupport.stream(new DistinctSpliterator<S>(this.partitions(), ConcurrentHashMap.<S>newKeySet()), true);
   }
 
   /**
@@ -1,16 +1,18 @@
 package io.github.vletard.analogy;
 
-import java.util.HashSet;
-import java.util.Set;
+public class DefaultProportion<T> {
+  /**
+   * Memory of the validity of the proportions shared by every instance, or null if disabled (default).
+   */
+  private static volatile ProportionCache cache = null;
 
-import io.github.vletard.analogy.sequence.Sequence;
-import io.github.vletard.analogy.sequence.SequenceProportion;
-import io.github.vletard.analogy.set.ImmutableSet;
-import io.github.vletard.analogy.tuple.Tuple;
+  /**
+   * Statistics collected by the proportion checks of every instance, disabled by default.
+   */
+  private static volatile SolverStats stats = SolverStats.DISABLED;
 
-public class DefaultProportion<T> {
   final public T A, B, C, D;
-  private Boolean valid;
+  private volatile Boolean valid;
   
   public DefaultProportion(T a, T b, T c, T d) {
     this.A = a;
@@ -19,21 +21,81 @@ public class DefaultProportion<T> {
     this.D = d;
   }
 
+  /**
+   * Installs a cache shared by every proportion, such that the validity of a proportion (or of one of its equivalent forms)
+   * is only checked once.
+   * @param cache the cache to be used, or null to disable caching
+   */
+  public static void setCache(ProportionCache cache) {
+    DefaultProportion.cache = cache;
+  }
+
+  /**
+   * Returns the cache shared by every proportion.
+   * @return the installed cache, or null if caching is disabled.
+   */
+  public static ProportionCache getCache() {
+    return DefaultProportion.cache;
+  }
+
+  /**
+   * Installs the statistics collected by the proportion checks of every instance.
+   * @param stats the statistics to be collected, or {@link SolverStats#DISABLED}
+   */
+  public static void setStats(SolverStats stats) {
+    if (stats == null)
+      throw new IllegalArgumentException("The solver statistics cannot be null, use SolverStats.DISABLED instead.");
+    DefaultProportion.stats = stats;
+  }
+
+  /**
+   * Returns the statistics collected by the proportion checks.
+   * @return the installed statistics, {@link SolverStats#DISABLED} by default.
+   */
+  public static SolverStats getStats() {
+    return DefaultProportion.stats;
+  }
+
   public boolean isValid() {
-    if (this.valid == null)
-      this.valid = this.check();
-    return this.valid;
+    Boolean valid = this.valid;
+    if (valid == null) {
+      valid = this.checkAtomic();
+      if (valid == null)
+        valid = this.checkStructured();
+      this.valid = valid;
+    }
+    return valid;
   }
 
-  private boolean check() {
-    try {
-      return this.checkAtomic();
-    } catch (NonAtomicException e) {
-      return this.checkSet() || this.checkTuple() || this.checkSequence();
+  /**
+   * Checks the proportion according to the structure of the items, using the shared cache if the items belong to a structured domain.
+   * @return true if the proportion is valid.
+   */
+  private boolean checkStructured() {
+    AnalogyDomain domain = DomainRegistry.common(this.A, this.B, this.C, this.D);
+    ProportionCache cache = DefaultProportion.cache;
+    if (cache == null || domain == DomainRegistry.ATOMIC)
+      return this.check(domain);
+    Boolean valid = cache.get(this.A, this.B, this.C, this.D);
+    if (valid == null) {
+      valid = this.check(domain);
+      cache.put(this.A, this.B, this.C, this.D, valid);
     }
+    return valid;
+  }
+
+  private boolean check(AnalogyDomain domain) {
+    ProportionEvent event = new ProportionEvent(this);
+    boolean valid = domain.isValidProportion(this.A, this.B, this.C, this.D);
+    event.finish(valid, -1);
+    return valid;
   }
 
-  private boolean checkAtomic() throws NonAtomicException {
+  /**
+   * Checks the proportion as an atomic one, which is enough unless the four items are not null and not equal two by two.
+   * @return the validity of the proportion, or null if it depends on the structure of the items.
+   */
+  protected Boolean checkAtomic() {
     if (this.A == null && this.B == null) {
       if (this.C == null && this.D == null)
         return true;
@@ -64,64 +126,8 @@ public class DefaultProportion<T> {
       if ((this.A.equals(this.B) && this.C.equals(this.D)) || (this.A.equals(this.C) && this.B.equals(this.D)))
         return true;
       else
-        throw new NonAtomicException();
+        return null;
     else
       return false;
   }
-  
-  private boolean checkSet() {
-    if (!(this.A instanceof ImmutableSet && this.B instanceof ImmutableSet && this.C instanceof ImmutableSet && this.D instanceof ImmutableSet))
-      return false;
-    
-    ImmutableSet<Object> a = (ImmutableSet<Object>) this.A;
-    ImmutableSet<Object> b = (ImmutableSet<Object>) this.B;
-    ImmutableSet<Object> c = (ImmutableSet<Object>) this.C;
-    ImmutableSet<Object> d = (ImmutableSet<Object>) this.D;
-    
-    HashSet<Object> union = new HashSet<Object>();
-    union.addAll(a.asSet());
-    union.addAll(b.asSet());
-    union.addAll(c.asSet());
-    union.addAll(d.asSet());
-    
-    for (Object key: union) {
-      if (!new DefaultProportion<Boolean>(a.contains(key), b.contains(key), c.contains(key), d.contains(key)).isValid())
-        return false; // if any of the items does not respect analogical constraints over the 4 sets, the proportion is invalid
-    }
-    return true;
-  }
-  
-  private boolean checkTuple() {
-    if (!(this.A instanceof Tuple && this.B instanceof Tuple && this.C instanceof Tuple && this.D instanceof Tuple))
-      return false;
-    
-    Tuple<Object> A = (Tuple<Object>) this.A;
-    Tuple<Object> B = (Tuple<Object>) this.B;
-    Tuple<Object> C = (Tuple<Object>) this.C;
-    Tuple<Object> D = (Tuple<Object>) this.D;
-    
-    Set<Object> keys = new HashSet<Object>();
-    keys.addAll(A.keySet());
-    keys.addAll(B.keySet());
-    keys.addAll(C.keySet());
-    keys.addAll(D.keySet());
-    
-    for (Object key: keys) {
-      if (!new DefaultProportion<Object>(A.get(key), B.get(key), C.get(key), D.get(key)).isValid())
-        return false; // if any of the entries does not respect analogical constraints over the 4 tuples, the proportion is invalid
-    }
-    return true;
-  }
-
-  private boolean checkSequence() {
-    if (!(this.A instanceof Sequence && this.B instanceof Sequence && this.C instanceof Sequence && this.D instanceof Sequence))
-      return false;
-    
-    Sequence<Object> A = (Sequence<Object>)this.A;
-    Sequence<Object> B = (Sequence<Object>)this.B;
-    Sequence<Object> C = (Sequence<Object>)this.C;
-    Sequence<Object> D = (Sequence<Object>)this.D;
-    
-    return new SequenceProportion<Object>(A, B, C, D).isValid();
-  }
 }
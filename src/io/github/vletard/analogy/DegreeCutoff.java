@@ -0,0 +1,57 @@
+package io.github.vletard.analogy;
+
+/**
+ * This class tracks the degree bounds of {@link SolvingOptions} along the enumeration of the solutions of an equation.
+ * Solutions are expected to be recorded in ascending order of degree: once the maximum number of distinct degrees
+ * has been reached, the maximum degree is lowered to the last recorded degree so that the solvers can prune
+ * every state of a greater degree.
+ * @author Vincent Letard
+ */
+public class DegreeCutoff {
+  private final int maxDistinctDegrees;
+  private int maxDegree;
+  private int distinctDegrees;
+  private int lastDegree;
+
+  public DegreeCutoff(SolvingOptions options) {
+    this.maxDistinctDegrees = options.getMaxDistinctDegrees();
+    this.maxDegree = this.maxDistinctDegrees > 0 ? options.getMaxDegree() : -1;
+    this.distinctDegrees = 0;
+    this.lastDegree = -1;
+  }
+
+  /**
+   * Returns the greatest degree that can still be enumerated.
+   * @return the current maximum degree.
+   */
+  public int getMaxDegree() {
+    return this.maxDegree;
+  }
+
+  /**
+   * Checks whether a solution, or a partial state, of the provided degree can still be enumerated.
+   * @param degree the degree to be checked
+   * @return false if the degree exceeds the current maximum degree.
+   */
+  public boolean accepts(int degree) {
+    return degree <= this.maxDegree;
+  }
+
+  /**
+   * Records a solution of the provided degree, if it is accepted.
+   * @param degree the degree of the solution, greater or equal to the degree of the previously recorded solutions
+   * @return true if the solution is accepted.
+   */
+  public boolean record(int degree) {
+    if (!this.accepts(degree))
+      return false;
+    assert(degree >= this.lastDegree);
+    if (degree != this.lastDegree) {
+      this.lastDegree = degree;
+      this.distinctDegrees ++;
+      if (this.distinctDegrees >= this.maxDistinctDegrees)
+        this.maxDegree = degree;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,118 @@
+package io.github.vletard.analogy;
+
+import java.util.ArrayList;
+
+import io.github.vletard.analogy.sequence.SequenceDomain;
+import io.github.vletard.analogy.set.SetDomain;
+import io.github.vletard.analogy.tuple.TupleDomain;
+
+/**
+ * This class maps the classes of the items to their {@link AnalogyDomain}.
+ * The domain of a class is that of its most specific registered supertype, atomic if there is none.
+ * Lookups are cached per class, such that dispatching an item costs a single {@link ClassValue} access;
+ * the cache is dropped whenever a domain is registered, as are the entries of the installed {@link ProportionCache},
+ * which were decided by the previous domains.
+ * @author Vincent Letard
+ */
+public final class DomainRegistry {
+
+  /**
+   * Domain of the items that are only compared for equality.
+   */
+  public static final AnalogyDomain ATOMIC = new AtomicDomain();
+
+  private static final ArrayList<AnalogyDomain> domains = new ArrayList<AnalogyDomain>();
+  private static volatile ClassValue<AnalogyDomain> cache = newCache();
+
+  static {
+    domains.add(new SetDomain());
+    domains.add(new TupleDomain());
+    domains.add(new SequenceDomain());
+  }
+
+  private DomainRegistry() {
+  }
+
+  private static ClassValue<AnalogyDomain> newCache() {
+    return new ClassValue<AnalogyDomain>() {
+      @Override
+      protected AnalogyDomain computeValue(Class<?> type) {
+        return DomainRegistry.resolve(type);
+      }
+    };
+  }
+
+  /**
+   * Searches the domain of the most specific registered supertype of the provided class.
+   */
+  private static synchronized AnalogyDomain resolve(Class<?> type) {
+    AnalogyDomain found = ATOMIC;
+    for (AnalogyDomain domain: domains)
+      if (domain.getType().isAssignableFrom(type) && found.getType().isAssignableFrom(domain.getType()))
+        found = domain;
+    return found;
+  }
+
+  /**
+   * Registers a domain for the items of its type and of its subtypes, replacing any domain previously registered for that same type.
+   * The installed {@link ProportionCache}, if any, is cleared (statistics included).
+   * @param domain the domain to be registered
+   */
+  public static synchronized void register(AnalogyDomain domain) {
+    for (int i = 0; i < domains.size(); i++) {
+      if (domains.get(i).getType() == domain.getType()) {
+        domains.remove(i);
+        break;
+      }
+    }
+    domains.add(domain);
+    cache = newCache();
+    ProportionCache proportions = DefaultProportion.getCache();
+    if (proportions != null)
+      proportions.clear();
+  }
+
+  /**
+   * Returns the domain of the items of the provided class.
+   * @param type the class of the items
+   * @return the domain of the class.
+   */
+  public static AnalogyDomain lookup(Class<?> type) {
+    return cache.get(type);
+  }
+
+  /**
+   * Returns the domain of the provided item.
+   * @param item the item
+   * @return the domain of the item, {@link #ATOMIC} for null.
+   */
+  public static AnalogyDomain of(Object item) {
+    return (item == null) ? ATOMIC : cache.get(item.getClass());
+  }
+
+  /**
+   * Returns the most specific domain containing every provided item, {@link #ATOMIC} if there is none.
+   * The domain of the first item is checked first, such that items of the same class are dispatched without any search.
+   * @param items the items
+   * @return the common domain of the items.
+   */
+  public static AnalogyDomain common(Object... items) {
+    AnalogyDomain domain = of(items[0]);
+    if (domain == ATOMIC || containsAll(domain, items))
+      return domain;
+    synchronized (DomainRegistry.class) {
+      AnalogyDomain found = ATOMIC;
+      for (AnalogyDomain candidate: domains)
+        if (found.getType().isAssignableFrom(candidate.getType()) && containsAll(candidate, items))
+          found = candidate;
+      return found;
+    }
+  }
+
+  private static boolean containsAll(AnalogyDomain domain, Object[] items) {
+    for (Object item: items)
+      if (!domain.contains(item))
+        return false;
+    return true;
+  }
+}
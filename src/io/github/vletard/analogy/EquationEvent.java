@@ -0,0 +1,126 @@
+package io.github.vletard.analogy;
+
+import java.util.Collection;
+
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.set.ImmutableSet;
+import io.github.vletard.analogy.tuple.Tuple;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of the enumeration of the solutions of a {@link DefaultEquation}, from the creation of its iterator
+ * until the iterator reports that there is no more solution. Enumerations abandoned before their end are not recorded,
+ * but the search of their first solution is, by the {@link FirstSolutionEvent} that this event drives.
+ * The event is only filled when enabled in the running recording, otherwise each recording method costs a single branch.
+ * @author Vincent Letard
+ */
+@Name("io.github.vletard.analogy.EquationSolved")
+@Label("Analogical Equation Solved")
+@Category("Analogy")
+@Description("Enumeration of the solutions of an analogical equation A : B :: C : ?")
+public class EquationEvent extends Event {
+
+  @Label("Domain")
+  @Description("Type of the items of the equation")
+  private String domain;
+
+  @Label("Engine")
+  @Description("Class of the solved equation")
+  private Class<?> engine;
+
+  @Label("Size of A")
+  private int sizeA;
+
+  @Label("Size of B")
+  private int sizeB;
+
+  @Label("Size of C")
+  private int sizeC;
+
+  @Label("Degree of the First Solution")
+  @Description("Degree of the first solution enumerated, -1 if there is none")
+  private int firstDegree;
+
+  @Label("Solutions")
+  @Description("Number of solutions pulled from the iterator")
+  private long solutions;
+
+  @Label("Heads Expanded")
+  @Description("Number of search states expanded by the solver")
+  private long headsExpanded;
+
+  private transient boolean finished; // not recorded
+  private final transient FirstSolutionEvent first;
+
+  /**
+   * Starts the event of the enumeration of the solutions of the provided equation.
+   * @param equation the equation being solved
+   */
+  public EquationEvent(DefaultEquation<?, ?> equation) {
+    this.firstDegree = -1;
+    this.first = new FirstSolutionEvent(equation);
+    if (this.isEnabled()) {
+      this.domain = DomainRegistry.common(equation.a, equation.b, equation.c).getType().getName();
+      this.engine = equation.getClass();
+      this.sizeA = size(equation.a);
+      this.sizeB = size(equation.b);
+      this.sizeC = size(equation.c);
+    }
+    this.begin();
+  }
+
+  /**
+   * Returns the size of a structured item.
+   * @param item the item
+   * @return the size of a sequence, set, tuple or collection, -1 for any other item.
+   */
+  static int size(Object item) {
+    if (item instanceof Sequence)
+      return ((Sequence<?>) item).size();
+    else if (item instanceof ImmutableSet)
+      return ((ImmutableSet<?>) item).size();
+    else if (item instanceof Tuple)
+      return ((Tuple<?>) item).getSchema().size();
+    else if (item instanceof Collection)
+      return ((Collection<?>) item).size();
+    else
+      return -1;
+  }
+
+  /**
+   * Records a solution pulled from the iterator, the first one also ending the {@link FirstSolutionEvent}.
+   * @param degree the degree of the solution
+   */
+  public void solution(int degree) {
+    if (this.solutions++ == 0) {
+      this.firstDegree = degree;
+      this.first.finish(degree, this.headsExpanded);
+    }
+  }
+
+  /**
+   * Records the expansion of search states.
+   * @param count the number of expanded states
+   */
+  public void expanded(long count) {
+    this.headsExpanded += count;
+  }
+
+  /**
+   * Ends the event and commits it if enabled, the subsequent calls being ignored.
+   * An enumeration without solution also ends its {@link FirstSolutionEvent}.
+   */
+  public void finish() {
+    if (this.finished)
+      return;
+    this.finished = true;
+    this.first.finish(-1, this.headsExpanded);
+    this.end();
+    if (this.shouldCommit())
+      this.commit();
+  }
+}
@@ -0,0 +1,81 @@
+package io.github.vletard.analogy;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of the search of the first solution of a {@link DefaultEquation}, from the creation of its iterator
+ * until the iterator provides its first solution or reports that there is none. Unlike {@link EquationEvent}, it is recorded
+ * for every enumeration that reaches this point, including those abandoned after their first or best solutions.
+ * It is driven by the {@link EquationEvent} of the same enumeration.
+ * @author Vincent Letard
+ */
+@Name("io.github.vletard.analogy.FirstSolutionFound")
+@Label("Analogical Equation First Solution")
+@Category("Analogy")
+@Description("Search of the first solution of an analogical equation A : B :: C : ?")
+public class FirstSolutionEvent extends Event {
+
+  @Label("Domain")
+  @Description("Type of the items of the equation")
+  private String domain;
+
+  @Label("Engine")
+  @Description("Class of the solved equation")
+  private Class<?> engine;
+
+  @Label("Size of A")
+  private int sizeA;
+
+  @Label("Size of B")
+  private int sizeB;
+
+  @Label("Size of C")
+  private int sizeC;
+
+  @Label("Degree")
+  @Description("Degree of the first solution, -1 if there is none")
+  private int degree;
+
+  @Label("Heads Expanded")
+  @Description("Number of search states expanded by the solver until the first solution")
+  private long headsExpanded;
+
+  private transient boolean finished; // not recorded
+
+  /**
+   * Starts the event of the search of the first solution of the provided equation.
+   * @param equation the equation being solved
+   */
+  FirstSolutionEvent(DefaultEquation<?, ?> equation) {
+    this.degree = -1;
+    if (this.isEnabled()) {
+      this.domain = DomainRegistry.common(equation.a, equation.b, equation.c).getType().getName();
+      this.engine = equation.getClass();
+      this.sizeA = EquationEvent.size(equation.a);
+      this.sizeB = EquationEvent.size(equation.b);
+      this.sizeC = EquationEvent.size(equation.c);
+    }
+    this.begin();
+  }
+
+  /**
+   * Ends the event and commits it if enabled, the subsequent calls being ignored.
+   * @param degree the degree of the first solution, -1 if there is none
+   * @param headsExpanded the number of search states expanded so far
+   */
+  void finish(int degree, long headsExpanded) {
+    if (this.finished)
+      return;
+    this.finished = true;
+    this.end();
+    if (this.shouldCommit()) {
+      this.degree = degree;
+      this.headsExpanded = headsExpanded;
+      this.commit();
+    }
+  }
+}
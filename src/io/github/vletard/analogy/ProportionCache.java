@@ -0,0 +1,226 @@
+package io.github.vletard.analogy;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe and size-bounded memory of the validity of analogical proportions, shared by {@link DefaultProportion}
+ * and its subclasses once installed with {@link DefaultProportion#setCache(ProportionCache)}.
+ *
+ * The eight equivalent forms of a proportion (A : B :: C : D, C : D :: A : B, A : C :: B : D and their combinations,
+ * following the symmetry and the exchange of the means) are canonicalized into a single entry.
+ *
+ * Entries are held by two generations: new entries are stored in the current generation, and once it reaches half the
+ * capacity it becomes the previous generation, replacing the former one which is evicted. Entries found in the previous
+ * generation are promoted back to the current one, thus the recently used entries survive the eviction.
+ * Lookups and insertions never lock, only the rare generation swaps do.
+ * @author Vincent Letard
+ */
+public class ProportionCache {
+
+  /**
+   * Canonical quadruple of items, compared on their equality.
+   */
+  private static final class Quadruple {
+    private final Object a, b, c, d;
+    private final int hashCode;
+
+    private Quadruple(Object a, Object b, Object c, Object d, int hashCode) {
+      this.a = a;
+      this.b = b;
+      this.c = c;
+      this.d = d;
+      this.hashCode = hashCode;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Quadruple))
+        return false;
+      Quadruple other = (Quadruple) obj;
+      return this.hashCode == other.hashCode && equal(this.a, other.a) && equal(this.b, other.b)
+          && equal(this.c, other.c) && equal(this.d, other.d);
+    }
+
+    private static boolean equal(Object x, Object y) {
+      return (x == null) ? y == null : x.equals(y);
+    }
+  }
+
+  /**
+   * Positions of A, B, C and D in each of the 8 equivalent forms of a proportion.
+   */
+  private static final int[][] FORMS = new int[][] {
+    {0, 1, 2, 3}, {0, 2, 1, 3}, {1, 0, 3, 2}, {1, 3, 0, 2},
+    {2, 0, 3, 1}, {2, 3, 0, 1}, {3, 1, 2, 0}, {3, 2, 1, 0}
+  };
+
+  private final int capacity;
+  private volatile ConcurrentHashMap<Quadruple, Boolean> current, previous;
+  private final LongAdder hits, misses, evictions;
+
+  /**
+   * Constructs a new empty cache.
+   * @param capacity the maximum number of proportions held by this cache
+   */
+  public ProportionCache(int capacity) {
+    if (capacity < 2)
+      throw new IllegalArgumentException("The capacity of a proportion cache must be at least 2.");
+    this.capacity = capacity;
+    this.current = new ConcurrentHashMap<Quadruple, Boolean>();
+    this.previous = new ConcurrentHashMap<Quadruple, Boolean>();
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+  }
+
+  private static int hash(Object item) {
+    return (item == null) ? 0 : item.hashCode();
+  }
+
+  /**
+   * Builds the canonical form of a proportion: the equivalent form whose items have the lowest hash codes, in lexicographic order.
+   * Forms with colliding hash codes may map to different entries, which only costs duplicates.
+   */
+  private static Quadruple canonicalize(Object a, Object b, Object c, Object d) {
+    Object[] items = new Object[] {a, b, c, d};
+    int[] hashes = new int[] {hash(a), hash(b), hash(c), hash(d)};
+    int[] best = FORMS[0];
+    for (int f = 1; f < FORMS.length; f++) {
+      int[] form = FORMS[f];
+      for (int i = 0; i < 4; i++) {
+        int comparison = Integer.compare(hashes[form[i]], hashes[best[i]]);
+        if (comparison < 0)
+          best = form;
+        if (comparison != 0)
+          break;
+      }
+    }
+    int hashCode = 1;
+    for (int i = 0; i < 4; i++)
+      hashCode = 31 * hashCode + hashes[best[i]];
+    return new Quadruple(items[best[0]], items[best[1]], items[best[2]], items[best[3]], hashCode);
+  }
+
+  /**
+   * Returns the cached validity of the proportion A : B :: C : D, or of any of its equivalent forms.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param d item
+   * @return the validity of the proportion, or null if it is not cached.
+   */
+  public Boolean get(Object a, Object b, Object c, Object d) {
+    Quadruple key = canonicalize(a, b, c, d);
+    Boolean valid = this.current.get(key);
+    if (valid == null) {
+      valid = this.previous.get(key);
+      if (valid != null)
+        this.store(key, valid); // promoting the entry to the current generation
+    }
+    if (valid == null)
+      this.misses.increment();
+    else
+      this.hits.increment();
+    return valid;
+  }
+
+  /**
+   * Stores the validity of the proportion A : B :: C : D, which also stands for its equivalent forms.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param d item
+   * @param valid the validity of the proportion
+   */
+  public void put(Object a, Object b, Object c, Object d, boolean valid) {
+    this.store(canonicalize(a, b, c, d), valid);
+  }
+
+  private void store(Quadruple key, Boolean valid) {
+    ConcurrentHashMap<Quadruple, Boolean> generation = this.current;
+    generation.put(key, valid);
+    if (generation.size() >= this.capacity / 2) {
+      synchronized (this) {
+        if (this.current == generation) {
+          this.evictions.add(this.previous.size());
+          this.previous = generation;
+          this.current = new ConcurrentHashMap<Quadruple, Boolean>();
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes every entry of this cache, and resets its statistics.
+   */
+  public synchronized void clear() {
+    this.current = new ConcurrentHashMap<Quadruple, Boolean>();
+    this.previous = new ConcurrentHashMap<Quadruple, Boolean>();
+    this.hits.reset();
+    this.misses.reset();
+    this.evictions.reset();
+  }
+
+  /**
+   * Returns the approximate number of proportions held by this cache.
+   * @return the size of this cache.
+   */
+  public int size() {
+    return this.current.size() + this.previous.size();
+  }
+
+  /**
+   * Returns the maximum number of proportions held by this cache.
+   * @return the capacity of this cache.
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Returns the number of lookups that found a cached proportion.
+   * @return the number of hits.
+   */
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups that did not find a cached proportion.
+   * @return the number of misses.
+   */
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  /**
+   * Returns the number of entries evicted from this cache, counting the promoted entries that were evicted afterwards.
+   * @return the number of evictions.
+   */
+  public long getEvictions() {
+    return this.evictions.sum();
+  }
+
+  /**
+   * Returns the ratio of the lookups that found a cached proportion.
+   * @return the hit rate, 0 if no lookup was performed.
+   */
+  public double getHitRate() {
+    long hits = this.getHits(), total = hits + this.getMisses();
+    return (total == 0) ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "ProportionCache [size=" + this.size() + ", capacity=" + this.capacity + ", hits=" + this.getHits()
+        + ", misses=" + this.getMisses() + ", evictions=" + this.getEvictions() + "]";
+  }
+}
@@ -0,0 +1,83 @@
+package io.github.vletard.analogy;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of the check of a {@link DefaultProportion}, between items that are not checked as atomic ones.
+ * Proportions whose validity is found in the {@link ProportionCache} are not recorded.
+ * @author Vincent Letard
+ */
+@Name("io.github.vletard.analogy.ProportionChecked")
+@Label("Analogical Proportion Checked")
+@Category("Analogy")
+@Description("Check of an analogical proportion A : B :: C : D")
+public class ProportionEvent extends Event {
+
+  @Label("Domain")
+  @Description("Type of the items of the proportion")
+  private String domain;
+
+  @Label("Size of A")
+  private int sizeA;
+
+  @Label("Size of B")
+  private int sizeB;
+
+  @Label("Size of C")
+  private int sizeC;
+
+  @Label("Size of D")
+  private int sizeD;
+
+  @Label("Valid")
+  private boolean valid;
+
+  @Label("Degree")
+  @Description("Degree of the proportion, -1 if it is invalid or if the domain has no degree")
+  private int degree;
+
+  @Label("Heads Expanded")
+  @Description("Number of search states expanded by the check")
+  private long headsExpanded;
+
+  /**
+   * Starts the event of the check of the provided proportion.
+   * @param proportion the proportion being checked
+   */
+  public ProportionEvent(DefaultProportion<?> proportion) {
+    this.degree = -1;
+    if (this.isEnabled()) {
+      this.domain = DomainRegistry.common(proportion.A, proportion.B, proportion.C, proportion.D).getType().getName();
+      this.sizeA = EquationEvent.size(proportion.A);
+      this.sizeB = EquationEvent.size(proportion.B);
+      this.sizeC = EquationEvent.size(proportion.C);
+      this.sizeD = EquationEvent.size(proportion.D);
+    }
+    this.begin();
+  }
+
+  /**
+   * Records the expansion of a search state.
+   */
+  public void expanded() {
+    this.headsExpanded ++;
+  }
+
+  /**
+   * Ends the event and commits it if enabled.
+   * @param valid the validity of the proportion
+   * @param degree the degree of the proportion, -1 if it is invalid or has no degree
+   */
+  public void finish(boolean valid, int degree) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.valid = valid;
+      this.degree = degree;
+      this.commit();
+    }
+  }
+}
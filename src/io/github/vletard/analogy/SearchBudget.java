@@ -0,0 +1,183 @@
+package io.github.vletard.analogy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class bounds the work performed by the solvers while enumerating the solutions of an equation.
+ * It caps the number of expanded search states, the size of the search frontier and the wall-clock time,
+ * and it stops the search when the searching thread is interrupted.
+ *
+ * A budget is consumed by every search it is attached to (through {@link SolvingOptions#withBudget(SearchBudget)}),
+ * including the sub-equations of structured equations, thus a new budget is expected for each solving request.
+ * Once exhausted, a budget remains so: the solution iterators then end as if there were no more solutions,
+ * and {@link #getExhaustion()} tells why the enumeration was cut.
+ * @author Vincent Letard
+ */
+public class SearchBudget {
+
+  /**
+   * Value of a limit that does not constrain the search.
+   */
+  public static final long UNBOUNDED = Long.MAX_VALUE;
+
+  /**
+   * Budget that is never exhausted, and that is never checked by the solvers.
+   */
+  public static final SearchBudget UNLIMITED = new SearchBudget(UNBOUNDED, UNBOUNDED, UNBOUNDED, TimeUnit.NANOSECONDS, false);
+
+  private final long maxExpansions;
+  private final long maxFrontierSize;
+  private final long deadline;
+  private final boolean timed;
+  private final boolean limited;
+  private final AtomicLong expansions;
+  private final AtomicReference<BudgetExhaustion> exhaustion;
+
+  /**
+   * Budget consumed by this view, or null if this budget is not a view.
+   */
+  private final SearchBudget parent;
+
+  private SearchBudget(long maxExpansions, long maxFrontierSize, long timeout, TimeUnit unit, boolean limited) {
+    this.parent = null;
+    this.maxExpansions = maxExpansions;
+    this.maxFrontierSize = maxFrontierSize;
+    this.timed = (timeout != UNBOUNDED);
+    this.deadline = this.timed ? System.nanoTime() + unit.toNanos(timeout) : 0;
+    this.limited = limited;
+    this.expansions = new AtomicLong();
+    this.exhaustion = new AtomicReference<BudgetExhaustion>();
+  }
+
+  /**
+   * Constructs a new budget, its deadline being computed from the current time.
+   * Any limit set to {@link #UNBOUNDED} does not constrain the search, whereas interruptions are always checked.
+   * @param maxExpansions the maximum number of search states to be expanded
+   * @param maxFrontierSize the maximum number of search states waiting to be expanded at any time
+   * @param timeout the duration of the search
+   * @param unit the unit of the timeout
+   */
+  public SearchBudget(long maxExpansions, long maxFrontierSize, long timeout, TimeUnit unit) {
+    this(maxExpansions, maxFrontierSize, timeout, unit, true);
+  }
+
+  /**
+   * Constructs a new budget only limited in time.
+   * @param timeout the duration of the search
+   * @param unit the unit of the timeout
+   */
+  public SearchBudget(long timeout, TimeUnit unit) {
+    this(UNBOUNDED, UNBOUNDED, timeout, unit);
+  }
+
+  /**
+   * Constructs a view of the provided budget.
+   */
+  private SearchBudget(SearchBudget parent) {
+    this.parent = parent;
+    this.maxExpansions = UNBOUNDED;
+    this.maxFrontierSize = UNBOUNDED;
+    this.timed = false;
+    this.deadline = 0;
+    this.limited = parent.limited;
+    this.expansions = new AtomicLong();
+    this.exhaustion = new AtomicReference<BudgetExhaustion>();
+  }
+
+  /**
+   * Returns a view of this budget for one of the searches sharing it. The view consumes this budget and is exhausted with it,
+   * but only once the search checking the view notices it: its exhaustion tells whether that search in particular was cut,
+   * whereas this budget may have been exhausted by another search after that one ended.
+   * @return a new view of this budget, or this budget if it is {@link #UNLIMITED}.
+   */
+  public SearchBudget view() {
+    return this.limited ? new SearchBudget(this) : this;
+  }
+
+  private boolean exhaust(BudgetExhaustion reason) {
+    this.exhaustion.compareAndSet(null, reason);
+    return false;
+  }
+
+  /**
+   * Checks whether the search can go on, regarding the deadline and the interruption of the current thread.
+   * @return false if this budget is exhausted.
+   */
+  public boolean check() {
+    if (!this.limited)
+      return true;
+    if (this.exhaustion.get() != null)
+      return false;
+    if (this.parent != null)
+      return this.parent.check() || this.exhaust(this.parent.getExhaustion());
+    if (Thread.currentThread().isInterrupted())
+      return this.exhaust(BudgetExhaustion.INTERRUPTED);
+    if (this.timed && System.nanoTime() - this.deadline > 0)
+      return this.exhaust(BudgetExhaustion.DEADLINE);
+    return true;
+  }
+
+  /**
+   * Records the expansion of one search state, then checks whether the search can go on.
+   * @return false if this budget is exhausted.
+   */
+  public boolean expand() {
+    if (!this.limited)
+      return true;
+    if (this.parent != null) {
+      this.expansions.incrementAndGet();
+      return this.exhaustion.get() == null && (this.parent.expand() || this.exhaust(this.parent.getExhaustion()));
+    }
+    if (this.expansions.incrementAndGet() > this.maxExpansions)
+      return this.exhaust(BudgetExhaustion.EXPANSIONS);
+    return this.check();
+  }
+
+  /**
+   * Checks the current size of the frontier of a search against this budget.
+   * @param size the number of search states waiting to be expanded
+   * @return false if this budget is exhausted.
+   */
+  public boolean checkFrontier(long size) {
+    if (!this.limited)
+      return true;
+    if (this.parent != null)
+      return this.exhaustion.get() == null && (this.parent.checkFrontier(size) || this.exhaust(this.parent.getExhaustion()));
+    if (size > this.maxFrontierSize)
+      return this.exhaust(BudgetExhaustion.FRONTIER);
+    return this.exhaustion.get() == null;
+  }
+
+  /**
+   * Returns whether this budget is exhausted, in which case the enumerations it was attached to may be incomplete.
+   * @return true if this budget is exhausted.
+   */
+  public boolean isExhausted() {
+    return this.exhaustion.get() != null;
+  }
+
+  /**
+   * Returns the reason why this budget was first exhausted.
+   * @return the exhaustion reason, or null if this budget is not exhausted.
+   */
+  public BudgetExhaustion getExhaustion() {
+    return this.exhaustion.get();
+  }
+
+  /**
+   * Returns the number of search states expanded so far against this budget, or against this view only.
+   * @return the number of expansions.
+   */
+  public long getExpansions() {
+    return this.expansions.get();
+  }
+
+  @Override
+  public String toString() {
+    if (!this.limited)
+      return "SearchBudget [unlimited]";
+    return "SearchBudget [expansions=" + this.expansions.get() + ", exhaustion=" + this.exhaustion.get() + "]";
+  }
+}
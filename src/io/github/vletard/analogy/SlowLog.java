@@ -0,0 +1,351 @@
+package io.github.vletard.analogy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Threshold-based log of the slow equations and proportions.
+ * The equations solved and the proportions checked through this log are timed, and those exceeding the threshold are
+ * captured into a file of the log directory: the items (which must be {@link Serializable}), the identity of the rebuilder,
+ * the degree bounds of the options, the measured time and the solver statistics. Captures are replayed by {@link SlowLogReplay},
+ * against any engine, such that they make a corpus of the inputs to be optimized.
+ *
+ * The time of an equation is the time spent in its iterator, excluding the time the caller spends between solutions.
+ * An equation whose first solution alone exceeds the threshold is captured as soon as that solution is found, such that callers
+ * only pulling the best solutions are captured as well; otherwise the equation is captured at the end of the enumeration of its
+ * solutions if the whole enumeration exceeds the threshold, and enumerations abandoned before their end are not captured.
+ * Captures are written by the provided executor, out of the solving thread, and failures to write them never disturb the solving,
+ * they are only counted.
+ * @author Vincent Letard
+ */
+public class SlowLog {
+
+  /**
+   * Suffix of the names of the capture files.
+   */
+  public static final String SUFFIX = ".capture";
+
+  /**
+   * Serialized inputs of a slow equation or proportion.
+   */
+  public static final class Capture implements Serializable {
+    private static final long serialVersionUID = 4470127730316938852L;
+
+    private final Object[] items;
+    private final String engine;
+    private final String rebuilder;
+    private final int maxDegree, maxDistinctDegrees;
+    private final long elapsedNanos;
+    private final long results;
+    private final boolean complete;
+    private final String stats;
+
+    private Capture(Object[] items, String engine, String rebuilder, SolvingOptions options, long elapsedNanos, long results, boolean complete,
+        SolverStats stats) {
+      this.items = items;
+      this.engine = engine;
+      this.rebuilder = rebuilder;
+      this.maxDegree = options.getMaxDegree();
+      this.maxDistinctDegrees = options.getMaxDistinctDegrees();
+      this.elapsedNanos = elapsedNanos;
+      this.results = results;
+      this.complete = complete;
+      this.stats = stats.isEnabled() ? stats.toString() : null;
+    }
+
+    /**
+     * Returns whether this capture is an equation A : B :: C : ?, rather than a proportion A : B :: C : D.
+     * @return true for an equation.
+     */
+    public boolean isEquation() {
+      return this.items.length == 3;
+    }
+
+    /**
+     * Returns the captured items.
+     * @return A, B and C for an equation, A, B, C and D for a proportion.
+     */
+    public Object[] getItems() {
+      return this.items.clone();
+    }
+
+    /**
+     * Returns the class name of the captured equation or proportion.
+     * @return the name of the engine.
+     */
+    public String getEngine() {
+      return this.engine;
+    }
+
+    /**
+     * Returns the class name of the rebuilder of the captured equation, which is not serialized itself.
+     * @return the name of the rebuilder class, or null if there was none.
+     */
+    public String getRebuilder() {
+      return this.rebuilder;
+    }
+
+    /**
+     * Returns the options of the captured equation, restricted to its degree bounds.
+     * @return the solving options to replay the equation.
+     */
+    public SolvingOptions getOptions() {
+      return SolvingOptions.DEFAULT.withMaxDegree(this.maxDegree).withMaxDistinctDegrees(this.maxDistinctDegrees);
+    }
+
+    /**
+     * Returns the time measured when the equation or proportion was captured.
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+      return this.elapsedNanos;
+    }
+
+    /**
+     * Returns the outcome of the captured equation or proportion.
+     * @return the number of solutions of an equation, 1 for a valid proportion and 0 for an invalid one.
+     */
+    public long getResults() {
+      return this.results;
+    }
+
+    /**
+     * Returns whether the captured equation was timed until the end of its enumeration, rather than until its first solution.
+     * @return true for an equation captured at the end of its enumeration, and for a proportion.
+     */
+    public boolean isComplete() {
+      return this.complete;
+    }
+
+    /**
+     * Returns the solver statistics at capture time, which may include the work of other searches sharing them.
+     * @return the printed statistics, or null if they were disabled.
+     */
+    public String getStats() {
+      return this.stats;
+    }
+
+    @Override
+    public String toString() {
+      return "Capture [items=" + Arrays.toString(this.items) + ", engine=" + this.engine + ", rebuilder=" + this.rebuilder
+          + ", elapsed=" + this.elapsedNanos + "ns, results=" + this.results + (this.complete ? "" : " (first solution)") + "]";
+    }
+  }
+
+  /**
+   * Executor writing the captures of the logs constructed without one, started on first use.
+   */
+  private static volatile ExecutorService defaultWriter = null;
+
+  private final Path directory;
+  private final long thresholdNanos;
+  private final Executor writer;
+  private final AtomicLong sequence, captured, failures;
+
+  /**
+   * Constructs a new slow log, writing its captures on a background daemon thread shared by such logs.
+   * @param directory the directory in which the captures are written, which is created if necessary
+   * @param threshold the time beyond which an equation or proportion is captured
+   * @param unit the unit of the threshold
+   */
+  public SlowLog(Path directory, long threshold, TimeUnit unit) {
+    this(directory, threshold, unit, defaultWriter());
+  }
+
+  /**
+   * Constructs a new slow log.
+   * @param directory the directory in which the captures are written, which is created if necessary
+   * @param threshold the time beyond which an equation or proportion is captured
+   * @param unit the unit of the threshold
+   * @param writer the executor writing the captures
+   */
+  public SlowLog(Path directory, long threshold, TimeUnit unit, Executor writer) {
+    this.directory = directory;
+    this.writer = writer;
+    this.thresholdNanos = unit.toNanos(threshold);
+    this.sequence = new AtomicLong();
+    this.captured = new AtomicLong();
+    this.failures = new AtomicLong();
+  }
+
+  private static ExecutorService defaultWriter() {
+    if (defaultWriter == null) {
+      synchronized (SlowLog.class) {
+        if (defaultWriter == null)
+          defaultWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+              Thread thread = new Thread(task, "analogy-slow-log");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      }
+    }
+    return defaultWriter;
+  }
+
+  /**
+   * Returns the solutions of the provided equation, capturing it if its first solution, or else the enumeration of its solutions,
+   * is slower than the threshold.
+   * @param <T> the type of the items of the equation
+   * @param <S> the type of the solutions
+   * @param equation the equation to be solved
+   * @return an Iterable providing the solutions of the equation.
+   */
+  public <T, S extends Solution<T>> Iterable<S> solutions(final DefaultEquation<T, S> equation) {
+    return new Iterable<S>() {
+      @Override
+      public Iterator<S> iterator() {
+        long start = System.nanoTime();
+        final Iterator<S> it = equation.iterator();
+        final long created = System.nanoTime() - start;
+        return new Iterator<S>() {
+          private long solutions = 0;
+          private long elapsed = created;
+          private boolean captured = false;
+
+          @Override
+          public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext = it.hasNext();
+            this.elapsed += System.nanoTime() - start;
+            if (hasNext) {
+              if (this.solutions == 0 && !this.captured && this.elapsed >= SlowLog.this.thresholdNanos) {
+                this.captured = true; // the caller may never pull the next solutions
+                this.capture(1, false);
+              }
+              return true;
+            }
+            if (!this.captured) {
+              this.captured = true;
+              if (this.elapsed >= SlowLog.this.thresholdNanos)
+                this.capture(this.solutions, true);
+            }
+            return false;
+          }
+
+          private void capture(long results, boolean complete) {
+            SubtypeRebuilder<?, ?> rebuilder = equation.getRebuilder();
+            SlowLog.this.write(new Capture(new Object[] {equation.a, equation.b, equation.c}, equation.getClass().getName(),
+                (rebuilder == null) ? null : rebuilder.getClass().getName(), equation.getOptions(), this.elapsed, results, complete,
+                equation.getOptions().getStats()));
+          }
+
+          @Override
+          public S next() {
+            if (!this.hasNext())
+              throw new NoSuchElementException();
+            this.solutions ++;
+            long start = System.nanoTime();
+            S solution = it.next();
+            this.elapsed += System.nanoTime() - start;
+            return solution;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Checks the provided proportion, capturing it if the check is slower than the threshold.
+   * @param proportion the proportion to be checked
+   * @return true if the proportion is valid.
+   */
+  public boolean isValid(DefaultProportion<?> proportion) {
+    long start = System.nanoTime();
+    boolean valid = proportion.isValid();
+    long elapsed = System.nanoTime() - start;
+    if (elapsed >= this.thresholdNanos)
+      this.write(new Capture(new Object[] {proportion.A, proportion.B, proportion.C, proportion.D}, proportion.getClass().getName(),
+          null, SolvingOptions.DEFAULT, elapsed, valid ? 1 : 0, true, DefaultProportion.getStats()));
+    return valid;
+  }
+
+  private void write(final Capture capture) {
+    try {
+      this.writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          SlowLog.this.store(capture);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      this.failures.incrementAndGet();
+    }
+  }
+
+  private void store(Capture capture) {
+    String kind = capture.isEquation() ? "equation-" : "proportion-";
+    Path file = this.directory.resolve(kind + System.currentTimeMillis() + "-" + this.sequence.incrementAndGet() + SUFFIX);
+    try {
+      Files.createDirectories(this.directory);
+      try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))) {
+        out.writeObject(capture);
+      }
+      this.captured.incrementAndGet();
+    } catch (IOException e) { // the items may not be serializable
+      this.failures.incrementAndGet();
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  /**
+   * Reads a capture file.
+   * @param file the capture file
+   * @return the capture.
+   * @throws IOException if the file cannot be read or does not hold a capture.
+   */
+  public static Capture read(Path file) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))))) {
+      return (Capture) in.readObject();
+    } catch (ClassNotFoundException | ClassCastException e) {
+      throw new IOException("The file " + file + " does not hold a capture.", e);
+    }
+  }
+
+  /**
+   * Returns the directory in which the captures are written.
+   * @return the capture directory.
+   */
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Returns the number of captures written.
+   * @return the number of captures.
+   */
+  public long getCaptured() {
+    return this.captured.get();
+  }
+
+  /**
+   * Returns the number of captures that could not be written.
+   * @return the number of failures.
+   */
+  public long getFailures() {
+    return this.failures.get();
+  }
+}
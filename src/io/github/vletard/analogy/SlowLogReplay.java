@@ -0,0 +1,153 @@
+package io.github.vletard.analogy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.github.vletard.analogy.sequence.LatticeSequenceEquation;
+import io.github.vletard.analogy.sequence.ParallelSequenceEquation;
+import io.github.vletard.analogy.sequence.Sequence;
+import io.github.vletard.analogy.sequence.SequenceEquation;
+
+/**
+ * Replays the captures of a {@link SlowLog} and reports their timing.
+ * Equations can be replayed against the engine of their domain, or against one of the sequence engines;
+ * solutions are built as the base type of the items, the captured rebuilders not being serialized.
+ * The lattice engines enumerate every factorization whereas the A* engine skips some by fast forwarding (see {@link LatticeSequenceEquation}),
+ * thus a replay on another engine than the captured one may report a different number of results.
+ *
+ * Usage: {@code java io.github.vletard.analogy.SlowLogReplay [-engine domain|astar|lattice|parallel] [-runs N] <capture file or directory>...}
+ * @author Vincent Letard
+ */
+public class SlowLogReplay {
+
+  /**
+   * Engines available to replay the captured equations.
+   */
+  public enum Engine {
+    /**
+     * Engine of the domain of the items, as selected by {@link DefaultEquation#factory(Object, Object, Object, SolvingOptions)}.
+     */
+    DOMAIN,
+    /**
+     * A* search of {@link SequenceEquation}, for sequences only.
+     */
+    ASTAR,
+    /**
+     * Lattice of {@link LatticeSequenceEquation}, for sequences only.
+     */
+    LATTICE,
+    /**
+     * Parallel lattice of {@link ParallelSequenceEquation}, for sequences only.
+     */
+    PARALLEL
+  }
+
+  private SlowLogReplay() {
+  }
+
+  /**
+   * Replays a capture once, up to the first solution of an equation captured at its first solution.
+   * @param capture the capture to be replayed
+   * @param engine the engine solving a captured equation, ignored for proportions
+   * @return the number of solutions of an equation (at most 1 if it was captured at its first solution), 1 for a valid proportion
+   * and 0 for an invalid one.
+   * @throws IllegalArgumentException if the engine does not apply to the captured items.
+   */
+  @SuppressWarnings("unchecked")
+  public static long replay(SlowLog.Capture capture, Engine engine) {
+    Object[] items = capture.getItems();
+    if (!capture.isEquation())
+      return new DefaultProportion<Object>(items[0], items[1], items[2], items[3]).isValid() ? 1 : 0;
+
+    DefaultEquation<?, ?> equation;
+    if (engine == Engine.DOMAIN)
+      equation = DefaultEquation.factory(items[0], items[1], items[2], capture.getOptions());
+    else {
+      for (Object item: items)
+        if (!(item instanceof Sequence))
+          throw new IllegalArgumentException("The " + engine + " engine only solves sequences.");
+      Sequence<Object> a = (Sequence<Object>) items[0], b = (Sequence<Object>) items[1], c = (Sequence<Object>) items[2];
+      SubtypeRebuilder<Sequence<Object>, Sequence<Object>> rebuilder = SubtypeRebuilder.identity();
+      switch (engine) {
+      case ASTAR : equation = new SequenceEquation<Object, Sequence<Object>>(a, b, c, rebuilder, capture.getOptions()); break;
+      case LATTICE : equation = new LatticeSequenceEquation<Object, Sequence<Object>>(a, b, c, rebuilder, false, capture.getOptions()); break;
+      case PARALLEL : equation = new ParallelSequenceEquation<Object, Sequence<Object>>(a, b, c, rebuilder, false, capture.getOptions(), ForkJoinPool.commonPool()); break;
+      default : throw new IllegalArgumentException("Unknown engine " + engine + ".");
+      }
+    }
+    long solutions = 0;
+    for (Object solution: equation) {
+      assert(solution != null);
+      solutions ++;
+      if (!capture.isComplete() && solutions == capture.getResults())
+        break; // only the first solution was timed
+    }
+    return solutions;
+  }
+
+  private static void collect(Path path, List<Path> files) throws IOException {
+    if (Files.isDirectory(path)) {
+      try (Stream<Path> children = Files.list(path)) {
+        for (Path child: children.sorted().collect(Collectors.toList()))
+          if (child.toString().endsWith(SlowLog.SUFFIX))
+            files.add(child);
+      }
+    }
+    else
+      files.add(path);
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%.3fms", nanos / 1e6);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Engine engine = Engine.DOMAIN;
+    int runs = 5;
+    List<Path> files = new ArrayList<Path>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-engine") && i + 1 < args.length)
+        engine = Engine.valueOf(args[++i].toUpperCase());
+      else if (args[i].equals("-runs") && i + 1 < args.length)
+        runs = Integer.parseInt(args[++i]);
+      else
+        collect(Paths.get(args[i]), files);
+    }
+    if (files.isEmpty() || runs < 1) {
+      System.err.println("Usage: SlowLogReplay [-engine domain|astar|lattice|parallel] [-runs N] <capture file or directory>...");
+      System.exit(1);
+    }
+
+    for (Path file: files) {
+      SlowLog.Capture capture = SlowLog.read(file);
+      StringBuilder report = new StringBuilder(file.getFileName().toString());
+      report.append(capture.isEquation() ? " equation " + engine.name().toLowerCase() : " proportion");
+      report.append(capture.isComplete() ? " captured=" : " first solution captured=").append(millis(capture.getElapsedNanos()));
+      try {
+        long[] times = new long[runs];
+        long results = SlowLogReplay.replay(capture, engine); // warm-up run
+        for (int run = 0; run < runs; run++) {
+          long start = System.nanoTime();
+          SlowLogReplay.replay(capture, engine);
+          times[run] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        report.append(" min=").append(millis(times[0])).append(" median=").append(millis(times[runs / 2]));
+        report.append(" results=").append(results);
+        if (results != capture.getResults())
+          report.append(" (captured ").append(capture.getResults()).append(" by ").append(capture.getEngine()).append(")");
+      } catch (IllegalArgumentException e) {
+        report.append(" skipped: ").append(e.getMessage());
+      }
+      System.out.println(report);
+    }
+  }
+}
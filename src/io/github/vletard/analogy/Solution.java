@@ -19,6 +19,15 @@ public abstract class Solution<T> {
 
   public abstract Relation getStraightRelation();
   public abstract Relation getCrossedRelation();
+
+  /**
+   * Returns this solution as a solution of the dual equation (A : C :: B : ?), with the same content and degree
+   * and its straight and crossed relations exchanged. Solution classes that do not override this method have no dual form.
+   * @return a solution of the same class as this one, or null if this solution has no dual form.
+   */
+  public Solution<T> dual() {
+    return null;
+  }
   
   @Override
   public String toString() {
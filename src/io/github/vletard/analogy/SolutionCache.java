@@ -0,0 +1,344 @@
+package io.github.vletard.analogy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in cache of the solutions of {@link DefaultEquation}s solved repeatedly.
+ * Each entry remembers the prefix of the solutions enumerated so far, in ascending order of degree, and keeps the suspended
+ * iterator of the search: later iterations replay the cached solutions and only resume the search when more are requested.
+ *
+ * An equation and its {@link DefaultEquation#dual()} share the same entry, the solutions of the dual equation being
+ * replayed as their {@link Solution#dual()}, of the same class with the straight and crossed relations exchanged.
+ * Solutions without a dual form (custom solution classes may not provide one) cannot be shared that way: the first solution
+ * of the entry is then checked, and the dual equation gets a separate entry of its own orientation.
+ * Entries are identified by the class of the equation, its items and its degree bounds, the equations of the same class
+ * being expected to use equivalent rebuilders. Equations with a limited {@link SearchBudget} are never cached,
+ * since their enumeration may be truncated.
+ *
+ * The total number of cached solutions is bounded: beyond it, the least recently used entries are evicted.
+ * Iterators that are already replaying an evicted entry remain valid.
+ * @author Vincent Letard
+ */
+public class SolutionCache {
+
+  /**
+   * Identity of the equations sharing an entry: B and C are stored in a canonical order.
+   */
+  private static final class Key {
+    private final Class<?> type;
+    private final Object a, b, c;
+    private final int maxDegree, maxDistinctDegrees;
+    private final int hashCode;
+
+    private Key(DefaultEquation<?, ?> equation, boolean dual) {
+      this.type = equation.getClass();
+      this.a = equation.a;
+      this.b = dual ? equation.c : equation.b;
+      this.c = dual ? equation.b : equation.c;
+      this.maxDegree = equation.getOptions().getMaxDegree();
+      this.maxDistinctDegrees = equation.getOptions().getMaxDistinctDegrees();
+      final int prime = 31;
+      int result = this.type.hashCode();
+      result = prime * result + hash(this.a);
+      result = prime * result + hash(this.b);
+      result = prime * result + hash(this.c);
+      result = prime * result + this.maxDegree;
+      result = prime * result + this.maxDistinctDegrees;
+      this.hashCode = result;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return this.hashCode == other.hashCode && this.type == other.type && this.maxDegree == other.maxDegree
+          && this.maxDistinctDegrees == other.maxDistinctDegrees
+          && equal(this.a, other.a) && equal(this.b, other.b) && equal(this.c, other.c);
+    }
+
+    private static int hash(Object item) {
+      return (item == null) ? 0 : item.hashCode();
+    }
+
+    private static boolean equal(Object x, Object y) {
+      return (x == null) ? y == null : x.equals(y);
+    }
+  }
+
+  /**
+   * Cached prefix of the solutions of an equation, along with the suspended search.
+   */
+  private final class Entry<S extends Solution<?>> {
+    private final ArrayList<S> prefix;
+    private Iterator<S> search;
+    private volatile boolean evicted;
+    private int cached; // guarded by the cache
+
+    private Entry(Iterator<S> search) {
+      this.prefix = new ArrayList<S>();
+      this.search = search;
+      this.evicted = false;
+    }
+
+    /**
+     * Returns the solution at the provided index, resuming the search if it is not cached yet.
+     * @return the solution, or null if the equation has no more solutions.
+     */
+    private synchronized S get(int index) {
+      if (index < this.prefix.size()) {
+        SolutionCache.this.replayed.increment();
+        return this.prefix.get(index);
+      }
+      assert(index == this.prefix.size());
+      if (this.search == null)
+        return null;
+      if (!this.search.hasNext()) {
+        this.search = null; // releasing the search structures
+        return null;
+      }
+      S solution = this.search.next();
+      this.prefix.add(solution);
+      SolutionCache.this.computed.increment();
+      if (!this.evicted)
+        SolutionCache.this.grow(this);
+      return solution;
+    }
+  }
+
+  private final long maxSolutions;
+  private final LinkedHashMap<Key, Entry<?>> entries;
+  private long cachedSolutions;
+  private final LongAdder hits, misses, evictions, replayed, computed;
+
+  /**
+   * Constructs a new empty cache.
+   * @param maxSolutions the maximum number of solutions held by all the entries of this cache
+   */
+  public SolutionCache(long maxSolutions) {
+    if (maxSolutions < 1)
+      throw new IllegalArgumentException("The capacity of a solution cache must be positive.");
+    this.maxSolutions = maxSolutions;
+    this.entries = new LinkedHashMap<Key, Entry<?>>(16, 0.75f, true);
+    this.cachedSolutions = 0;
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.replayed = new LongAdder();
+    this.computed = new LongAdder();
+  }
+
+  /**
+   * Checks whether the entry of the provided equation is stored under its dual orientation.
+   */
+  private static boolean isDualOrientation(DefaultEquation<?, ?> equation) {
+    int hashB = (equation.b == null) ? 0 : equation.b.hashCode();
+    int hashC = (equation.c == null) ? 0 : equation.c.hashCode();
+    return hashC < hashB;
+  }
+
+  /**
+   * Returns the entry of the provided equation, creating it if necessary.
+   * The search of a new entry is created outside of the lock of this cache, which is only held to publish the entry.
+   */
+  @SuppressWarnings("unchecked")
+  private <T, S extends Solution<T>> Entry<S> lookup(DefaultEquation<T, S> equation, boolean dual) {
+    Key key = new Key(equation, dual);
+    synchronized (this) {
+      Entry<S> entry = (Entry<S>) this.entries.get(key);
+      if (entry != null) {
+        this.hits.increment();
+        return entry;
+      }
+    }
+    DefaultEquation<T, S> canonical = dual ? equation.dual() : equation;
+    Entry<S> created = new Entry<S>(canonical.iterator());
+    synchronized (this) {
+      Entry<S> entry = (Entry<S>) this.entries.get(key);
+      if (entry != null) { // published by a concurrent lookup in the meantime
+        this.hits.increment();
+        return entry;
+      }
+      this.misses.increment();
+      this.entries.put(key, created);
+      return created;
+    }
+  }
+
+  /**
+   * Accounts for a new solution in an entry, evicting the least recently used entries beyond the capacity.
+   */
+  private synchronized void grow(Entry<?> grown) {
+    if (grown.evicted)
+      return;
+    this.cachedSolutions ++;
+    grown.cached ++;
+    Iterator<Entry<?>> it = this.entries.values().iterator();
+    while (this.cachedSolutions > this.maxSolutions && it.hasNext()) {
+      Entry<?> entry = it.next();
+      if (entry == grown)
+        continue;
+      it.remove();
+      entry.evicted = true;
+      this.cachedSolutions -= entry.cached;
+      this.evictions.increment();
+    }
+  }
+
+  /**
+   * Returns the solutions of the provided equation, replaying the cached ones and resuming the search on demand.
+   * The solutions of an equation whose options have a limited search budget are not cached.
+   * @param <T> the type of the items of the equation
+   * @param <S> the type of the solutions of the equation
+   * @param equation the equation to be solved
+   * @return an Iterable providing the solutions of the equation in ascending order of degree.
+   */
+  public <T, S extends Solution<T>> Iterable<S> solutions(final DefaultEquation<T, S> equation) {
+    if (equation.getOptions().getBudget() != SearchBudget.UNLIMITED)
+      return equation;
+    final boolean dual = isDualOrientation(equation);
+    return new Iterable<S>() {
+      @Override
+      public Iterator<S> iterator() {
+        return new Iterator<S>() {
+          private Entry<S> entry = null;
+          private boolean replayedAsDual = dual;
+          private int index = 0;
+          private S next = null;
+
+          /**
+           * Looks the entry up on first use, falling back to a separate entry when the shared solutions have no dual form,
+           * which is expected to hold for every solution of the equation if it holds for the first one.
+           */
+          private void open() {
+            this.entry = SolutionCache.this.lookup(equation, dual);
+            if (dual) {
+              S first = this.entry.get(0);
+              if (first != null && first.dual() == null) {
+                this.entry = SolutionCache.this.lookup(equation, false); // distinct from the shared keys, whose B never hashes higher than C
+                this.replayedAsDual = false;
+              }
+            }
+          }
+
+          @Override
+          public boolean hasNext() {
+            if (this.entry == null)
+              this.open();
+            if (this.next == null)
+              this.next = this.entry.get(this.index);
+            return this.next != null;
+          }
+
+          @SuppressWarnings("unchecked")
+          @Override
+          public S next() {
+            if (!this.hasNext())
+              throw new NoSuchElementException();
+            S solution = this.next;
+            this.next = null;
+            this.index ++;
+            return this.replayedAsDual ? (S) solution.dual() : solution; // the dual of a solution is of the same class
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Removes every entry of this cache, and resets its statistics.
+   */
+  public synchronized void clear() {
+    for (Entry<?> entry: this.entries.values())
+      entry.evicted = true;
+    this.entries.clear();
+    this.cachedSolutions = 0;
+    this.hits.reset();
+    this.misses.reset();
+    this.evictions.reset();
+    this.replayed.reset();
+    this.computed.reset();
+  }
+
+  /**
+   * Returns the number of equations held by this cache.
+   * @return the number of entries.
+   */
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Returns the number of solutions held by this cache.
+   * @return the number of cached solutions.
+   */
+  public synchronized long getCachedSolutions() {
+    return this.cachedSolutions;
+  }
+
+  /**
+   * Returns the number of iterations that found the entry of their equation.
+   * @return the number of hits.
+   */
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Returns the number of iterations that started a new search.
+   * @return the number of misses.
+   */
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  /**
+   * Returns the number of evicted entries.
+   * @return the number of evictions.
+   */
+  public long getEvictions() {
+    return this.evictions.sum();
+  }
+
+  /**
+   * Returns the number of solutions replayed from the cache.
+   * @return the number of replayed solutions.
+   */
+  public long getReplayedSolutions() {
+    return this.replayed.sum();
+  }
+
+  /**
+   * Returns the number of solutions computed by resuming a search.
+   * @return the number of computed solutions.
+   */
+  public long getComputedSolutions() {
+    return this.computed.sum();
+  }
+
+  /**
+   * Returns the ratio of the iterations that found the entry of their equation.
+   * @return the hit rate, 0 if no iteration was started.
+   */
+  public double getHitRate() {
+    long hits = this.getHits(), total = hits + this.getMisses();
+    return (total == 0) ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "SolutionCache [entries=" + this.size() + ", solutions=" + this.getCachedSolutions() + "/" + this.maxSolutions
+        + ", hits=" + this.getHits() + ", misses=" + this.getMisses() + ", evictions=" + this.getEvictions() + "]";
+  }
+}
@@ -0,0 +1,204 @@
+package io.github.vletard.analogy;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Flow.Publisher} of the solutions of an equation, searching them on demand.
+ * Each subscription runs its own enumeration of the solutions, in ascending order of degree, on the provided executor:
+ * the search only advances while the subscriber has requested more solutions than it received, so that no thread is blocked
+ * waiting for the subscriber, nor the subscriber waiting for a thread blocked in the search.
+ *
+ * A subscription delivers at most a batch of solutions per task before handing its worker over to the other subscriptions,
+ * which lets many concurrent subscriptions share a small pool. Cancelling a subscription releases its search state (the frontier
+ * of a sequence equation, for instance) immediately if no task of the subscription is running, or else as soon as the running task
+ * finds its next solution; a {@link SearchBudget} in the options of the equation bounds the time this takes.
+ * @author Vincent Letard
+ *
+ * @param <T> the type of the items of the equation
+ * @param <S> the type of the solutions
+ */
+public class SolutionPublisher<T, S extends Solution<T>> implements Flow.Publisher<S> {
+
+  /**
+   * Default number of solutions delivered by a task before it hands its worker over.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 16;
+
+  private final DefaultEquation<T, S> equation;
+  private final Executor executor;
+  private final int batchSize;
+
+  /**
+   * Constructs a new publisher delivering the solutions by batches of {@link #DEFAULT_BATCH_SIZE}.
+   * @param equation the equation whose solutions are published
+   * @param executor the executor running the searches
+   */
+  public SolutionPublisher(DefaultEquation<T, S> equation, Executor executor) {
+    this(equation, executor, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Constructs a new publisher.
+   * @param equation the equation whose solutions are published
+   * @param executor the executor running the searches
+   * @param batchSize the maximum number of solutions delivered by a task before it hands its worker over
+   */
+  public SolutionPublisher(DefaultEquation<T, S> equation, Executor executor, int batchSize) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("The batch size must be positive.");
+    this.equation = equation;
+    this.executor = executor;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super S> subscriber) {
+    if (subscriber == null)
+      throw new NullPointerException();
+    SolutionSubscription subscription = new SolutionSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  /**
+   * Subscription driving one enumeration of the solutions.
+   * The tasks of a subscription never run concurrently: the work counter is only incremented by the signals
+   * (requests and cancellation), and the single task owning it keeps running until it has accounted for every signal.
+   */
+  private class SolutionSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super S> subscriber;
+    private final AtomicLong demand;
+    private final AtomicInteger work;
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+
+    /**
+     * Solution iterator of this subscription, created by its first task and only accessed by the task owning the work counter.
+     */
+    private Iterator<S> it;
+    private boolean terminated;
+
+    private SolutionSubscription(Flow.Subscriber<? super S> subscriber) {
+      this.subscriber = subscriber;
+      this.demand = new AtomicLong();
+      this.work = new AtomicInteger();
+      this.cancelled = false;
+      this.invalidRequest = null;
+      this.it = null;
+      this.terminated = false;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0)
+        this.invalidRequest = new IllegalArgumentException("The number of requested solutions must be positive, got " + n + ".");
+      else {
+        long current, updated;
+        do {
+          current = this.demand.get();
+          updated = (current > Long.MAX_VALUE - n) ? Long.MAX_VALUE : current + n;
+        } while (!this.demand.compareAndSet(current, updated));
+      }
+      if (this.work.getAndIncrement() == 0)
+        this.execute();
+    }
+
+    @Override
+    public void cancel() {
+      this.cancelled = true;
+      if (this.work.getAndIncrement() == 0)
+        this.release(); // no task is running, and none will ever run again
+    }
+
+    private void execute() {
+      try {
+        SolutionPublisher.this.executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        this.terminate();
+        this.subscriber.onError(e);
+      }
+    }
+
+    /**
+     * Ends the enumeration, the work counter being kept by the current task so that no other task is ever started.
+     */
+    private void terminate() {
+      this.terminated = true;
+      this.release();
+    }
+
+    private void release() {
+      this.it = null;
+    }
+
+    @Override
+    public void run() {
+      int missed = this.work.get();
+      int delivered = 0;
+      while (true) {
+        if (this.terminated)
+          return;
+        if (this.cancelled) {
+          this.terminate();
+          return;
+        }
+        if (this.invalidRequest != null) {
+          this.terminate();
+          this.subscriber.onError(this.invalidRequest);
+          return;
+        }
+        while (this.demand.get() > 0 && !this.cancelled) {
+          if (delivered == SolutionPublisher.this.batchSize) {
+            this.execute(); // hands the worker over, this subscription keeping its work counter
+            return;
+          }
+          if (!this.deliver())
+            return;
+          delivered ++;
+        }
+        if (this.cancelled) {
+          this.terminate();
+          return;
+        }
+        missed = this.work.addAndGet(-missed);
+        if (missed == 0)
+          return;
+      }
+    }
+
+    /**
+     * Searches and delivers the next solution, or completes the subscription.
+     * @return false if the subscription has been terminated.
+     */
+    private boolean deliver() {
+      S solution;
+      try {
+        if (this.it == null)
+          this.it = SolutionPublisher.this.equation.iterator();
+        if (!this.it.hasNext()) {
+          this.terminate();
+          this.subscriber.onComplete();
+          return false;
+        }
+        solution = this.it.next();
+      } catch (RuntimeException | Error e) {
+        this.terminate();
+        this.subscriber.onError(e);
+        return false;
+      }
+      if (this.demand.get() != Long.MAX_VALUE) // an unbounded demand is never decremented
+        this.demand.decrementAndGet();
+      this.subscriber.onNext(solution);
+      return true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SolutionPublisher [equation=" + this.equation.getClass().getSimpleName() + ", batchSize=" + this.batchSize + "]";
+  }
+}
@@ -0,0 +1,302 @@
+package io.github.vletard.analogy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects statistics about the work performed by the solvers, to tell why a search is slow.
+ * It counts the search states (reading heads or lattice nodes) created, expanded, merged as duplicates or pruned
+ * on their degree, the steps skipped by fast forwarding, the peak size of the search frontier, the solutions
+ * of each degree, the time spent solving and, for tuple equations, the time spent solving the sub-equation of each key.
+ *
+ * Statistics are attached to the equations through {@link SolvingOptions#withStats(SolverStats)}, and are shared
+ * with their sub-equations; the proportions record theirs in the statistics installed with
+ * {@link DefaultProportion#setStats(SolverStats)}. The collection is thread-safe.
+ * The {@link #DISABLED} instance records nothing, each recording method then returning before reading any counter
+ * or the clock, such that the instrumentation costs a single branch when disabled.
+ * @author Vincent Letard
+ */
+public class SolverStats {
+
+  /**
+   * Statistics that are never collected.
+   */
+  public static final SolverStats DISABLED = new SolverStats(false);
+
+  private final boolean enabled;
+  private final boolean outermost;
+  private final LongAdder headsCreated, headsExpanded, duplicatesDiscarded, headsPruned, fastForwardSteps, elapsedNanos;
+  private final AtomicLong peakFrontier;
+  private final ConcurrentHashMap<Integer, LongAdder> solutionsPerDegree;
+  private final ConcurrentHashMap<Object, LongAdder> subEquationNanos;
+
+  private SolverStats(boolean enabled) {
+    this.enabled = enabled;
+    this.outermost = enabled;
+    this.headsCreated = new LongAdder();
+    this.headsExpanded = new LongAdder();
+    this.duplicatesDiscarded = new LongAdder();
+    this.headsPruned = new LongAdder();
+    this.fastForwardSteps = new LongAdder();
+    this.elapsedNanos = new LongAdder();
+    this.peakFrontier = new AtomicLong();
+    this.solutionsPerDegree = new ConcurrentHashMap<Integer, LongAdder>();
+    this.subEquationNanos = new ConcurrentHashMap<Object, LongAdder>();
+  }
+
+  /**
+   * Constructs new empty statistics.
+   */
+  public SolverStats() {
+    this(true);
+  }
+
+  /**
+   * Constructs a view of the provided statistics that shares all their counters, except for the solutions and the elapsed time.
+   */
+  private SolverStats(SolverStats parent) {
+    this.enabled = parent.enabled;
+    this.outermost = false;
+    this.headsCreated = parent.headsCreated;
+    this.headsExpanded = parent.headsExpanded;
+    this.duplicatesDiscarded = parent.duplicatesDiscarded;
+    this.headsPruned = parent.headsPruned;
+    this.fastForwardSteps = parent.fastForwardSteps;
+    this.elapsedNanos = parent.elapsedNanos;
+    this.peakFrontier = parent.peakFrontier;
+    this.solutionsPerDegree = parent.solutionsPerDegree;
+    this.subEquationNanos = parent.subEquationNanos;
+  }
+
+  /**
+   * Returns the statistics to be used by the sub-equations of a structured equation:
+   * they share the counters of the search, whereas their solutions and their time are only accounted for by the structured equation.
+   * @return the statistics of the sub-equations.
+   */
+  SolverStats forSubEquation() {
+    return this.outermost ? new SolverStats(this) : this;
+  }
+
+  /**
+   * Returns whether these statistics are collected.
+   * @return false for {@link #DISABLED}.
+   */
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Records the creation of a search state.
+   */
+  public void headCreated() {
+    if (this.enabled)
+      this.headsCreated.increment();
+  }
+
+  /**
+   * Records the expansion of a search state.
+   */
+  public void headExpanded() {
+    if (this.enabled)
+      this.headsExpanded.increment();
+  }
+
+  /**
+   * Records a search state discarded because an equivalent one was already reached.
+   */
+  public void duplicateDiscarded() {
+    if (this.enabled)
+      this.duplicatesDiscarded.increment();
+  }
+
+  /**
+   * Records a search state discarded because its degree exceeds the bounds of the search.
+   */
+  public void headPruned() {
+    if (this.enabled)
+      this.headsPruned.increment();
+  }
+
+  /**
+   * Records the steps performed by fast forwarding, without creating intermediate search states.
+   * @param steps the number of skipped steps
+   */
+  public void fastForward(long steps) {
+    if (this.enabled && steps > 0)
+      this.fastForwardSteps.add(steps);
+  }
+
+  /**
+   * Records the current size of a search frontier.
+   * @param size the number of search states waiting to be expanded
+   */
+  public void frontier(long size) {
+    if (!this.enabled)
+      return;
+    long peak = this.peakFrontier.get();
+    while (size > peak && !this.peakFrontier.compareAndSet(peak, size))
+      peak = this.peakFrontier.get();
+  }
+
+  /**
+   * Records a solution found by a solver, unless it is a solution of a sub-equation.
+   * @param degree the degree of the solution
+   */
+  public void solution(int degree) {
+    if (!this.outermost)
+      return;
+    LongAdder count = this.solutionsPerDegree.get(degree);
+    if (count == null) {
+      LongAdder created = new LongAdder();
+      count = this.solutionsPerDegree.putIfAbsent(degree, created);
+      if (count == null)
+        count = created;
+    }
+    count.increment();
+  }
+
+  /**
+   * Returns the start of a timed section, to be provided to {@link #stop(long)} or {@link #stop(Object, long)}.
+   * @return the current time in nanoseconds, or 0 if these statistics are disabled.
+   */
+  public long start() {
+    return this.enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Records the time spent solving since the provided start, unless it is spent solving a sub-equation.
+   * @param start the value returned by {@link #start()}
+   */
+  public void stop(long start) {
+    if (this.outermost)
+      this.elapsedNanos.add(System.nanoTime() - start);
+  }
+
+  /**
+   * Records the time spent solving the sub-equation of a key since the provided start.
+   * @param key the key of the sub-equation
+   * @param start the value returned by {@link #start()}
+   */
+  public void stop(Object key, long start) {
+    if (!this.enabled)
+      return;
+    long elapsed = System.nanoTime() - start;
+    LongAdder time = this.subEquationNanos.get(key);
+    if (time == null) {
+      LongAdder created = new LongAdder();
+      time = this.subEquationNanos.putIfAbsent(key, created);
+      if (time == null)
+        time = created;
+    }
+    time.add(elapsed);
+  }
+
+  /**
+   * Returns the number of search states created.
+   * @return the number of created heads.
+   */
+  public long getHeadsCreated() {
+    return this.headsCreated.sum();
+  }
+
+  /**
+   * Returns the number of search states expanded.
+   * @return the number of expanded heads.
+   */
+  public long getHeadsExpanded() {
+    return this.headsExpanded.sum();
+  }
+
+  /**
+   * Returns the number of search states merged into an equivalent one.
+   * @return the number of discarded duplicates.
+   */
+  public long getDuplicatesDiscarded() {
+    return this.duplicatesDiscarded.sum();
+  }
+
+  /**
+   * Returns the number of search states pruned on their degree.
+   * @return the number of pruned heads.
+   */
+  public long getHeadsPruned() {
+    return this.headsPruned.sum();
+  }
+
+  /**
+   * Returns the number of steps performed by fast forwarding.
+   * @return the number of fast forward steps.
+   */
+  public long getFastForwardSteps() {
+    return this.fastForwardSteps.sum();
+  }
+
+  /**
+   * Returns the greatest size reached by a search frontier.
+   * @return the peak frontier size.
+   */
+  public long getPeakFrontier() {
+    return this.peakFrontier.get();
+  }
+
+  /**
+   * Returns the number of solutions found for each degree.
+   * @return a map from the degrees to the number of solutions, in ascending order of degree.
+   */
+  public SortedMap<Integer, Long> getSolutionsPerDegree() {
+    TreeMap<Integer, Long> counts = new TreeMap<Integer, Long>();
+    for (Map.Entry<Integer, LongAdder> entry: this.solutionsPerDegree.entrySet())
+      counts.put(entry.getKey(), entry.getValue().sum());
+    return Collections.unmodifiableSortedMap(counts);
+  }
+
+  /**
+   * Returns the time spent solving the sub-equation of each key of the tuple equations.
+   * @return a map from the keys to the time in nanoseconds.
+   */
+  public Map<Object, Long> getSubEquationNanos() {
+    HashMap<Object, Long> times = new HashMap<Object, Long>();
+    for (Map.Entry<Object, LongAdder> entry: this.subEquationNanos.entrySet())
+      times.put(entry.getKey(), entry.getValue().sum());
+    return Collections.unmodifiableMap(times);
+  }
+
+  /**
+   * Returns the time spent solving, nested sub-equations being included in the time of their parent equation.
+   * @return the elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return this.elapsedNanos.sum();
+  }
+
+  /**
+   * Resets every statistic.
+   */
+  public void reset() {
+    this.headsCreated.reset();
+    this.headsExpanded.reset();
+    this.duplicatesDiscarded.reset();
+    this.headsPruned.reset();
+    this.fastForwardSteps.reset();
+    this.elapsedNanos.reset();
+    this.peakFrontier.set(0);
+    this.solutionsPerDegree.clear();
+    this.subEquationNanos.clear();
+  }
+
+  @Override
+  public String toString() {
+    if (!this.enabled)
+      return "SolverStats [disabled]";
+    return "SolverStats [created=" + this.getHeadsCreated() + ", expanded=" + this.getHeadsExpanded()
+        + ", duplicates=" + this.getDuplicatesDiscarded() + ", pruned=" + this.getHeadsPruned()
+        + ", fastForward=" + this.getFastForwardSteps() + ", peakFrontier=" + this.getPeakFrontier()
+        + ", solutions=" + this.getSolutionsPerDegree() + ", elapsed=" + this.getElapsedNanos() + "ns]";
+  }
+}
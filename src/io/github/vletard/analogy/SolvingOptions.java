@@ -0,0 +1,166 @@
+package io.github.vletard.analogy;
+
+import java.util.concurrent.Executor;
+
+/**
+ * This class gathers the options constraining the search of the solutions of a {@link DefaultEquation}.
+ * Options are immutable, each modification returns a new instance.
+ * Structured equations (tuples for instance) propagate their options to their sub-equations
+ * through {@link #forSubEquation()}.
+ * @author Vincent Letard
+ */
+public class SolvingOptions {
+
+  /**
+   * Value of a bound that does not constrain the search.
+   */
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  /**
+   * Options that do not constrain the search in any way.
+   */
+  public static final SolvingOptions DEFAULT = new SolvingOptions(UNBOUNDED, UNBOUNDED, SearchBudget.UNLIMITED, null, 0, SolverStats.DISABLED);
+
+  private final int maxDegree;
+  private final int maxDistinctDegrees;
+  private final SearchBudget budget;
+  private final Executor prefetchExecutor;
+  private final int prefetchLookahead;
+  private final SolverStats stats;
+
+  private SolvingOptions(int maxDegree, int maxDistinctDegrees, SearchBudget budget, Executor prefetchExecutor, int prefetchLookahead,
+      SolverStats stats) {
+    this.maxDegree = maxDegree;
+    this.maxDistinctDegrees = maxDistinctDegrees;
+    this.budget = budget;
+    this.prefetchExecutor = prefetchExecutor;
+    this.prefetchLookahead = prefetchLookahead;
+    this.stats = stats;
+  }
+
+  /**
+   * Returns the greatest degree of the solutions to be enumerated.
+   * Solvers prune any partial solution whose degree already exceeds this bound.
+   * @return the maximum degree, {@link #UNBOUNDED} by default.
+   */
+  public int getMaxDegree() {
+    return this.maxDegree;
+  }
+
+  /**
+   * Returns the number of distinct degrees to be enumerated, starting from the lowest degree.
+   * Once the solutions of that many degrees have been found, solvers stop expanding the search.
+   * @return the maximum number of distinct degrees, {@link #UNBOUNDED} by default.
+   */
+  public int getMaxDistinctDegrees() {
+    return this.maxDistinctDegrees;
+  }
+
+  /**
+   * Returns the budget consumed by the search, shared with the sub-equations.
+   * @return the search budget, {@link SearchBudget#UNLIMITED} by default.
+   */
+  public SearchBudget getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Returns the executor on which the sub-equations of a tuple equation compute their solutions ahead of demand.
+   * @return the prefetching executor, or null if the sub-equations are solved on demand (default).
+   */
+  public Executor getPrefetchExecutor() {
+    return this.prefetchExecutor;
+  }
+
+  /**
+   * Returns the maximum number of solutions computed ahead of demand by each prefetched sub-equation.
+   * @return the prefetching lookahead.
+   */
+  public int getPrefetchLookahead() {
+    return this.prefetchLookahead;
+  }
+
+  /**
+   * Returns the statistics collected by the search, shared with the sub-equations.
+   * @return the solver statistics, {@link SolverStats#DISABLED} by default.
+   */
+  public SolverStats getStats() {
+    return this.stats;
+  }
+
+  /**
+   * Returns a copy of these options with the provided maximum degree.
+   * @param maxDegree the greatest degree of the solutions to be enumerated.
+   * @return the new options.
+   */
+  public SolvingOptions withMaxDegree(int maxDegree) {
+    return new SolvingOptions(maxDegree, this.maxDistinctDegrees, this.budget, this.prefetchExecutor, this.prefetchLookahead, this.stats);
+  }
+
+  /**
+   * Returns a copy of these options with the provided maximum number of distinct degrees.
+   * @param maxDistinctDegrees the number of distinct degrees to be enumerated.
+   * @return the new options.
+   */
+  public SolvingOptions withMaxDistinctDegrees(int maxDistinctDegrees) {
+    return new SolvingOptions(this.maxDegree, maxDistinctDegrees, this.budget, this.prefetchExecutor, this.prefetchLookahead, this.stats);
+  }
+
+  /**
+   * Returns a copy of these options with the provided search budget.
+   * @param budget the budget to be consumed by the search
+   * @return the new options.
+   */
+  public SolvingOptions withBudget(SearchBudget budget) {
+    if (budget == null)
+      throw new IllegalArgumentException("The search budget cannot be null, use SearchBudget.UNLIMITED instead.");
+    return new SolvingOptions(this.maxDegree, this.maxDistinctDegrees, budget, this.prefetchExecutor, this.prefetchLookahead, this.stats);
+  }
+
+  /**
+   * Returns a copy of these options collecting the provided statistics.
+   * @param stats the statistics to be collected by the search
+   * @return the new options.
+   */
+  public SolvingOptions withStats(SolverStats stats) {
+    if (stats == null)
+      throw new IllegalArgumentException("The solver statistics cannot be null, use SolverStats.DISABLED instead.");
+    return new SolvingOptions(this.maxDegree, this.maxDistinctDegrees, this.budget, this.prefetchExecutor, this.prefetchLookahead, stats);
+  }
+
+  /**
+   * Returns a copy of these options in which the sub-equations of tuple equations are solved concurrently
+   * on the provided executor, each one computing its solutions ahead of demand.
+   * @param executor the executor solving the sub-equations, or null to solve them on demand
+   * @param lookahead the maximum number of solutions computed ahead of demand by each sub-equation
+   * @return the new options.
+   */
+  public SolvingOptions withPrefetching(Executor executor, int lookahead) {
+    if (executor != null && lookahead < 1)
+      throw new IllegalArgumentException("The prefetching lookahead must be positive.");
+    return new SolvingOptions(this.maxDegree, this.maxDistinctDegrees, this.budget, executor, lookahead, this.stats);
+  }
+
+  /**
+   * Returns the options to be used by the sub-equations of a structured equation.
+   * The maximum degree and the search budget still apply to each sub-equation (except for the maximum degree of the free keys
+   * of a tuple, which do not count in its degree), whereas the distinct degrees of a structured solution
+   * do not match those of its parts, thus they can only be counted by the structured equation itself.
+   * Prefetching is only performed by the outermost structured equation, so that nested sub-equations never wait
+   * for each other on the threads of a bounded executor.
+   * The statistics are shared, the solutions and the time of the sub-equations being only accounted for by the structured equation.
+   * @return the options of the sub-equations.
+   */
+  public SolvingOptions forSubEquation() {
+    return new SolvingOptions(this.maxDegree, UNBOUNDED, this.budget, null, 0, this.stats.forSubEquation());
+  }
+
+  @Override
+  public String toString() {
+    return "SolvingOptions [maxDegree=" + (this.maxDegree == UNBOUNDED ? "unbounded" : this.maxDegree)
+        + ", maxDistinctDegrees=" + (this.maxDistinctDegrees == UNBOUNDED ? "unbounded" : this.maxDistinctDegrees)
+        + ", budget=" + this.budget
+        + (this.prefetchExecutor == null ? "" : ", prefetchLookahead=" + this.prefetchLookahead)
+        + (this.stats.isEnabled() ? ", stats=" + this.stats : "") + "]";
+  }
+}
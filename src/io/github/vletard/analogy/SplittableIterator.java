@@ -0,0 +1,22 @@
+package io.github.vletard.analogy;
+
+import java.util.Iterator;
+
+/**
+ * Iterator over the solutions of an equation that can hand part of its remaining search over to another iterator,
+ * such that both parts are enumerated concurrently by {@link DefaultEquation#parallelStream()}.
+ * The two parts together enumerate the remaining solutions exactly once, each part in ascending order of degree,
+ * but their solutions are interleaved in no particular order.
+ * @author Vincent Letard
+ *
+ * @param <S> the type of the solutions
+ */
+public interface SplittableIterator<S> extends Iterator<S> {
+
+  /**
+   * Moves part of the remaining search of this iterator to a new iterator, if it is worth splitting.
+   * Both iterators may then be used by different threads, but each of them by a single thread at a time.
+   * @return the iterator enumerating the part that was moved, or null if this iterator cannot be split.
+   */
+  Iterator<S> trySplit();
+}
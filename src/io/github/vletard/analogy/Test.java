@@ -1,23 +1,1376 @@
 package io.github.vletard.analogy;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import io.github.vletard.analogy.sequence.BucketQueue;
+import io.github.vletard.analogy.sequence.DegreeLowerBound;
+import io.github.vletard.analogy.sequence.Factor;
+import io.github.vletard.analogy.sequence.Factorization;
+import io.github.vletard.analogy.sequence.LatticeSequenceEquation;
+import io.github.vletard.analogy.sequence.ParallelSequenceEquation;
 import io.github.vletard.analogy.sequence.Sequence;
 import io.github.vletard.analogy.sequence.SequenceEquation;
 import io.github.vletard.analogy.sequence.SequenceProportion;
+import io.github.vletard.analogy.sequence.SequenceProportion.InvalidProportionException;
+import io.github.vletard.analogy.sequence.SequenceSolution;
+import io.github.vletard.analogy.sequence.SimpleSequenceEquation;
+import io.github.vletard.analogy.set.BitImmutableSet;
 import io.github.vletard.analogy.set.ImmutableSet;
+import io.github.vletard.analogy.set.SetEquation;
+import io.github.vletard.analogy.set.SetUniverse;
 import io.github.vletard.analogy.set.SimpleSetEquation;
+import io.github.vletard.analogy.set.SortedImmutableSet;
 import io.github.vletard.analogy.tuple.SimpleTupleEquation;
 import io.github.vletard.analogy.tuple.SubTupleRebuilder;
 import io.github.vletard.analogy.tuple.Tuple;
 import io.github.vletard.analogy.tuple.TupleEquation;
 import io.github.vletard.analogy.util.CharacterSequence;
 import io.github.vletard.analogy.util.InvalidParameterException;
+import io.github.vletard.analogy.util.PrefetchingIterator;
 
 public class Test {
+
+  /**
+   * Fails the run if the condition does not hold, whether assertions are enabled or not.
+   */
+  private static void check(boolean condition, String message) {
+    if (!condition)
+      throw new AssertionError(message);
+  }
+
+  /**
+   * Returns the content of the single solution of a set equation, or null if it has none.
+   */
+  private static <T> HashSet<T> setSolution(ImmutableSet<T> a, ImmutableSet<T> b, ImmutableSet<T> c) {
+    for (Solution<ImmutableSet<T>> s: new SimpleSetEquation<T>(a, b, c))
+      return new HashSet<T>(s.getContent().asSet());
+    return null;
+  }
+
+  /**
+   * Returns the content, the degree and the relations of the first solution of a set equation, or null if it has none.
+   */
+  private static <T> List<Object> firstSetSolution(ImmutableSet<T> a, ImmutableSet<T> b, ImmutableSet<T> c) {
+    for (Solution<ImmutableSet<T>> s: new SimpleSetEquation<T>(a, b, c))
+      return Arrays.<Object>asList(new HashSet<T>(s.getContent().asSet()), s.getDegree(), s.getStraightRelation(), s.getCrossedRelation());
+    return null;
+  }
+
+  private static HashSet<String> randomSet(Random random, String alphabet, boolean withNull) {
+    HashSet<String> set = new HashSet<String>();
+    for (int i = 0; i < alphabet.length(); i++)
+      if (random.nextInt(3) == 0)
+        set.add(alphabet.substring(i, i + 1));
+    if (withNull && random.nextInt(3) == 0)
+      set.add(null);
+    return set;
+  }
+
+  /**
+   * Compares the merge of sorted sets with the hash path on the same items, null items included.
+   */
+  private static void checkSortedSets() {
+    Comparator<String> order = Comparator.nullsFirst(Comparator.<String>naturalOrder());
+    HashSet<String> nullP = new HashSet<String>(Arrays.asList(null, "p")), nullZ = new HashSet<String>(Arrays.asList(null, "z"));
+    HashSet<String> p = new HashSet<String>(Arrays.asList("p"));
+    HashSet<String> expected = setSolution(new ImmutableSet<String>(nullP), new ImmutableSet<String>(nullZ), new ImmutableSet<String>(p));
+    check(new HashSet<String>(Arrays.asList("z")).equals(expected), "hash path with a null item");
+    check(expected.equals(setSolution(new SortedImmutableSet<String>(nullP, order), new SortedImmutableSet<String>(nullZ, order),
+        new SortedImmutableSet<String>(p, order))), "sorted merge with a null item");
+
+    Random random = new Random(16);
+    for (int i = 0; i < 500; i++) {
+      HashSet<String> a = randomSet(random, "abcde", true), b = randomSet(random, "abcde", true), c = randomSet(random, "abcde", true);
+      expected = setSolution(new ImmutableSet<String>(a), new ImmutableSet<String>(b), new ImmutableSet<String>(c));
+      HashSet<String> sorted = setSolution(new SortedImmutableSet<String>(a, order), new SortedImmutableSet<String>(b, order), new SortedImmutableSet<String>(c, order));
+      check(expected == null ? sorted == null : expected.equals(sorted), "sorted merge differs from the hash path on " + a + " : " + b + " :: " + c);
+      HashSet<String> d = (expected != null && random.nextBoolean()) ? expected : randomSet(random, "abcde", true);
+      check(new DefaultProportion<Object>(new ImmutableSet<String>(a), new ImmutableSet<String>(b), new ImmutableSet<String>(c), new ImmutableSet<String>(d)).isValid()
+          == new DefaultProportion<Object>(new SortedImmutableSet<String>(a, order), new SortedImmutableSet<String>(b, order),
+              new SortedImmutableSet<String>(c, order), new SortedImmutableSet<String>(d, order)).isValid(),
+          "sorted proportion differs from the hash path on " + a + " : " + b + " :: " + c + " : " + d);
+    }
+  }
   
-  public static void main(String[] args) throws NoSolutionException, InvalidParameterException {
+  /**
+   * Compares the bitwise equations and proportions between sets of a shared universe with the hash path, including their
+   * relations, and checks that bitsets equal the hash sets of the same items, whatever their universe.
+   */
+  private static void checkBitSets() {
+    SetUniverse<String> universe = new SetUniverse<String>(), other = new SetUniverse<String>();
+    Random random = new Random(15);
+    for (int i = 0; i < 500; i++) {
+      HashSet<String> a = randomSet(random, "abcdefgh", false), b = randomSet(random, "abcdefgh", false), c = randomSet(random, "abcdefgh", false);
+      HashSet<String> solution = setSolution(new ImmutableSet<String>(a), new ImmutableSet<String>(b), new ImmutableSet<String>(c));
+      HashSet<String> d = (solution != null && random.nextBoolean()) ? solution : randomSet(random, "abcdefgh", false);
+      BitImmutableSet<String> bitA = new BitImmutableSet<String>(universe, a), bitB = new BitImmutableSet<String>(universe, b),
+          bitC = new BitImmutableSet<String>(universe, c), bitD = new BitImmutableSet<String>(universe, d);
+      List<Object> expected = firstSetSolution(new ImmutableSet<String>(a), new ImmutableSet<String>(b), new ImmutableSet<String>(c));
+      check(Objects.equals(expected, firstSetSolution(bitA, bitB, bitC)), "bitwise solution differs from the hash path on " + a + " : " + b + " :: " + c);
+      check(Objects.equals(expected, firstSetSolution(bitA, new BitImmutableSet<String>(other, b), bitC)),
+          "solution between universes differs from the hash path on " + a + " : " + b + " :: " + c);
+      check(new DefaultProportion<Object>(new ImmutableSet<String>(a), new ImmutableSet<String>(b), new ImmutableSet<String>(c), new ImmutableSet<String>(d)).isValid()
+          == new DefaultProportion<Object>(bitA, bitB, bitC, bitD).isValid(), "bitwise proportion differs from the hash path on " + a + " : " + b + " :: " + c + " : " + d);
+      check(bitA.asSet().equals(a) && bitA.hashCode() == new ImmutableSet<String>(a).hashCode(), "bitset differs from its items " + a);
+      check(bitA.equals(bitB) == a.equals(b) && bitA.equals(new BitImmutableSet<String>(other, b)) == a.equals(b),
+          "bitset equality differs from that of the items " + a + " " + b);
+    }
+  }
+
+  /**
+   * Returns the contents and the degrees of the solutions of an equation, in the order of their enumeration.
+   */
+  private static List<String> listed(Iterable<? extends Solution<?>> solutions) {
+    ArrayList<String> list = new ArrayList<String>();
+    for (Solution<?> s: solutions)
+      list.add(s.getContent() + "/" + s.getDegree());
+    return list;
+  }
+
+  private static CharacterSequence randomSequence(Random random, int maxSize, String alphabet) {
+    StringBuilder sequence = new StringBuilder();
+    for (int size = random.nextInt(maxSize + 1); size > 0; size--)
+      sequence.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    return new CharacterSequence(sequence.toString());
+  }
+
+  /**
+   * Compares the results of a batch with the equations solved directly, and checks that a shared budget exhausted by one task
+   * is only reported by the tasks it cut.
+   */
+  private static void checkBatchSolver() {
+    Random random = new Random(23);
+    ArrayList<List<CharacterSequence>> triples = new ArrayList<List<CharacterSequence>>();
+    for (int i = 0; i < 40; i++)
+      triples.add(Arrays.asList(randomSequence(random, 5, "ab"), randomSequence(random, 5, "ab"), randomSequence(random, 5, "ab")));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<BatchSolver.Result<CharacterSequence>> results = new BatchSolver(executor).<CharacterSequence>solveAll(triples).collect(Collectors.toList());
+      for (int i = 0; i < triples.size(); i++) {
+        List<CharacterSequence> t = triples.get(i);
+        check(listed(DefaultEquation.factory(t.get(0), t.get(1), t.get(2))).equals(listed(results.get(i).getSolutions())), "batch result differs for " + t);
+        check(results.get(i).getExhaustion() == null, "unbudgeted batch result reported as exhausted");
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    SearchBudget shared = new SearchBudget(100, SearchBudget.UNBOUNDED, SearchBudget.UNBOUNDED, TimeUnit.NANOSECONDS);
+    BatchSolver solver = new BatchSolver(new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        task.run(); // one task after the other, in the calling thread
+      }
+    }).withOptions(SolvingOptions.DEFAULT.withBudget(shared));
+    CharacterSequence small = new CharacterSequence("ab");
+    BatchSolver.Result<CharacterSequence> first = solver.submit(small, small, small).join();
+    BatchSolver.Result<CharacterSequence> large = solver.submit(new CharacterSequence("abababab"), new CharacterSequence("babababa"), new CharacterSequence("aabbaabb")).join();
+    check(first.getExhaustion() == null && !first.getSolutions().isEmpty(), "task completed before the exhaustion reported as cut");
+    check(large.getExhaustion() == BudgetExhaustion.EXPANSIONS && shared.isExhausted(), "task exhausting the shared budget not reported as cut");
+    check(solver.submit(small, small, small).join().getExhaustion() == BudgetExhaustion.EXPANSIONS, "task started after the exhaustion not reported as cut");
+  }
+
+  /**
+   * Checks that a proportion between sequences emits a single Flight Recorder event, whether it is checked through
+   * {@link DefaultProportion} or through {@link SequenceProportion}.
+   */
+  private static void checkProportionEvents() throws IOException {
+    Path file = Files.createTempFile("analogy", ".jfr");
+    try {
+      try (Recording recording = new Recording()) {
+        recording.enable("io.github.vletard.analogy.ProportionChecked");
+        recording.start();
+        new DefaultProportion<Object>(new CharacterSequence("baa"), new CharacterSequence("aba"), new CharacterSequence("aab"), new CharacterSequence("aab")).isValid();
+        new SequenceProportion<Character>(new CharacterSequence("abc"), new CharacterSequence("abd"), new CharacterSequence("xbc"), new CharacterSequence("xbd")).isValid();
+        recording.stop();
+        recording.dump(file);
+      }
+      check(RecordingFile.readAllEvents(file).size() == 2, "a sequence proportion must emit exactly one event");
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Checks that the search of the first solution of an equation is recorded even if its enumeration is abandoned after
+   * that solution, with the degree of the first solution, whereas the whole enumeration is only recorded once drained.
+   */
+  private static void checkEquationEvents() throws IOException {
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    CharacterSequence a = new CharacterSequence("abab"), b = new CharacterSequence("baba"), c = new CharacterSequence("aabb");
+    List<DefaultEquation<Sequence<Character>, ? extends Solution<Sequence<Character>>>> equations =
+        new ArrayList<DefaultEquation<Sequence<Character>, ? extends Solution<Sequence<Character>>>>();
+    equations.add(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+    equations.add(new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+    ArrayList<Integer> expected = new ArrayList<Integer>();
+    for (DefaultEquation<Sequence<Character>, ? extends Solution<Sequence<Character>>> equation: equations)
+      expected.add(equation.iterator().next().getDegree());
+    expected.add(expected.get(0)); // the drained equation
+    expected.sort(null);
+
+    Path file = Files.createTempFile("analogy", ".jfr");
+    try {
+      try (Recording recording = new Recording()) {
+        recording.enable("io.github.vletard.analogy.EquationSolved");
+        recording.enable("io.github.vletard.analogy.FirstSolutionFound");
+        recording.start();
+        for (DefaultEquation<Sequence<Character>, ? extends Solution<Sequence<Character>>> equation: equations)
+          equation.iterator().next(); // abandoned after its first solution
+        listed(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+        recording.stop();
+        recording.dump(file);
+      }
+      ArrayList<Integer> firstDegrees = new ArrayList<Integer>();
+      int enumerations = 0;
+      for (RecordedEvent event: RecordingFile.readAllEvents(file)) {
+        if (event.getEventType().getName().equals("io.github.vletard.analogy.FirstSolutionFound"))
+          firstDegrees.add(event.getInt("degree"));
+        else
+          enumerations ++;
+      }
+      firstDegrees.sort(null);
+      check(firstDegrees.equals(expected), "first solution events " + firstDegrees + " instead of " + expected);
+      check(enumerations == 1, "only the drained enumeration must be recorded as solved, got " + enumerations);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Checks that the slow log only times the solving, and that its captures replay to the same results.
+   */
+  private static void checkSlowLog() throws IOException, InterruptedException {
+    Path directory = Files.createTempDirectory("analogy-slow-log");
+    Executor inline = new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        task.run();
+      }
+    };
+    try {
+      SlowLog patient = new SlowLog(directory, 100, TimeUnit.MILLISECONDS, inline);
+      for (Solution<Sequence<Character>> s: patient.solutions(new SimpleSequenceEquation<Character>(new CharacterSequence("ab"), new CharacterSequence("ab"), new CharacterSequence("cd"))))
+        Thread.sleep(150); // slow caller, fast equation
+      check(patient.getCaptured() == 0, "the time spent by the caller between solutions was captured as slow solving");
+
+      SlowLog log = new SlowLog(directory, 0, TimeUnit.NANOSECONDS, inline);
+      SimpleSequenceEquation<Character> equation = new SimpleSequenceEquation<Character>(new CharacterSequence("abab"), new CharacterSequence("baba"), new CharacterSequence("aabb"));
+      long solutions = 0;
+      for (Solution<Sequence<Character>> s: log.solutions(equation))
+        solutions ++;
+      boolean valid = log.isValid(new DefaultProportion<Object>(new CharacterSequence("baa"), new CharacterSequence("aba"), new CharacterSequence("aab"), new CharacterSequence("aab")));
+      check(log.getCaptured() == 2 && log.getFailures() == 0, "captures not written");
+      check(solutions > 1 && log.solutions(equation).iterator().next() != null && log.getCaptured() == 3,
+          "equation not captured at its slow first solution");
+      check(!log.solutions(new SimpleSequenceEquation<Character>(new CharacterSequence("a"), new CharacterSequence("b"), new CharacterSequence("c")))
+          .iterator().hasNext() && log.getCaptured() == 4, "equation without solution not captured at its end");
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file: files.collect(Collectors.toList())) {
+          SlowLog.Capture capture = SlowLog.read(file);
+          // the solvable equation is captured at its first solution, the other one at the end of its enumeration
+          long expected = capture.isEquation() ? (capture.isComplete() ? 0 : 1) : (valid ? 1 : 0);
+          check(capture.getResults() == expected && SlowLogReplay.replay(capture, SlowLogReplay.Engine.DOMAIN) == expected, "replay differs from the capture " + capture);
+        }
+      }
+    } finally {
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file: files.collect(Collectors.toList()))
+          Files.delete(file);
+      }
+      Files.delete(directory);
+    }
+  }
+
+  /**
+   * Returns the contents, degrees, classes and relations of the solutions of an equation, sorted since an equation and its dual
+   * may enumerate the solutions of a same degree in different orders.
+   */
+  private static List<String> described(Iterable<? extends Solution<?>> solutions) {
+    ArrayList<String> list = new ArrayList<String>();
+    for (Solution<?> s: solutions)
+      list.add(s.getContent() + "/" + s.getDegree() + "/" + s.getClass().getSimpleName() + "/" + s.getStraightRelation() + "/" + s.getCrossedRelation());
+    list.sort(null);
+    return list;
+  }
+
+  /**
+   * Solution of a custom class, which has no dual form.
+   */
+  private static final class PlainSolution extends Solution<Object> {
+    private PlainSolution(Object content, int degree) {
+      super(content, degree);
+    }
+
+    @Override
+    public Relation getStraightRelation() {
+      return null;
+    }
+
+    @Override
+    public Relation getCrossedRelation() {
+      return null;
+    }
+  }
+
+  /**
+   * Equation of a custom class, providing the solutions of the atomic equation as plain solutions.
+   */
+  private static final class PlainEquation extends DefaultEquation<Object, Solution<Object>> {
+    private PlainEquation(Object a, Object b, Object c) {
+      super(a, b, c);
+    }
+
+    @Override
+    public Iterator<Solution<Object>> iterator() {
+      ArrayList<Solution<Object>> solutions = new ArrayList<Solution<Object>>();
+      for (Solution<Object> s: new AtomicEquation<Object>(this.a, this.b, this.c))
+        solutions.add(new PlainSolution(s.getContent(), s.getDegree()));
+      return solutions.iterator();
+    }
+
+    @Override
+    public PlainEquation dual() {
+      return new PlainEquation(this.a, this.c, this.b);
+    }
+  }
+
+  /**
+   * Compares the solutions replayed by the solution cache, for an equation and its dual, with the equations solved directly.
+   */
+  private static void checkSolutionCache() {
+    Random random = new Random(19);
+    SolutionCache cache = new SolutionCache(1000);
+    for (int i = 0; i < 100; i++) {
+      CharacterSequence a = randomSequence(random, 5, "abc"), b = randomSequence(random, 5, "abc"), c = randomSequence(random, 5, "abc");
+      for (int run = 0; run < 2; run++) {
+        check(described(cache.solutions(new SimpleSequenceEquation<Character>(a, b, c))).equals(described(new SimpleSequenceEquation<Character>(a, b, c))),
+            "cached solutions differ for " + a + " : " + b + " :: " + c);
+        check(described(cache.solutions(new SimpleSequenceEquation<Character>(a, c, b))).equals(described(new SimpleSequenceEquation<Character>(a, c, b))),
+            "cached dual solutions differ for " + a + " : " + c + " :: " + b);
+      }
+    }
+    check(cache.getHits() >= 300, "cache entries not shared by the equations and their duals");
+
+    ImmutableSet<Integer> sA = new ImmutableSet<Integer>(new HashSet<Integer>(Arrays.asList(1, 2)));
+    ImmutableSet<Integer> sB = new ImmutableSet<Integer>(new HashSet<Integer>(Arrays.asList(3, 1, 5)));
+    ImmutableSet<Integer> sC = new ImmutableSet<Integer>(new HashSet<Integer>(Arrays.asList(2, 0, 4)));
+    HashMap<String, Sequence<Character>> mA = new HashMap<String, Sequence<Character>>(), mB = new HashMap<String, Sequence<Character>>(), mC = new HashMap<String, Sequence<Character>>();
+    mA.put("x", new CharacterSequence("ab"));
+    mB.put("x", new CharacterSequence("ac"));
+    mC.put("x", new CharacterSequence("db"));
+    mA.put("y", new CharacterSequence("e"));
+    mB.put("y", new CharacterSequence("e"));
+    mC.put("y", new CharacterSequence("f"));
+    Tuple<Sequence<Character>> tA = new Tuple<Sequence<Character>>(mA), tB = new Tuple<Sequence<Character>>(mB), tC = new Tuple<Sequence<Character>>(mC);
+    for (int run = 0; run < 2; run++) {
+      check(described(cache.solutions(new SimpleSetEquation<Integer>(sA, sB, sC))).equals(described(new SimpleSetEquation<Integer>(sA, sB, sC)))
+          && described(cache.solutions(new SimpleSetEquation<Integer>(sA, sC, sB))).equals(described(new SimpleSetEquation<Integer>(sA, sC, sB))),
+          "cached set solutions differ");
+      check(described(cache.solutions(new SimpleTupleEquation<Sequence<Character>>(tA, tB, tC))).equals(described(new SimpleTupleEquation<Sequence<Character>>(tA, tB, tC)))
+          && described(cache.solutions(new SimpleTupleEquation<Sequence<Character>>(tA, tC, tB))).equals(described(new SimpleTupleEquation<Sequence<Character>>(tA, tC, tB))),
+          "cached tuple solutions differ");
+    }
+
+    cache.clear();
+    for (int run = 0; run < 2; run++) {
+      check(described(cache.solutions(new PlainEquation("x", "x", "y"))).equals(described(new PlainEquation("x", "x", "y")))
+          && described(cache.solutions(new PlainEquation("x", "y", "x"))).equals(described(new PlainEquation("x", "y", "x"))),
+          "cached solutions without dual form differ");
+    }
+    check(cache.size() == 2, "solutions without dual form not cached under separate entries");
+  }
+
+  /**
+   * Compares the proportions checked through the shared cache with the same proportions checked without it,
+   * and checks that the proportions decided by the equality of their items never reach the cache.
+   */
+  private static void checkProportionCache() throws InvalidProportionException {
+    Random random = new Random(18);
+    ArrayList<CharacterSequence[]> quadruples = new ArrayList<CharacterSequence[]>();
+    for (int i = 0; i < 300; i++) {
+      CharacterSequence a = randomSequence(random, 4, "ab"), b = randomSequence(random, 4, "ab"), c = randomSequence(random, 4, "ab");
+      CharacterSequence d = randomSequence(random, 4, "ab");
+      if (random.nextBoolean())
+        for (Solution<Sequence<Character>> s: new SimpleSequenceEquation<Character>(a, b, c)) {
+          d = new CharacterSequence(s.getContent());
+          break;
+        }
+      quadruples.add(new CharacterSequence[] {a, b, c, d});
+    }
+    boolean[] expected = new boolean[quadruples.size()];
+    for (int i = 0; i < quadruples.size(); i++) {
+      CharacterSequence[] q = quadruples.get(i);
+      expected[i] = new SequenceProportion<Character>(q[0], q[1], q[2], q[3]).isValid();
+      check(expected[i] == new DefaultProportion<Object>(q[0], q[1], q[2], q[3]).isValid(), "sequence proportions differ");
+    }
+
+    ProportionCache cache = new ProportionCache(64);
+    DefaultProportion.setCache(cache);
+    try {
+      for (int run = 0; run < 2; run++) {
+        for (int i = 0; i < quadruples.size(); i++) {
+          CharacterSequence[] q = quadruples.get(i);
+          check(expected[i] == new SequenceProportion<Character>(q[0], q[1], q[2], q[3]).isValid()
+              && expected[i] == new DefaultProportion<Object>(q[2], q[3], q[0], q[1]).isValid()
+              && expected[i] == new DefaultProportion<Object>(q[0], q[2], q[1], q[3]).isValid(), "cached proportion differs for " + Arrays.toString(q));
+        }
+      }
+      check(cache.getHits() > 0 && cache.getEvictions() > 0, "cache neither hit nor evicted");
+
+      long lookups = cache.getHits() + cache.getMisses();
+      CharacterSequence x = new CharacterSequence("abc"), y = new CharacterSequence("abd");
+      SequenceProportion<Character> identity = new SequenceProportion<Character>(x, y, x, y);
+      check(identity.isValid() && identity.getDegree() == 3, "proportion between sequences equal two by two"); // the factorization is still searched on demand
+      check(new DefaultProportion<Object>(x, x, y, y).isValid() && !new DefaultProportion<Object>("x", "y", "z", "t").isValid()
+          && !new DefaultProportion<Object>(null, x, y, y).isValid(), "atomic proportions");
+      check(cache.getHits() + cache.getMisses() == lookups, "proportions decided by the equality of their items looked up in the cache");
+    } finally {
+      DefaultProportion.setCache(null);
+    }
+  }
+
+  /**
+   * Compares tuple equations solved with prefetching to the same equations solved on demand, and checks that an interrupted
+   * consumer is not handed a truncated enumeration.
+   */
+  private static void checkPrefetching() {
+    Random random = new Random(12);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      SolvingOptions prefetching = SolvingOptions.DEFAULT.withPrefetching(executor, 2);
+      for (int i = 0; i < 100; i++) {
+        HashMap<String, CharacterSequence> a = new HashMap<String, CharacterSequence>(), b = new HashMap<String, CharacterSequence>(),
+            c = new HashMap<String, CharacterSequence>();
+        for (String key: new String[] {"x", "y", "z"}) {
+          a.put(key, randomSequence(random, 4, "ab"));
+          b.put(key, randomSequence(random, 4, "ab"));
+          c.put(key, randomSequence(random, 4, "ab"));
+        }
+        Tuple<CharacterSequence> tA = new Tuple<CharacterSequence>(a), tB = new Tuple<CharacterSequence>(b), tC = new Tuple<CharacterSequence>(c);
+        check(listed(new SimpleTupleEquation<CharacterSequence>(tA, tB, tC, prefetching)).equals(listed(new SimpleTupleEquation<CharacterSequence>(tA, tB, tC))),
+            "prefetched tuple solutions differ for " + tA + " : " + tB + " :: " + tC);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    PrefetchingIterator<String> stalled = new PrefetchingIterator<String>(Arrays.asList("a").iterator(), new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        // accepted but never run, the consumer waits for the filling task
+      }
+    }, 1);
+    Thread.currentThread().interrupt();
+    boolean cancelled = false;
+    try {
+      stalled.hasNext();
+    } catch (CancellationException e) {
+      cancelled = true;
+    }
+    check(Thread.interrupted() && cancelled, "interrupted prefetching iteration not cancelled");
+  }
+
+  /**
+   * Atomic item of a domain counting the equations it builds.
+   */
+  private static final class Token {
+    private final String name;
+
+    private Token(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Token && ((Token) obj).name.equals(this.name);
+    }
+
+    @Override
+    public String toString() {
+      return this.name;
+    }
+  }
+
+  private static final class TokenDomain extends AnalogyDomain {
+    private final AtomicLong equations = new AtomicLong(), searches = new AtomicLong();
+
+    private TokenDomain() {
+      super(Token.class);
+    }
+
+    @Override
+    public <E> DefaultEquation<E, ? extends Solution<E>> equation(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options) {
+      this.equations.incrementAndGet();
+      return new AtomicEquation<E>(a, b, c, options) {
+        @Override
+        public Iterator<Solution<E>> iterator() {
+          TokenDomain.this.searches.incrementAndGet();
+          return super.iterator();
+        }
+      };
+    }
+
+    @Override
+    public boolean isValidProportion(Object a, Object b, Object c, Object d) {
+      return false;
+    }
+  }
+
+  /**
+   * Compares the solutions of random tuple equations with the product of the solutions of their keys, each combination
+   * having the maximum degree of its items, and checks that they are enumerated in ascending order of degree.
+   */
+  private static void checkTupleProduct() {
+    Random random = new Random(11);
+    for (int i = 0; i < 30; i++) {
+      HashMap<String, Sequence<Character>> a = new HashMap<String, Sequence<Character>>(), b = new HashMap<String, Sequence<Character>>(),
+          c = new HashMap<String, Sequence<Character>>();
+      for (int k = random.nextInt(3) + 1; k > 0; k--) {
+        a.put("key" + k, randomSequence(random, 4, "ab"));
+        b.put("key" + k, randomSequence(random, 4, "ab"));
+        c.put("key" + k, randomSequence(random, 4, "ab"));
+      }
+      List<HashMap<String, Sequence<Character>>> contents = new ArrayList<HashMap<String, Sequence<Character>>>();
+      List<Integer> degrees = new ArrayList<Integer>();
+      contents.add(new HashMap<String, Sequence<Character>>());
+      degrees.add(0);
+      for (String key: a.keySet()) {
+        List<HashMap<String, Sequence<Character>>> productContents = new ArrayList<HashMap<String, Sequence<Character>>>();
+        List<Integer> productDegrees = new ArrayList<Integer>();
+        for (Solution<Sequence<Character>> s: DefaultEquation.factory(a.get(key), b.get(key), c.get(key)))
+          for (int p = 0; p < contents.size(); p++) {
+            HashMap<String, Sequence<Character>> content = new HashMap<String, Sequence<Character>>(contents.get(p));
+            content.put(key, s.getContent());
+            productContents.add(content);
+            productDegrees.add(Math.max(degrees.get(p), s.getDegree()));
+          }
+        contents = productContents;
+        degrees = productDegrees;
+      }
+      HashMap<List<Object>, Integer> expected = new HashMap<List<Object>, Integer>();
+      for (int p = 0; p < contents.size(); p++) {
+        List<Object> solution = Arrays.<Object>asList(contents.get(p), degrees.get(p));
+        expected.put(solution, expected.getOrDefault(solution, 0) + 1);
+      }
+      HashMap<List<Object>, Integer> found = new HashMap<List<Object>, Integer>();
+      int degree = 0;
+      for (Solution<Tuple<Sequence<Character>>> s: new SimpleTupleEquation<Sequence<Character>>(new Tuple<Sequence<Character>>(a),
+          new Tuple<Sequence<Character>>(b), new Tuple<Sequence<Character>>(c))) {
+        check(s.getDegree() >= degree, "tuple solutions out of degree order for " + a + " : " + b + " :: " + c);
+        degree = s.getDegree();
+        HashMap<String, Sequence<Character>> content = new HashMap<String, Sequence<Character>>();
+        for (Object key: s.getContent().keySet())
+          content.put((String) key, s.getContent().get(key));
+        List<Object> solution = Arrays.<Object>asList(content, s.getDegree());
+        found.put(solution, found.getOrDefault(solution, 0) + 1);
+      }
+      check(found.equals(expected), "tuple solutions differ from the product of their keys for " + a + " : " + b + " :: " + c);
+    }
+  }
+
+  /**
+   * Compares random tuples with the maps they were built from: lookups, key sets, equality and hash code, regardless of the
+   * order of the maps, and checks that tuples of the same keys share their schema, including after a serialization round trip.
+   */
+  private static void checkCompactTuples() throws InvalidParameterException, IOException, ClassNotFoundException {
+    Random random = new Random(14);
+    List<Tuple<Integer>> tuples = new ArrayList<Tuple<Integer>>();
+    List<List<HashMap<String, Integer>>> maps = new ArrayList<List<HashMap<String, Integer>>>();
+    for (int i = 0; i < 200; i++) {
+      HashMap<String, Integer> regular = new HashMap<String, Integer>(), free = new HashMap<String, Integer>();
+      LinkedHashMap<String, Integer> reversed = new LinkedHashMap<String, Integer>();
+      for (int k = 5; k >= 0; k--) {
+        int choice = random.nextInt(4);
+        if (choice == 1)
+          regular.put("k" + k, random.nextInt(2));
+        else if (choice == 2)
+          free.put("k" + k, random.nextInt(2));
+      }
+      List<String> keys = new ArrayList<String>(regular.keySet());
+      Collections.reverse(keys);
+      for (String k: keys)
+        reversed.put(k, regular.get(k));
+      Tuple<Integer> tuple = new Tuple<Integer>(regular, free);
+      check(tuple.equals(new Tuple<Integer>(reversed, free)) && tuple.getSchema() == new Tuple<Integer>(reversed, free).getSchema(),
+          "tuples differ with the order of their map " + tuple);
+      check(tuple.hashCode() == 31 * (31 + free.hashCode()) + regular.hashCode(), "tuple hash code differs from that of its maps " + tuple);
+      check(tuple.regularKeys().equals(regular.keySet()) && tuple.freeKeys().equals(free.keySet())
+          && tuple.keySet().size() == regular.size() + free.size(), "tuple keys differ from its maps " + tuple);
+      for (int k = 0; k <= 6; k++) {
+        Integer expected = regular.containsKey("k" + k) ? regular.get("k" + k) : free.get("k" + k);
+        check(Objects.equals(tuple.get("k" + k), expected) && tuple.containsKey("k" + k) == (expected != null), "tuple lookup differs from its maps " + tuple);
+      }
+      List<Integer> values = new ArrayList<Integer>();
+      for (int index = 0; index < tuple.getSchema().size(); index++)
+        values.add(tuple.valueAt(index));
+      check(new Tuple<Integer>(tuple.getSchema(), values).equals(tuple), "tuple built from its schema differs " + tuple);
+      tuples.add(tuple);
+      maps.add(Arrays.asList(regular, free));
+    }
+    for (int i = 0; i < tuples.size(); i++)
+      for (int j = 0; j < tuples.size(); j++)
+        check(tuples.get(i).equals(tuples.get(j)) == maps.get(i).equals(maps.get(j)), "tuple equality differs from that of the maps " + tuples.get(i) + " " + tuples.get(j));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(tuples.get(0));
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Tuple<?> copy = (Tuple<?>) in.readObject();
+      check(copy.equals(tuples.get(0)) && copy.getSchema() == tuples.get(0).getSchema(), "deserialized tuple is not interned");
+    }
+  }
+
+  /**
+   * Checks the domains selected for the built-in types and their subclasses, the common domain of mixed items, and that
+   * a domain registered for a custom type is used by the equations and proportions of that type, including within tuples.
+   */
+  private static void checkDomainRegistry() throws InvalidParameterException {
+    CharacterSequence word = new CharacterSequence("ab");
+    Sequence<Character> sequence = new Sequence<Character>(word);
+    ImmutableSet<String> set = new ImmutableSet<String>(new HashSet<String>(Arrays.asList("a")));
+    BitImmutableSet<String> bits = new BitImmutableSet<String>(new SetUniverse<String>(), set.asSet());
+    check(DomainRegistry.of(word).getType() == Sequence.class && DomainRegistry.of(word) == DomainRegistry.lookup(Sequence.class)
+        && DomainRegistry.of(bits).getType() == ImmutableSet.class && DomainRegistry.of(tuple("k", word)).getType() == Tuple.class,
+        "built-in types dispatched to the wrong domains");
+    check(DomainRegistry.of("ab") == DomainRegistry.ATOMIC && DomainRegistry.of(null) == DomainRegistry.ATOMIC
+        && DomainRegistry.common(word, set) == DomainRegistry.ATOMIC && DomainRegistry.common(word, sequence) == DomainRegistry.of(sequence)
+        && DomainRegistry.common(set, bits) == DomainRegistry.of(set), "common domain of mixed items");
+    check(DefaultEquation.factory(word, word, sequence) instanceof SequenceEquation && DefaultEquation.factory(set, bits, set) instanceof SetEquation
+        && DefaultEquation.factory(word, set, word) instanceof AtomicEquation, "equations built by the wrong domains");
+
+    final AtomicLong equations = new AtomicLong();
+    AnalogyDomain lengths = new AnalogyDomain(Token.class) {
+      @Override
+      public <E> DefaultEquation<E, ? extends Solution<E>> equation(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options) {
+        equations.incrementAndGet();
+        return new AtomicEquation<E>(a, b, c, options);
+      }
+
+      @Override
+      public boolean isValidProportion(Object a, Object b, Object c, Object d) {
+        return a.toString().length() + d.toString().length() == b.toString().length() + c.toString().length();
+      }
+    };
+    ProportionCache previous = DefaultProportion.getCache();
+    DefaultProportion.setCache(new ProportionCache(64));
+    Token x = new Token("x"), xy = new Token("xy"), z = new Token("z"), zw = new Token("zw");
+    DomainRegistry.register(lengths);
+    try {
+      check(DomainRegistry.of(x) == lengths, "registered domain not dispatched");
+      check(new DefaultProportion<Object>(x, xy, z, zw).isValid() && !new DefaultProportion<Object>(x, xy, z, z).isValid(), "custom domain proportions");
+      check(new DefaultProportion<Object>(tuple("token", x, "word", word), tuple("token", xy, "word", word), tuple("token", z, "word", word),
+          tuple("token", zw, "word", word)).isValid(), "custom domain within tuples");
+      listed(new SimpleTupleEquation<Object>(tuple("token", x, "word", word), tuple("token", xy, "word", sequence), tuple("token", z, "word", word)));
+      check(equations.get() == 1, "custom domain equation built " + equations.get() + " times within a tuple");
+    } finally {
+      DomainRegistry.register(new TokenDomain());
+    }
+    check(DomainRegistry.of(new Token("x")) != lengths, "registered domain not replaced");
+    check(!new DefaultProportion<Object>(x, xy, z, zw).isValid(), "proportion decided by a replaced domain served from the cache");
+    DefaultProportion.setCache(previous);
+  }
+
+  /**
+   * Subscriber collecting the contents and degrees of the published solutions. It requests the provided number of solutions
+   * on subscription, then one more after each solution if it is stepping, and cancels its subscription after a given count.
+   */
+  private static final class ListingSubscriber implements Flow.Subscriber<Solution<?>> {
+    private final long initial;
+    private final boolean stepping;
+    private final int cancelAfter;
+    private final List<String> listing = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable error;
+    private volatile boolean completed;
+
+    private ListingSubscriber(long initial, boolean stepping, int cancelAfter) {
+      this.initial = initial;
+      this.stepping = stepping;
+      this.cancelAfter = cancelAfter;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(this.initial);
+    }
+
+    @Override
+    public void onNext(Solution<?> item) {
+      this.listing.add(item.getContent() + "/" + item.getDegree());
+      if (this.listing.size() == this.cancelAfter) {
+        this.subscription.cancel();
+        this.done.countDown();
+      }
+      else if (this.stepping)
+        this.subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      this.error = throwable;
+      this.done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      this.completed = true;
+      this.done.countDown();
+    }
+
+    /**
+     * Waits for the end of the subscription.
+     * @return false if it did not end in time.
+     */
+    private boolean await() throws InterruptedException {
+      return this.done.await(10, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Compares the solutions published to subscribers requesting them one by one, all at once or partially, by batches of
+   * several sizes, with the solutions of the iterator, and checks that invalid requests are signaled as errors.
+   */
+  private static void checkPublisher() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Random random = new Random(25);
+      SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+      for (int i = 0; i < 20; i++) {
+        CharacterSequence a = randomSequence(random, 6, "abc"), b = randomSequence(random, 6, "abc"), c = randomSequence(random, 6, "abc");
+        SequenceEquation<Character, Sequence<Character>> equation = new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity);
+        List<String> expected = listed(equation);
+        for (int batchSize: new int[] {1, 3, SolutionPublisher.DEFAULT_BATCH_SIZE}) {
+          SolutionPublisher<Sequence<Character>, Solution<Sequence<Character>>> publisher =
+              new SolutionPublisher<Sequence<Character>, Solution<Sequence<Character>>>(equation, executor, batchSize);
+          ListingSubscriber stepping = new ListingSubscriber(1, true, -1), unbounded = new ListingSubscriber(Long.MAX_VALUE, false, -1);
+          publisher.subscribe(stepping);
+          publisher.subscribe(unbounded);
+          check(stepping.await() && stepping.completed && stepping.listing.equals(expected),
+              "solutions published one by one differ for " + a + " : " + b + " :: " + c);
+          check(unbounded.await() && unbounded.completed && unbounded.listing.equals(expected),
+              "solutions published at once differ for " + a + " : " + b + " :: " + c);
+          if (expected.size() > 2) {
+            ListingSubscriber partial = new ListingSubscriber(expected.size(), false, 2);
+            publisher.subscribe(partial);
+            check(partial.await() && !partial.completed && partial.error == null, "partial subscription not cancelled");
+            Thread.sleep(10); // leaves time to a solution published in spite of the cancellation
+            check(partial.listing.equals(expected.subList(0, 2)), "cancelled subscription received " + partial.listing);
+          }
+        }
+      }
+      CharacterSequence x = new CharacterSequence("ab");
+      ListingSubscriber invalid = new ListingSubscriber(0, false, -1);
+      new SolutionPublisher<Sequence<Character>, Solution<Sequence<Character>>>(
+          new SequenceEquation<Character, Sequence<Character>>(x, x, x, identity), executor).subscribe(invalid);
+      check(invalid.await() && invalid.error instanceof IllegalArgumentException && invalid.listing.isEmpty(), "invalid request not signaled");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static Tuple<Object> tuple(Object... entries) {
+    HashMap<String, Object> map = new HashMap<String, Object>();
+    for (int i = 0; i < entries.length; i += 2)
+      map.put((String) entries[i], entries[i + 1]);
+    return new Tuple<Object>(map);
+  }
+
+  /**
+   * Checks that a tuple equation plans its sub equations once, nested tuples included, whether it is checked, estimated,
+   * iterated or split, that the parts of a split enumeration search each sub equation once, and that its solutions do not depend on it.
+   */
+  private static void checkTuplePlan() {
+    TokenDomain tokens = new TokenDomain();
+    DomainRegistry.register(tokens);
+    Token t = new Token("t"), u = new Token("u");
+    Tuple<Object> a = tuple("token", t, "word", new CharacterSequence("abab"), "nested", tuple("token", t, "word", new CharacterSequence("ab")));
+    Tuple<Object> b = tuple("token", t, "word", new CharacterSequence("baba"), "nested", tuple("token", t, "word", new CharacterSequence("ba")));
+    Tuple<Object> c = tuple("token", u, "word", new CharacterSequence("aabb"), "nested", tuple("token", u, "word", new CharacterSequence("aab")));
+    HashMap<Object, SubtypeRebuilder<?, ?>> subordinates = new HashMap<Object, SubtypeRebuilder<?, ?>>();
+    subordinates.put("nested", SubTupleRebuilder.tupleIdentity()); // solving the nested tuples as tuples rather than atomic items
+    SubTupleRebuilder<Object, Tuple<Object>> rebuilder = new SubTupleRebuilder<Object, Tuple<Object>>(subordinates) {
+      @Override
+      public Tuple<Object> rebuild(Tuple<Object> object) {
+        return object;
+      }
+    };
+    TupleEquation<Object, Tuple<Object>> equation = new TupleEquation<Object, Tuple<Object>>(a, b, c, rebuilder);
+    check(equation.isFeasible() && equation.estimateCost() > 0, "feasible tuple equation");
+    List<String> solutions = listed(equation);
+    check(!solutions.isEmpty() && solutions.equals(listed(equation)), "tuple solutions differ between iterations");
+    long searches = tokens.searches.get();
+    List<String> parallel = listed(equation.parallelStream().collect(Collectors.toList())), sorted = new ArrayList<String>(solutions);
+    parallel.sort(null);
+    sorted.sort(null);
+    check(parallel.equals(sorted), "parallel tuple solutions differ");
+    check(tokens.searches.get() - searches == 2, "tuple sub equations searched " + (tokens.searches.get() - searches) + " times by a parallel stream instead of once per key");
+    check(tokens.equations.get() == 2, "tuple sub equations planned " + tokens.equations.get() + " times instead of once per key");
+    check(listed(new TupleEquation<Object, Tuple<Object>>(a, b, c, rebuilder)).equals(solutions), "tuple solutions differ from a new equation");
+  }
+
+  /**
+   * Enumerates every factorization of A : B :: C : ? by trying every sequence of steps, and collects each solution with its degree.
+   * A straight factor reads A with B and C with D, a crossed factor reads A with C and B with D.
+   * @param crossed orientation of the current factor, null before the first factor
+   */
+  private static void factorizations(String a, String b, String c, int i, int j, int k, Boolean crossed, int degree, String d, HashSet<String> solutions) {
+    if (i == a.length() && j == b.length() && k == c.length())
+      solutions.add(d + "/" + degree);
+    int straightDegree = Boolean.FALSE.equals(crossed) ? degree : degree + 1;
+    int crossedDegree = Boolean.TRUE.equals(crossed) ? degree : degree + 1;
+    if (i < a.length() && j < b.length() && a.charAt(i) == b.charAt(j))
+      factorizations(a, b, c, i + 1, j + 1, k, false, straightDegree, d, solutions);
+    if (k < c.length())
+      factorizations(a, b, c, i, j, k + 1, false, straightDegree, d + c.charAt(k), solutions);
+    if (i < a.length() && k < c.length() && a.charAt(i) == c.charAt(k))
+      factorizations(a, b, c, i + 1, j, k + 1, true, crossedDegree, d, solutions);
+    if (j < b.length())
+      factorizations(a, b, c, i, j + 1, k, true, crossedDegree, d + b.charAt(j), solutions);
+  }
+
+  private static HashSet<String> solutionSet(Iterable<? extends Solution<? extends Sequence<Character>>> solutions) {
+    HashSet<String> set = new HashSet<String>();
+    for (Solution<? extends Sequence<Character>> s: solutions) {
+      StringBuilder d = new StringBuilder();
+      for (Character item: s.getContent())
+        d.append(item);
+      set.add(d + "/" + s.getDegree());
+    }
+    return set;
+  }
+
+  /**
+   * Returns the lowest degree of the complete factorizations reachable from a partial one, checking on the way that the lower bound
+   * of the remaining degree never exceeds it.
+   * @return the lowest complete degree, or {@link Integer#MAX_VALUE} if no factorization can be completed.
+   */
+  private static int lowestDegree(String a, String b, String c, int i, int j, int k, Boolean crossed, int degree, DegreeLowerBound<Character> bound) {
+    int lowest = Integer.MAX_VALUE;
+    if (i == a.length() && j == b.length() && k == c.length())
+      lowest = degree;
+    int straightDegree = Boolean.FALSE.equals(crossed) ? degree : degree + 1;
+    int crossedDegree = Boolean.TRUE.equals(crossed) ? degree : degree + 1;
+    if (i < a.length() && j < b.length() && a.charAt(i) == b.charAt(j))
+      lowest = Math.min(lowest, lowestDegree(a, b, c, i + 1, j + 1, k, false, straightDegree, bound));
+    if (k < c.length())
+      lowest = Math.min(lowest, lowestDegree(a, b, c, i, j, k + 1, false, straightDegree, bound));
+    if (i < a.length() && k < c.length() && a.charAt(i) == c.charAt(k))
+      lowest = Math.min(lowest, lowestDegree(a, b, c, i + 1, j, k + 1, true, crossedDegree, bound));
+    if (j < b.length())
+      lowest = Math.min(lowest, lowestDegree(a, b, c, i, j + 1, k, true, crossedDegree, bound));
+    Factor<Character, Sequence<Character>> last = (crossed == null) ? null
+        : new Factor<Character, Sequence<Character>>(crossed, new ArrayList<Character>(), new ArrayList<Character>(), SubtypeRebuilder.<Sequence<Character>>identity());
+    check(lowest == Integer.MAX_VALUE || degree + bound.remaining(i, j, k, last) <= lowest,
+        "degree lower bound not admissible for " + a + " : " + b + " :: " + c + " at " + i + ", " + j + ", " + k);
+    return lowest;
+  }
+
+  /**
+   * Checks that the lower bound guiding the A* search never overestimates the remaining degree, and that the A* search
+   * enumerates its solutions in ascending order of degree.
+   */
+  private static void checkDegreeLowerBound() {
+    Random random = new Random(5);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int i = 0; i < 300; i++) {
+      CharacterSequence a = randomSequence(random, 4, "abc"), b = randomSequence(random, 4, "abc"), c = randomSequence(random, 4, "abc");
+      SequenceEquation<Character, Sequence<Character>> equation = new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity);
+      lowestDegree(a.toString(), b.toString(), c.toString(), 0, 0, 0, null, 0, new DegreeLowerBound<Character>(equation));
+      int previous = 0;
+      for (Solution<Sequence<Character>> s: equation) {
+        check(s.getDegree() >= previous, "A* solutions out of order for " + a + " : " + b + " :: " + c);
+        previous = s.getDegree();
+      }
+    }
+  }
+
+  /**
+   * Filters listed solutions on the degree bounds of the provided options.
+   */
+  private static List<String> bounded(List<String> solutions, SolvingOptions options) {
+    ArrayList<String> kept = new ArrayList<String>();
+    HashSet<Integer> degrees = new HashSet<Integer>();
+    for (String solution: solutions) {
+      int degree = Integer.parseInt(solution.substring(solution.lastIndexOf('/') + 1));
+      if (degree > options.getMaxDegree())
+        continue;
+      if (!degrees.contains(degree)) {
+        if (degrees.size() == options.getMaxDistinctDegrees())
+          continue;
+        degrees.add(degree);
+      }
+      kept.add(solution);
+    }
+    return kept;
+  }
+
+  /**
+   * Checks that an equation is only reported infeasible when it has no solution.
+   */
+  private static boolean consistentFeasibility(DefaultEquation<?, ?> equation) {
+    return equation.isFeasible() || !equation.iterator().hasNext();
+  }
+
+  /**
+   * Compares the solutions of equations whose solvers enforce degree bounds with the unbounded solutions filtered on those bounds.
+   */
+  private static void checkDegreeBounds() throws InvalidParameterException {
+    Random random = new Random(7);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int i = 0; i < 200; i++) {
+      CharacterSequence a = randomSequence(random, 5, "abc"), b = randomSequence(random, 5, "abc"), c = randomSequence(random, 5, "abc");
+      SolvingOptions options = SolvingOptions.DEFAULT.withMaxDegree(random.nextInt(6));
+      if (random.nextBoolean())
+        options = options.withMaxDistinctDegrees(1 + random.nextInt(2));
+      String equation = a + " : " + b + " :: " + c + " with " + options;
+      check(listed(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, options))
+          .equals(bounded(listed(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity)), options)), "bounded A* solutions differ for " + equation);
+      check(listed(new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity, false, options))
+          .equals(bounded(listed(new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity)), options)), "bounded lattice solutions differ for " + equation);
+      check(consistentFeasibility(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, options))
+          && consistentFeasibility(new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity, false, options)),
+          "bounded sequence equation reported infeasible with solutions for " + equation);
+
+      HashMap<String, CharacterSequence> mA = new HashMap<String, CharacterSequence>(), mB = new HashMap<String, CharacterSequence>(),
+          mC = new HashMap<String, CharacterSequence>();
+      mA.put("x", a);
+      mB.put("x", b);
+      mC.put("x", c);
+      mA.put("y", randomSequence(random, 3, "ab"));
+      mB.put("y", randomSequence(random, 3, "ab"));
+      mC.put("y", randomSequence(random, 3, "ab"));
+      Tuple<CharacterSequence> tA = new Tuple<CharacterSequence>(mA), tB = new Tuple<CharacterSequence>(mB), tC = new Tuple<CharacterSequence>(mC);
+      check(listed(new SimpleTupleEquation<CharacterSequence>(tA, tB, tC, options))
+          .equals(bounded(listed(new SimpleTupleEquation<CharacterSequence>(tA, tB, tC)), options)), "bounded tuple solutions differ for " + tA + " : " + tB + " :: " + tC);
+      check(consistentFeasibility(new SimpleTupleEquation<CharacterSequence>(tA, tB, tC, options)),
+          "bounded tuple equation reported infeasible with solutions for " + tA + " : " + tB + " :: " + tC);
+
+      HashMap<String, CharacterSequence> fA = new HashMap<String, CharacterSequence>(), fB = new HashMap<String, CharacterSequence>(),
+          fC = new HashMap<String, CharacterSequence>();
+      fA.put("z", randomSequence(random, 4, "ab"));
+      fB.put("z", randomSequence(random, 4, "ab"));
+      fC.put("z", randomSequence(random, 4, "ab"));
+      tA = new Tuple<CharacterSequence>(mA, fA);
+      tB = new Tuple<CharacterSequence>(mB, fB);
+      tC = new Tuple<CharacterSequence>(mC, fC);
+      check(listed(new SimpleTupleEquation<CharacterSequence>(tA, tB, tC, options))
+          .equals(bounded(listed(new SimpleTupleEquation<CharacterSequence>(tA, tB, tC)), options)), "bounded tuple solutions with a free key differ for " + tA + " : " + tB + " :: " + tC);
+    }
+
+    HashMap<String, CharacterSequence> free = new HashMap<String, CharacterSequence>();
+    free.put("f", new CharacterSequence("ab"));
+    Tuple<CharacterSequence> t = new Tuple<CharacterSequence>(new HashMap<String, CharacterSequence>(), free);
+    List<String> unbounded = listed(new SimpleTupleEquation<CharacterSequence>(t, t, t));
+    check(!unbounded.isEmpty() && listed(new SimpleTupleEquation<CharacterSequence>(t, t, t, SolvingOptions.DEFAULT.withMaxDegree(0))).equals(unbounded),
+        "the solutions of a free key are pruned by the maximum degree");
+
+    CharacterSequence empty = new CharacterSequence("");
+    SolvingOptions exact = SolvingOptions.DEFAULT.withMaxDegree(0);
+    SequenceEquation<Character, Sequence<Character>> emptyEquation = new SequenceEquation<Character, Sequence<Character>>(empty, empty, empty, identity, exact);
+    check(emptyEquation.isFeasible() && emptyEquation.iterator().hasNext(), "the empty sequence equation is infeasible at degree 0");
+    HashMap<String, CharacterSequence> emptyMap = new HashMap<String, CharacterSequence>();
+    emptyMap.put("e", empty);
+    Tuple<CharacterSequence> emptyTuple = new Tuple<CharacterSequence>(emptyMap);
+    check(!listed(new SimpleTupleEquation<CharacterSequence>(emptyTuple, emptyTuple, emptyTuple, exact)).isEmpty(),
+        "the tuple of an empty sequence has no solution at degree 0");
+  }
+
+  /**
+   * Checks that the solutions enumerated under a search budget are a prefix of the unbudgeted solutions,
+   * and that a budget cutting an enumeration tells why.
+   */
+  private static void checkBudgets() {
+    Random random = new Random(8);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int i = 0; i < 200; i++) {
+      CharacterSequence a = randomSequence(random, 5, "abc"), b = randomSequence(random, 5, "abc"), c = randomSequence(random, 5, "abc");
+      String equation = a + " : " + b + " :: " + c;
+      for (int engine = 0; engine < 2; engine++) {
+        SearchBudget budget = new SearchBudget(1 + random.nextInt(40), SearchBudget.UNBOUNDED, SearchBudget.UNBOUNDED, TimeUnit.NANOSECONDS);
+        SolvingOptions options = SolvingOptions.DEFAULT.withBudget(budget);
+        List<String> expected = listed((engine == 0) ? new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity)
+            : new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+        List<String> cut = listed((engine == 0) ? new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, options)
+            : new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity, false, options));
+        check(cut.size() <= expected.size() && cut.equals(expected.subList(0, cut.size())), "budgeted solutions are not a prefix for " + equation);
+        check(cut.size() == expected.size() || budget.getExhaustion() == BudgetExhaustion.EXPANSIONS, "truncated enumeration not reported for " + equation);
+      }
+    }
+
+    CharacterSequence a = new CharacterSequence("abcabcabcabc"), b = new CharacterSequence("bcabcabcabca"), c = new CharacterSequence("cabcabcabcab");
+    SearchBudget expired = new SearchBudget(0, TimeUnit.NANOSECONDS);
+    check(listed(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, SolvingOptions.DEFAULT.withBudget(expired))).isEmpty()
+        && expired.getExhaustion() == BudgetExhaustion.DEADLINE, "expired deadline not enforced");
+    SearchBudget interruptible = new SearchBudget(SearchBudget.UNBOUNDED, SearchBudget.UNBOUNDED, SearchBudget.UNBOUNDED, TimeUnit.NANOSECONDS);
+    Thread.currentThread().interrupt();
+    List<String> interrupted = listed(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, SolvingOptions.DEFAULT.withBudget(interruptible)));
+    check(Thread.interrupted() && interrupted.isEmpty() && interruptible.getExhaustion() == BudgetExhaustion.INTERRUPTED, "interruption not enforced");
+    SearchBudget frontier = new SearchBudget(SearchBudget.UNBOUNDED, 3, SearchBudget.UNBOUNDED, TimeUnit.NANOSECONDS);
+    listed(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, SolvingOptions.DEFAULT.withBudget(frontier)));
+    check(frontier.getExhaustion() == BudgetExhaustion.FRONTIER, "frontier size not enforced");
+  }
+
+  /**
+   * Compares the solutions per degree collected by the statistics of random equations with their enumerated solutions,
+   * checks that the statistics do not change the solutions, and that the disabled statistics stay empty.
+   */
+  private static void checkSolverStats() throws InvalidProportionException {
+    Random random = new Random(20);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int i = 0; i < 30; i++) {
+      CharacterSequence a = randomSequence(random, 6, "abc"), b = randomSequence(random, 6, "abc"), c = randomSequence(random, 6, "abc");
+      for (boolean lattice: new boolean[] {false, true}) {
+        SolverStats stats = new SolverStats();
+        SolvingOptions options = SolvingOptions.DEFAULT.withStats(stats);
+        List<String> expected = listed(lattice ? new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity)
+            : new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+        List<String> found = listed(lattice ? new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity, false, options)
+            : new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, options));
+        TreeMap<Integer, Long> perDegree = new TreeMap<Integer, Long>();
+        for (String solution: found) {
+          int degree = Integer.parseInt(solution.substring(solution.lastIndexOf('/') + 1));
+          perDegree.put(degree, perDegree.getOrDefault(degree, 0L) + 1);
+        }
+        check(found.equals(expected), "statistics change the solutions of " + a + " : " + b + " :: " + c);
+        check(stats.getSolutionsPerDegree().equals(perDegree) && (found.isEmpty() // infeasible equations may not be searched at all
+            || (stats.getHeadsExpanded() > 0 && stats.getHeadsCreated() > 0 && stats.getPeakFrontier() > 0 && stats.getElapsedNanos() > 0)),
+            "statistics differ from the solutions of " + a + " : " + b + " :: " + c + ": " + stats);
+      }
+    }
+
+    SolverStats stats = new SolverStats();
+    Tuple<Object> a = tuple("x", new CharacterSequence("ab"), "y", new CharacterSequence("abc"));
+    Tuple<Object> b = tuple("x", new CharacterSequence("ba"), "y", new CharacterSequence("cab"));
+    Tuple<Object> c = tuple("x", new CharacterSequence("ab"), "y", new CharacterSequence("bca"));
+    List<String> solutions = listed(new SimpleTupleEquation<Object>(a, b, c, SolvingOptions.DEFAULT.withStats(stats)));
+    long count = 0;
+    for (long n: stats.getSolutionsPerDegree().values())
+      count += n;
+    check(count == solutions.size() && stats.getSubEquationNanos().keySet().equals(a.keySet()),
+        "tuple statistics differ from its solutions, sub-equations included: " + stats);
+    stats.reset();
+    check(stats.getSolutionsPerDegree().isEmpty() && stats.getHeadsCreated() == 0 && stats.getPeakFrontier() == 0, "statistics not reset");
+
+    SequenceProportion<Character> proportion = new SequenceProportion<Character>(new CharacterSequence("abc"), new CharacterSequence("bac"),
+        new CharacterSequence("abd"), new CharacterSequence("bad"));
+    DefaultProportion.setStats(stats);
+    try {
+      check(proportion.isValid() && stats.getSolutionsPerDegree().equals(Collections.singletonMap(proportion.getDegree(), 1L)),
+          "proportion statistics " + stats);
+    } finally {
+      DefaultProportion.setStats(SolverStats.DISABLED);
+    }
+
+    CharacterSequence x = new CharacterSequence("abcab"), y = new CharacterSequence("bacba"), z = new CharacterSequence("abcca");
+    check(listed(new SequenceEquation<Character, Sequence<Character>>(x, y, z, identity, SolvingOptions.DEFAULT.withStats(SolverStats.DISABLED)))
+        .equals(listed(new SequenceEquation<Character, Sequence<Character>>(x, y, z, identity))), "disabled statistics change the solutions");
+    check(!SolverStats.DISABLED.isEnabled() && SolverStats.DISABLED.getHeadsCreated() == 0 && SolverStats.DISABLED.getSolutionsPerDegree().isEmpty()
+        && SolverStats.DISABLED.getElapsedNanos() == 0, "disabled statistics collected " + SolverStats.DISABLED);
+  }
+
+  /**
+   * Returns the sorted contents and degrees of the solutions of a stream, whose order may be unspecified.
+   */
+  private static List<String> sortedListing(Stream<? extends Solution<?>> solutions) {
+    List<String> list = listed(solutions.collect(Collectors.toList()));
+    list.sort(null);
+    return list;
+  }
+
+  /**
+   * Compares the sequential streams of random equations with their iterators, and their parallel streams, once sorted,
+   * with the solutions of their iterators, for the partitioned engines (A* search and tuples) and for those that are not split.
+   */
+  private static void checkStreams() throws InvalidParameterException {
+    Random random = new Random(24);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int i = 0; i < 30; i++) {
+      CharacterSequence a = randomSequence(random, 8, "abc"), b = randomSequence(random, 8, "abc"), c = randomSequence(random, 8, "abc");
+      List<DefaultEquation<Sequence<Character>, ? extends Solution<Sequence<Character>>>> equations =
+          new ArrayList<DefaultEquation<Sequence<Character>, ? extends Solution<Sequence<Character>>>>();
+      equations.add(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+      equations.add(new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+      equations.add(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity, SolvingOptions.DEFAULT.withMaxDistinctDegrees(2)));
+      for (DefaultEquation<Sequence<Character>, ? extends Solution<Sequence<Character>>> equation: equations) {
+        List<String> expected = listed(equation), unique = listed(equation.uniqueSolutions());
+        check(listed(equation.stream().collect(Collectors.toList())).equals(expected), "stream differs from the iterator of " + equation);
+        check(listed(equation.uniqueStream().collect(Collectors.toList())).equals(unique), "unique stream differs from the unique solutions of " + equation);
+        List<String> sorted = new ArrayList<String>(expected);
+        sorted.sort(null);
+        check(sortedListing(equation.parallelStream()).equals(sorted), "parallel stream differs from the iterator of " + equation);
+        HashSet<Sequence<Character>> contents = new HashSet<Sequence<Character>>();
+        for (Solution<Sequence<Character>> s: equation.uniqueSolutions())
+          contents.add(s.getContent());
+        List<Solution<Sequence<Character>>> parallel = new ArrayList<Solution<Sequence<Character>>>(equation.uniqueParallelStream().collect(Collectors.toList()));
+        HashSet<Sequence<Character>> parallelContents = new HashSet<Sequence<Character>>();
+        for (Solution<Sequence<Character>> s: parallel)
+          parallelContents.add(s.getContent());
+        check(parallel.size() == contents.size() && parallelContents.equals(contents), "unique parallel stream differs from the unique solutions of " + equation);
+      }
+
+      CharacterSequence x = randomSequence(random, 5, "abc"), y = randomSequence(random, 5, "abc"), z = randomSequence(random, 5, "abc");
+      Tuple<Object> tA = tuple("x", x, "y", z), tB = tuple("x", y, "y", y), tC = tuple("x", z, "y", x);
+      SimpleTupleEquation<Object> tuples = new SimpleTupleEquation<Object>(tA, tB, tC);
+      List<String> expected = listed(tuples);
+      check(listed(tuples.stream().collect(Collectors.toList())).equals(expected), "tuple stream differs from its iterator");
+      expected.sort(null);
+      check(sortedListing(tuples.parallelStream()).equals(expected), "parallel tuple stream differs from its iterator for " + tA + " : " + tB + " :: " + tC);
+    }
+  }
+
+  /**
+   * Compares the lattices built in parallel on pools of several sizes with the lattice built by the calling thread,
+   * on sequences long enough for the layers to be split.
+   */
+  private static void checkParallelLattice() {
+    Random random = new Random(9);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int threads: new int[] {1, 2, 4}) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        for (int i = 0; i < 20; i++) {
+          CharacterSequence a = randomSequence(random, 12, "abc"), b = randomSequence(random, 12, "abc"), c = randomSequence(random, 12, "abc");
+          SolvingOptions options = SolvingOptions.DEFAULT.withMaxDegree(6);
+          ParallelSequenceEquation<Character, Sequence<Character>> parallel =
+              new ParallelSequenceEquation<Character, Sequence<Character>>(a, b, c, identity, false, options, pool);
+          int degree = 0;
+          for (Solution<Sequence<Character>> s: parallel) {
+            check(s.getDegree() >= degree, "parallel lattice out of degree order for " + a + " : " + b + " :: " + c);
+            degree = s.getDegree();
+          }
+          List<String> found = listed(parallel), expected = listed(new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity, false, options));
+          Collections.sort(found); // the order of the solutions of the same degree is unspecified
+          Collections.sort(expected);
+          check(found.equals(expected), "parallel lattice on " + threads + " threads differs for " + a + " : " + b + " :: " + c);
+        }
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Compares the bucket queue with a binary heap on random additions and polls, and checks that splitting a queue
+   * distributes its items of each priority between both halves.
+   */
+  private static void checkBucketQueue() {
+    Random random = new Random(4);
+    BucketQueue<Integer> queue = new BucketQueue<Integer>();
+    PriorityQueue<Integer> reference = new PriorityQueue<Integer>();
+    for (int i = 0; i < 5000; i++) {
+      if (reference.isEmpty() || random.nextInt(3) > 0) {
+        int priority = random.nextInt(12);
+        queue.add(priority, priority);
+        reference.add(priority);
+      }
+      else {
+        check(queue.peekPriority() == reference.peek(), "bucket queue minimum differs from the heap");
+        check(queue.poll().intValue() == reference.poll(), "bucket queue polled an item of a wrong priority");
+      }
+      check(queue.size() == reference.size() && queue.isEmpty() == reference.isEmpty(), "bucket queue size differs from the heap");
+    }
+
+    int[] counts = new int[12];
+    for (Integer priority: reference)
+      counts[priority] ++;
+    BucketQueue<Integer> other = queue.split();
+    check(queue.size() + other.size() == reference.size() && Math.abs(queue.size() - other.size()) <= counts.length, "split halves unbalanced");
+    for (BucketQueue<Integer> half: Arrays.asList(queue, other)) {
+      int previous = 0;
+      while (!half.isEmpty()) {
+        int priority = half.poll();
+        check(priority >= previous, "split half polled out of order");
+        previous = priority;
+        counts[priority] --;
+      }
+    }
+    for (int count: counts)
+      check(count == 0, "split lost or duplicated items");
+  }
+
+  /**
+   * Decides whether A : B :: C : D is a valid proportion by marking the reachable positions (i, j, k) of the steps
+   * in A, B and C, the position in D being j + k - i, without any search nor match matrix.
+   */
+  private static boolean reachable(String a, String b, String c, String d) {
+    if (a.length() + d.length() != b.length() + c.length())
+      return false;
+    boolean[][][] reached = new boolean[a.length() + 1][b.length() + 1][c.length() + 1];
+    reached[0][0][0] = true;
+    for (int i = 0; i <= a.length(); i++)
+      for (int j = 0; j <= b.length(); j++)
+        for (int k = 0; k <= c.length(); k++) {
+          int l = j + k - i;
+          if (!reached[i][j][k] || l < 0 || l > d.length())
+            continue;
+          if (i < a.length() && j < b.length() && a.charAt(i) == b.charAt(j))
+            reached[i + 1][j + 1][k] = true;
+          if (i < a.length() && k < c.length() && a.charAt(i) == c.charAt(k))
+            reached[i + 1][j][k + 1] = true;
+          if (k < c.length() && l < d.length() && c.charAt(k) == d.charAt(l))
+            reached[i][j][k + 1] = true;
+          if (j < b.length() && l < d.length() && b.charAt(j) == d.charAt(l))
+            reached[i][j + 1][k] = true;
+        }
+    return reached[a.length()][b.length()][c.length()];
+  }
+
+  /**
+   * Checks the solutions of equations between sequences made of runs longer than a word of the match matrices, such that
+   * the runs fast forwarded by the search cross word boundaries, against the positions reachable without match matrices,
+   * and compares the solutions found with and without interning.
+   */
+  private static void checkLongRuns() {
+    Random random = new Random(6);
+    int[][] steps = new int[][] {{0, 1}, {0, 2}, {2, 3}, {1, 3}}; // a run appended to A and B, A and C, C and D or B and D
+    for (int i = 0; i < 8; i++) {
+      StringBuilder[] items = new StringBuilder[] {new StringBuilder(), new StringBuilder(), new StringBuilder(), new StringBuilder()};
+      for (int step = 0; step < 4; step++) {
+        int[] pair = steps[random.nextInt(steps.length)];
+        String run = String.valueOf((char) ('a' + step)).repeat(40 + random.nextInt(60));
+        items[pair[0]].append(run);
+        items[pair[1]].append(run);
+      }
+      String a = items[0].toString(), b = items[1].toString(), c = items[2].toString();
+      String equation = a + " : " + b + " :: " + c;
+      HashSet<String> solutions = solutionSet(new SimpleSequenceEquation<Character>(new CharacterSequence(a), new CharacterSequence(b), new CharacterSequence(c)));
+      check(!solutions.isEmpty() && solutions.equals(solutionSet(new SimpleSequenceEquation<Character>(new CharacterSequence(a), new CharacterSequence(b),
+          new CharacterSequence(c), true))), "solutions with long runs differ when interned for " + equation);
+      for (String solution: solutions)
+        check(reachable(a, b, c, solution.substring(0, solution.indexOf('/'))), "invalid solution " + solution + " for " + equation);
+    }
+  }
+
+  /**
+   * Compares the sequence equations solved on interned items with the same equations solved on the items themselves.
+   */
+  private static void checkInternedSequences() {
+    Random random = new Random(3);
+    for (int i = 0; i < 200; i++) {
+      CharacterSequence a = randomSequence(random, 6, "abcd"), b = randomSequence(random, 6, "abcd"), c = randomSequence(random, 6, "abcd");
+      check(listed(new SimpleSequenceEquation<Character>(a, b, c, true)).equals(listed(new SimpleSequenceEquation<Character>(a, b, c, false))),
+          "interned solutions differ for " + a + " : " + b + " :: " + c);
+    }
+  }
+
+  /**
+   * Checks that the factorizations of the solutions rebuild the four sequences of their equation, as do their duals,
+   * and that extending a factorization leaves it and its other extensions unchanged.
+   */
+  private static void checkFactorizations() {
+    Random random = new Random(2);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int i = 0; i < 200; i++) {
+      CharacterSequence a = randomSequence(random, 5, "abc"), b = randomSequence(random, 5, "abc"), c = randomSequence(random, 5, "abc");
+      String equation = a + " : " + b + " :: " + c;
+      for (Solution<Sequence<Character>> s: new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity)) {
+        Factorization<?, ?> f = ((SequenceSolution<?, ?>) s).getFactorization();
+        check(f.extractElement(Element.A).equals(a) && f.extractElement(Element.B).equals(b) && f.extractElement(Element.C).equals(c)
+            && f.extractElement(Element.D).equals(s.getContent()) && f.degree() == s.getDegree(), "factorization inconsistent with " + equation);
+        Factorization<?, ?> dual = f.dual();
+        check(dual.extractElement(Element.A).equals(a) && dual.extractElement(Element.B).equals(c) && dual.extractElement(Element.C).equals(b)
+            && dual.extractElement(Element.D).equals(s.getContent()) && dual.degree() == f.degree() && dual.dual().toString().equals(f.toString()),
+            "dual factorization inconsistent with " + equation);
+      }
+    }
+
+    Factorization<Character, Sequence<Character>> base = new Factorization<Character, Sequence<Character>>(identity).extendListB(false, 'a').extendListC(true, 'b');
+    String before = base.toString();
+    Factorization<Character, Sequence<Character>> merged = base.extendListC(true, 'c'), appended = base.extendListB(false, 'd');
+    check(base.toString().equals(before) && base.degree() == 2 && base.size() == 2, "extended factorization changed");
+    check(merged.degree() == 2 && merged.size() == 3 && merged.extractElement(Element.C).toString().equals("[b, c]")
+        && appended.degree() == 3 && appended.size() == 3 && appended.extractElement(Element.B).toString().equals("[a, d]")
+        && appended.extractElement(Element.C).toString().equals("[b]"), "extensions of a shared factorization interfere");
+  }
+
+  /**
+   * Compares the proportions between sequences, checked on their match matrices with and without interning,
+   * with the solutions found by the exhaustive enumeration of the factorizations.
+   */
+  private static void checkSequenceProportions() throws InvalidProportionException {
+    Random random = new Random(6);
+    for (int i = 0; i < 300; i++) {
+      CharacterSequence a = randomSequence(random, 4, "abc"), b = randomSequence(random, 4, "abc"), c = randomSequence(random, 4, "abc");
+      HashSet<String> solutions = new HashSet<String>();
+      factorizations(a.toString(), b.toString(), c.toString(), 0, 0, 0, null, 0, "", solutions);
+      HashSet<String> contents = new HashSet<String>();
+      for (String solution: solutions)
+        contents.add(solution.substring(0, solution.indexOf('/')));
+      ArrayList<String> candidates = new ArrayList<String>(contents);
+      candidates.add(randomSequence(random, 4, "abc").toString());
+      for (String d: candidates) {
+        String proportion = a + " : " + b + " :: " + c + " : " + d;
+        SequenceProportion<Character> plain = new SequenceProportion<Character>(a, b, c, new CharacterSequence(d), false);
+        SequenceProportion<Character> interned = new SequenceProportion<Character>(a, b, c, new CharacterSequence(d), true);
+        check(plain.isValid() == contents.contains(d) && interned.isValid() == plain.isValid(), "validity differs from the exhaustive enumeration for " + proportion);
+        check(!plain.isValid() || plain.getDegree() == interned.getDegree(), "interned degree differs for " + proportion);
+      }
+    }
+  }
+
+  /**
+   * Compares the lattice engines with the exhaustive enumeration of the factorizations, and with the A* engine,
+   * whose solutions are a subset of them since fast forwarding skips some factorizations.
+   */
+  private static void checkLatticeEngine() {
+    Random random = new Random(1);
+    SubtypeRebuilder<Sequence<Character>, Sequence<Character>> identity = SubtypeRebuilder.identity();
+    for (int i = 0; i < 300; i++) {
+      CharacterSequence a = randomSequence(random, 4, "abc"), b = randomSequence(random, 4, "abc"), c = randomSequence(random, 4, "abc");
+      HashSet<String> expected = new HashSet<String>();
+      factorizations(a.toString(), b.toString(), c.toString(), 0, 0, 0, null, 0, "", expected);
+      HashSet<String> lattice = solutionSet(new LatticeSequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+      HashSet<String> parallel = solutionSet(new ParallelSequenceEquation<Character, Sequence<Character>>(a, b, c, identity, false, SolvingOptions.DEFAULT, ForkJoinPool.commonPool()));
+      HashSet<String> astar = solutionSet(new SequenceEquation<Character, Sequence<Character>>(a, b, c, identity));
+      String equation = a + " : " + b + " :: " + c;
+      check(expected.equals(lattice), "lattice solutions differ from the exhaustive enumeration for " + equation);
+      check(lattice.equals(parallel), "parallel lattice solutions differ from the lattice for " + equation);
+      check(lattice.containsAll(astar), "A* solutions are not a subset of the lattice ones for " + equation);
+    }
+  }
+
+  public static void main(String[] args) throws NoSolutionException, InvalidParameterException, InvalidProportionException, IOException, InterruptedException, ClassNotFoundException {
     String equation;
     
     final SubtypeRebuilder<Sequence<Character>, CharacterSequence> charSeqRebuilder = new SubtypeRebuilder<Sequence<Character>, CharacterSequence>() {
@@ -97,5 +1450,32 @@ public class Test {
     equation = sA + " : " + sB + " :: " + sC + " : ";
     for (Solution<ImmutableSet<Integer>> s: new SimpleSetEquation<Integer>(sA, sB, sC))
       System.out.println(equation + s.getContent());
+
+    checkLatticeEngine();
+    checkSortedSets();
+    checkBatchSolver();
+    checkProportionEvents();
+    checkEquationEvents();
+    checkSlowLog();
+    checkSolutionCache();
+    checkTuplePlan();
+    checkProportionCache();
+    checkPrefetching();
+    checkSequenceProportions();
+    checkFactorizations();
+    checkInternedSequences();
+    checkBucketQueue();
+    checkDegreeLowerBound();
+    checkDegreeBounds();
+    checkBudgets();
+    checkParallelLattice();
+    checkTupleProduct();
+    checkCompactTuples();
+    checkBitSets();
+    checkDomainRegistry();
+    checkSolverStats();
+    checkStreams();
+    checkPublisher();
+    checkLongRuns();
   }
 }
@@ -0,0 +1,128 @@
+package io.github.vletard.analogy.sequence;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue specialized for small, dense, non negative integer priorities such as factorization degrees.
+ * Items are stored in one bucket per priority, and the lowest non empty bucket is tracked by a cursor that
+ * only moves forward unless an item of lower priority is added.
+ * Within a bucket, items are polled in reverse order of insertion.
+ * Emptied buckets keep their capacity, so that the queue can be refilled without further allocation.
+ * @author Vincent Letard
+ *
+ * @param <H> the type of the queued items (typically reading heads).
+ */
+public class BucketQueue<H> {
+  private final ArrayList<ArrayList<H>> buckets;
+  private int minimum;
+  private int size;
+  private int peakSize;
+
+  /**
+   * Constructs a new empty queue.
+   */
+  public BucketQueue() {
+    this.buckets = new ArrayList<ArrayList<H>>();
+    this.minimum = 0;
+    this.size = 0;
+    this.peakSize = 0;
+  }
+
+  /**
+   * Adds an item to this queue with the provided priority.
+   * @param priority the priority of the item, lower being polled first.
+   * @param item the item to be added.
+   */
+  public void add(int priority, H item) {
+    if (priority < 0)
+      throw new IllegalArgumentException("The priority of a bucket queue item cannot be negative.");
+    while (this.buckets.size() <= priority)
+      this.buckets.add(new ArrayList<H>());
+    this.buckets.get(priority).add(item);
+    if (priority < this.minimum)
+      this.minimum = priority;
+    this.size ++;
+    if (this.size > this.peakSize)
+      this.peakSize = this.size;
+  }
+
+  /**
+   * Moves the cursor to the lowest non empty bucket.
+   */
+  private void advance() {
+    if (this.size == 0)
+      throw new NoSuchElementException();
+    while (this.buckets.get(this.minimum).isEmpty())
+      this.minimum ++;
+  }
+
+  /**
+   * Returns the lowest priority among the queued items.
+   * @return the priority of the next item to be polled.
+   * @throws NoSuchElementException if this queue is empty.
+   */
+  public int peekPriority() {
+    this.advance();
+    return this.minimum;
+  }
+
+  /**
+   * Removes and returns an item of lowest priority.
+   * @return the polled item.
+   * @throws NoSuchElementException if this queue is empty.
+   */
+  public H poll() {
+    this.advance();
+    ArrayList<H> bucket = this.buckets.get(this.minimum);
+    this.size --;
+    return bucket.remove(bucket.size() - 1);
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the greatest number of items simultaneously held by this queue since its creation.
+   * @return the peak size of this queue.
+   */
+  public int getPeakSize() {
+    return this.peakSize;
+  }
+
+  /**
+   * Moves every other item of each bucket into a new queue, such that both queues hold about half of the items of each priority.
+   * @return the queue of the moved items.
+   */
+  public BucketQueue<H> split() {
+    BucketQueue<H> other = new BucketQueue<H>();
+    for (int priority = this.minimum; priority < this.buckets.size(); priority++) {
+      ArrayList<H> bucket = this.buckets.get(priority);
+      int kept = 0;
+      for (int i = 0; i < bucket.size(); i++) {
+        if (i % 2 == 0)
+          bucket.set(kept ++, bucket.get(i));
+        else
+          other.add(priority, bucket.get(i));
+      }
+      this.size -= bucket.size() - kept;
+      bucket.subList(kept, bucket.size()).clear();
+    }
+    return other;
+  }
+
+  /**
+   * Removes every item of this queue, keeping the capacity of its buckets.
+   */
+  public void clear() {
+    for (ArrayList<H> bucket: this.buckets)
+      bucket.clear();
+    this.minimum = 0;
+    this.size = 0;
+  }
+}
@@ -0,0 +1,91 @@
+package io.github.vletard.analogy.sequence;
+
+/**
+ * This class computes an admissible lower bound of the number of factors still to be opened by a partial factorization
+ * of a {@link SequenceEquation}, from the unread suffixes of A, B and C.
+ *
+ * While A and B suffixes are not permutations of each other, some item has to be read by an AC or BD step,
+ * which requires a crossed factor. Likewise, while A and C suffixes are not permutations of each other, a straight factor
+ * is required. Each required orientation that differs from the orientation of the current last factor costs at least
+ * one additional factor.
+ *
+ * Two suffixes can only be permutations of each other when they have the same length, thus only one suffix of B
+ * (resp. C) has to be compared to each suffix of A, and the whole precomputation is linear in the sizes of the sequences.
+ * @author Vincent Letard
+ *
+ * @param <E> The items composing the sequences of the analogical equation.
+ */
+public class DegreeLowerBound<E> {
+  private final int offsetB, offsetC;
+
+  /**
+   * sameAB[i] is true if A[i..] is a permutation of B[i + offsetB..].
+   */
+  private final boolean[] sameAB;
+
+  /**
+   * sameAC[i] is true if A[i..] is a permutation of C[i + offsetC..].
+   */
+  private final boolean[] sameAC;
+
+  public DegreeLowerBound(SequenceEquation<E, ?> equation) {
+    SymbolTable<E> symbols = new SymbolTable<E>();
+    int[] a = symbols.encode(equation.a);
+    int[] b = symbols.encode(equation.b);
+    int[] c = symbols.encode(equation.c);
+    this.offsetB = b.length - a.length;
+    this.offsetC = c.length - a.length;
+    this.sameAB = samePermutations(a, b, symbols.size());
+    this.sameAC = samePermutations(a, c, symbols.size());
+  }
+
+  /**
+   * Compares the suffixes of two encoded sequences having the same length, sweeping from their ends.
+   * @param a the first encoded sequence
+   * @param other the second encoded sequence
+   * @param alphabetSize the number of distinct codes
+   * @return an array indexed on suffixes of a, true where both suffixes are permutations of each other.
+   */
+  private static boolean[] samePermutations(int[] a, int[] other, int alphabetSize) {
+    boolean[] same = new boolean[a.length + 1];
+    int offset = other.length - a.length;
+    int[] counts = new int[alphabetSize];
+    int unbalanced = 0;
+    for (int i = a.length; i >= 0; i--) {
+      int j = i + offset;
+      if (j < 0)
+        break;
+      if (i < a.length) {
+        if (counts[a[i]] ++ == 0)
+          unbalanced ++;
+        else if (counts[a[i]] == 0)
+          unbalanced --;
+        if (counts[other[j]] -- == 0)
+          unbalanced ++;
+        else if (counts[other[j]] == 0)
+          unbalanced --;
+      }
+      same[i] = (unbalanced == 0);
+    }
+    return same;
+  }
+
+  /**
+   * Returns a lower bound of the number of factors still to be opened from the provided position.
+   * @param a current index in A
+   * @param b current index in B
+   * @param c current index in C
+   * @param last the current last factor, or null if no factor was opened yet
+   * @return a lower bound of the degree remaining to reach a complete factorization.
+   */
+  public int remaining(int a, int b, int c, Factor<E, ?> last) {
+    boolean needCrossed = !(b - a == this.offsetB && this.sameAB[a]);
+    boolean needStraight = !(c - a == this.offsetC && this.sameAC[a]);
+    int bound = 0;
+    if (needCrossed && (last == null || !last.isCrossed()))
+      bound ++;
+    if (needStraight && (last == null || last.isCrossed()))
+      bound ++;
+    return bound;
+  }
+}
@@ -18,38 +18,41 @@ public class EquationReadingHead<E, S extends Sequence<E>>{
     this.factorization = new Factorization<E, S>(equation.getRebuilder());
   }
 
-  private E getB(){
-    return this.equation.b.get(this.b);
-  }
-
-  private E getC(){
-    return this.equation.c.get(this.c);
-  }
-
-  private EquationReadingHead(EquationReadingHead<E, S> eqn, Step step) throws ImpossibleStepException{
+  /**
+   * Creates a new reading head by repeating the same step.
+   * @param eqn the reading head from which the steps are performed
+   * @param step the step to perform
+   * @param count the number of times the step is performed, all of them must be possible
+   * @throws ImpossibleStepException if the first step cannot be performed
+   */
+  private EquationReadingHead(EquationReadingHead<E, S> eqn, Step step, int count) throws ImpossibleStepException{
     if (!eqn.canStep(step))
       throw new ImpossibleStepException();
     this.equation = eqn.equation;
     int a = eqn.a;
     int b = eqn.b;
     int c = eqn.c;
-    switch (step){
-    case AB : this.factorization = eqn.factorization.extendListB(false, eqn.getB());
-    a += 1;
-    b += 1;
-    break;
-    case AC : this.factorization = eqn.factorization.extendListC(true, eqn.getC());
-    a += 1;
-    c += 1;
-    break;
-    case CD : this.factorization = eqn.factorization.extendListC(false, eqn.getC());
-    c += 1;
-    break;
-    case BD : this.factorization = eqn.factorization.extendListB(true, eqn.getB());
-    b += 1;
-    break;
-    default: throw new IllegalArgumentException("A new reading head can only be created with a defined step.");
+    Factorization<E, S> factorization = eqn.factorization;
+    for (int i = 0; i < count; i++) {
+      switch (step){
+      case AB : factorization = factorization.extendListB(false, this.equation.b.get(b));
+      a += 1;
+      b += 1;
+      break;
+      case AC : factorization = factorization.extendListC(true, this.equation.c.get(c));
+      a += 1;
+      c += 1;
+      break;
+      case CD : factorization = factorization.extendListC(false, this.equation.c.get(c));
+      c += 1;
+      break;
+      case BD : factorization = factorization.extendListB(true, this.equation.b.get(b));
+      b += 1;
+      break;
+      default: throw new IllegalArgumentException("A new reading head can only be created with a defined step.");
+      }
     }
+    this.factorization = factorization;
     this.a = a;
     this.b = b;
     this.c = c;
@@ -62,8 +65,8 @@ public class EquationReadingHead<E, S extends Sequence<E>>{
    */
   public boolean canStep(Step step){
     switch (step){
-    case AB : return (a < equation.a.size() && b < equation.b.size() && equation.a.get(a).equals(equation.b.get(b)));
-    case AC : return (a < equation.a.size() && c < equation.c.size() && equation.a.get(a).equals(equation.c.get(c)));
+    case AB : return (a < equation.a.size() && b < equation.b.size() && equation.matchAB(a, b));
+    case AC : return (a < equation.a.size() && c < equation.c.size() && equation.matchAC(a, c));
     case CD : return (c < equation.c.size());
     case BD : return (b < equation.b.size());
     default : return false;
@@ -90,6 +93,17 @@ public class EquationReadingHead<E, S extends Sequence<E>>{
     return this.factorization.degree();
   }
 
+  /**
+   * Returns a lower bound of the degree of any complete factorization reachable from this EquationReadingHead,
+   * computed as its current degree plus the admissible estimate of the provided bound.
+   * If isFinished() is true, the returned degree is the current degree.
+   * @param bound the lower bound estimator of the equation of this reading head.
+   * @return The estimated degree of this EquationReadingHead.
+   */
+  public int getEstimatedDegree(DegreeLowerBound<E> bound) {
+    return this.getCurrentDegree() + bound.remaining(this.a, this.b, this.c, this.factorization.getLastFactor());
+  }
+
   /**
    * Returns the factorization corresponding to this EquationReadingHead, for its current state.
    * It contains the solution built up to this state.
@@ -108,17 +122,42 @@ public class EquationReadingHead<E, S extends Sequence<E>>{
    * @throws ImpossibleStepException If the step cannot be applied.
    */
   public EquationReadingHead<E, S> makeStep(Step step, boolean fastForward) throws ImpossibleStepException {
-    EquationReadingHead<E, S> newHead = new EquationReadingHead<E, S>(this, step);
     if (fastForward) {
-      while (newHead.canStep(step) && (step != Step.BD || !newHead.canStep(Step.AB)) && (step != Step.CD || !newHead.canStep(Step.AC)) ) {
-        EquationReadingHead<E, S> fastForwardHead = newHead.makeStep(step, fastForward);
-        if (fastForwardHead.getCurrentDegree() > newHead.getCurrentDegree())
-          break;
-        else
-          newHead = fastForwardHead;
-      }
+      int length = this.fastForwardLength(step);
+      this.equation.getOptions().getStats().fastForward(length - 1);
+      return new EquationReadingHead<E, S>(this, step, length);
+    }
+    else
+      return new EquationReadingHead<E, S>(this, step, 1);
+  }
+
+  /**
+   * Computes how many times the given step can be repeated from this reading head while keeping the same degree.
+   * AB and AC steps are repeated along a run of matches, CD (resp. BD) steps are repeated until an AC
+   * (resp. AB) step becomes possible. Each run is found by a single scan of the match matrices of the equation.
+   * @param step the step to be repeated
+   * @return the number of steps, at least 1.
+   */
+  private int fastForwardLength(Step step) {
+    switch (step){
+    case AB : return Math.max(1, this.equation.getMatchesAB().diagonalRun(this.a, this.b));
+    case AC : return Math.max(1, this.equation.getMatchesAC().diagonalRun(this.a, this.c));
+    case CD :
+      if (this.c >= this.equation.c.size())
+        return 1;
+      else if (this.a < this.equation.a.size())
+        return this.equation.getMatchesAC().nextInRow(this.a, this.c + 1) - this.c;
+      else
+        return this.equation.c.size() - this.c;
+    case BD :
+      if (this.b >= this.equation.b.size())
+        return 1;
+      else if (this.a < this.equation.a.size())
+        return this.equation.getMatchesAB().nextInRow(this.a, this.b + 1) - this.b;
+      else
+        return this.equation.b.size() - this.b;
+    default : return 1;
     }
-    return newHead;
   }
 
   @Override
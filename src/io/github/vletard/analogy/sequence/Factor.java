@@ -5,47 +5,101 @@ import java.util.List;
 import io.github.vletard.analogy.SubtypeRebuilder;
 
 public class Factor<E, T extends Sequence<E>> {
-  private final T b;
-  private final T c;
+  private final ItemChain<E> bItems;
+  private final ItemChain<E> cItems;
   private final boolean crossed;
   private final SubtypeRebuilder<Sequence<E>, T> rebuilder;
-  
-  public Factor(boolean crossed, List<E> b, List<E> c, SubtypeRebuilder<Sequence<E>, T> rebuilder) {
+
+  /**
+   * Sequences rebuilt from the item chains on first access.
+   */
+  private volatile T b, c;
+
+  private Factor(boolean crossed, ItemChain<E> bItems, ItemChain<E> cItems, SubtypeRebuilder<Sequence<E>, T> rebuilder) {
     this.crossed = crossed;
-    this.b = rebuilder.rebuild(new Sequence<E>(b));
-    this.c = rebuilder.rebuild(new Sequence<E>(c));
+    this.bItems = bItems;
+    this.cItems = cItems;
     this.rebuilder = rebuilder;
   }
 
+  public Factor(boolean crossed, List<E> b, List<E> c, SubtypeRebuilder<Sequence<E>, T> rebuilder) {
+    this(crossed, ItemChain.of(b), ItemChain.of(c), rebuilder);
+  }
+
   public Factor(Factor<E, T> factor, List<E> addB, List<E> addC) {
-    this.crossed = factor.isCrossed();
-    this.rebuilder = factor.rebuilder;
-    this.b = this.rebuilder.rebuild(Sequence.concat(factor.b, new Sequence<E>(addB)));
-    this.c = this.rebuilder.rebuild(Sequence.concat(factor.c, new Sequence<E>(addC)));
+    this(factor.crossed, factor.bItems.appendAll(addB), factor.cItems.appendAll(addC), factor.rebuilder);
+  }
+
+  /**
+   * Extends this factor with one item on its B side, in constant time.
+   * The original factor is not edited.
+   * @param item Item to be added.
+   * @return the extended factor.
+   */
+  Factor<E, T> extendB(E item) {
+    return new Factor<E, T>(this.crossed, this.bItems.append(item), this.cItems, this.rebuilder);
+  }
+
+  /**
+   * Extends this factor with one item on its C side, in constant time.
+   * The original factor is not edited.
+   * @param item Item to be added.
+   * @return the extended factor.
+   */
+  Factor<E, T> extendC(E item) {
+    return new Factor<E, T>(this.crossed, this.bItems, this.cItems.append(item), this.rebuilder);
+  }
+
+  /**
+   * Returns the items of the B side of this factor, without rebuilding any {@link Sequence}.
+   * @return a newly allocated list of items.
+   */
+  List<E> getBItems() {
+    return this.bItems.toList();
+  }
+
+  /**
+   * Returns the items of the C side of this factor, without rebuilding any {@link Sequence}.
+   * @return a newly allocated list of items.
+   */
+  List<E> getCItems() {
+    return this.cItems.toList();
+  }
+
+  /**
+   * Returns the length of the longest string representation among both sides of this factor.
+   * @return the width of this factor.
+   */
+  int width() {
+    return Math.max(this.bItems.width(), this.cItems.width());
   }
 
   public T getB() {
-    return b;
+    if (this.b == null)
+      this.b = this.rebuilder.rebuild(new Sequence<E>(this.bItems.toList()));
+    return this.b;
   }
 
   public T getC() {
-    return c;
+    if (this.c == null)
+      this.c = this.rebuilder.rebuild(new Sequence<E>(this.cItems.toList()));
+    return this.c;
   }
-  
+
   public boolean isCrossed() {
     return this.crossed;
   }
 
   public Factor<E, T> dual() {
-    return new Factor<E, T>(!this.crossed, this.c.toList(), this.b.toList(), this.rebuilder);
+    return new Factor<E, T>(!this.crossed, this.cItems, this.bItems, this.rebuilder);
   }
 
   @Override
   public int hashCode() {
     final int prime = 31;
     int result = 1;
-    result = prime * result + ((b == null) ? 0 : b.hashCode());
-    result = prime * result + ((c == null) ? 0 : c.hashCode());
+    result = prime * result + this.getB().hashCode();
+    result = prime * result + this.getC().hashCode();
     result = prime * result + (crossed ? 1231 : 1237);
     return result;
   }
@@ -60,15 +114,9 @@ public class Factor<E, T extends Sequence<E>> {
     if (getClass() != obj.getClass())
       return false;
     Factor other = (Factor) obj;
-    if (b == null) {
-      if (other.b != null)
-        return false;
-    } else if (!b.equals(other.b))
+    if (!this.getB().equals(other.getB()))
       return false;
-    if (c == null) {
-      if (other.c != null)
-        return false;
-    } else if (!c.equals(other.c))
+    if (!this.getC().equals(other.getC()))
       return false;
     if (crossed != other.crossed)
       return false;
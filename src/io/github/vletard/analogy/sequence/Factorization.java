@@ -2,7 +2,6 @@ package io.github.vletard.analogy.sequence;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 import io.github.vletard.analogy.Element;
@@ -17,61 +16,104 @@ import io.github.vletard.analogy.SubtypeRebuilder;
  */
 public class Factorization<E, S extends Sequence<E>> {
   
-  private final List<Factor<E, S>> factorList;
+  /**
+   * Factorization of every factor but the last one, shared with the factorizations this one was extended from.
+   * It is null for the empty factorization only.
+   */
+  private final Factorization<E, S> parent;
+  private final Factor<E, S> last;
+  private final int degree;
   private final SubtypeRebuilder<Sequence<E>, S> rebuilder;
+
+  /**
+   * Cached result of {@link #size()}, negative until computed.
+   */
+  private int size;
+
+  /**
+   * Lazily materialized list of the factors, see {@link #getFactors()}.
+   */
+  private volatile List<Factor<E, S>> factorList;
   
   /**
    * Constructs a new empty factorization.
    * @param rebuilder The required rebuilder for the used {@link Sequence} subtype.
    */
   public Factorization(SubtypeRebuilder<Sequence<E>, S> rebuilder) {
-    this.factorList = Collections.unmodifiableList(new ArrayList<Factor<E, S>>());
+    this.parent = null;
+    this.last = null;
+    this.degree = 0;
     this.rebuilder = rebuilder;
+    this.size = 0;
   }
   
   /**
-   * Constructs a new factorization with the specified {@link Factor} list.
+   * Constructs a new factorization by appending a {@link Factor} to the provided one.
    * Factor additions are subject to consistency checks thus this constructor is only for controlled local use.
-   * @param factorList The list of factors for the newly created factorization.
+   * @param parent The factorization of the preceding factors.
+   * @param last The last factor of the newly created factorization.
    * @param rebuilder The required rebuilder for the used {@link Sequence} subtype.
    */
-  private Factorization(List<Factor<E, S>> factorList, SubtypeRebuilder<Sequence<E>, S> rebuilder) {
-    this.factorList = Collections.unmodifiableList(new ArrayList<Factor<E, S>>(factorList));
+  private Factorization(Factorization<E, S> parent, Factor<E, S> last, SubtypeRebuilder<Sequence<E>, S> rebuilder) {
+    this.parent = parent;
+    this.last = last;
+    this.degree = parent.degree + 1;
     this.rebuilder = rebuilder;
+    this.size = -1;
   }
   
   /**
    * Extends this factorization with the provided item on B and D if crossed is true,
    * on A and B otherwise.
-   * The extended Factor list is returned, the provided list is not edited.
+   * The extension is performed in constant time, sharing the structure of this factorization which is not edited.
    * @param crossed Whether the new item should be added as crossed factor or not (see {@link Factor}).
    * @param item Item to be added for extension.
    * @return An immutable extension of this factorization with the provided item.
    */
   public Factorization<E, S> extendListB(boolean crossed, E item) {
-    LinkedList<Factor<E, S>> newList = new LinkedList<Factor<E, S>>(this.factorList);
-    if (newList.isEmpty() || newList.getLast().isCrossed() != crossed)
-      newList.add(new Factor<E, S>(crossed, Collections.singletonList(item), Collections.emptyList(), this.rebuilder));
+    if (this.last == null || this.last.isCrossed() != crossed)
+      return new Factorization<E, S>(this, new Factor<E, S>(crossed, Collections.singletonList(item), Collections.emptyList(), this.rebuilder), this.rebuilder);
     else
-      newList.add(new Factor<E, S>(newList.removeLast(), Collections.singletonList(item), Collections.emptyList()));
-    return new Factorization<E, S>(newList, this.rebuilder);
+      return new Factorization<E, S>(this.parent, this.last.extendB(item), this.rebuilder);
   }
   
   /**
    * Extends this factorization with the provided item on A and C if crossed is true,
    * on C and D otherwise.
-   * The extended Factor list is returned, the provided list is not edited.
+   * The extension is performed in constant time, sharing the structure of this factorization which is not edited.
    * @param crossed Whether the new item should be added as crossed factor or not (see {@link Factor}).
    * @param item Item to be added for extension.
    * @return An immutable extension of this factorization with the provided item.
    */
   public Factorization<E, S> extendListC(boolean crossed, E item) {
-    LinkedList<Factor<E, S>> newList = new LinkedList<Factor<E, S>>(this.factorList);
-    if (newList.isEmpty() || newList.getLast().isCrossed() != crossed)
-      newList.add(new Factor<E, S>(crossed, Collections.emptyList(), Collections.singletonList(item), rebuilder));
+    if (this.last == null || this.last.isCrossed() != crossed)
+      return new Factorization<E, S>(this, new Factor<E, S>(crossed, Collections.emptyList(), Collections.singletonList(item), this.rebuilder), this.rebuilder);
     else
-      newList.add(new Factor<E, S>(newList.removeLast(), Collections.emptyList(), Collections.singletonList(item)));
-    return new Factorization<E, S>(newList, this.rebuilder);
+      return new Factorization<E, S>(this.parent, this.last.extendC(item), this.rebuilder);
+  }
+
+  /**
+   * Returns the last factor of this factorization, in constant time.
+   * @return the last factor, or null if this factorization is empty.
+   */
+  public Factor<E, S> getLastFactor() {
+    return this.last;
+  }
+
+  /**
+   * Returns the list of factors of this factorization. The list is built on first access by walking
+   * the shared structure back.
+   * @return an unmodifiable list of the factors.
+   */
+  public List<Factor<E, S>> getFactors() {
+    if (this.factorList == null) {
+      ArrayList<Factor<E, S>> factors = new ArrayList<Factor<E, S>>(this.degree);
+      for (Factorization<E, S> f = this; f.last != null; f = f.parent)
+        factors.add(f.last);
+      Collections.reverse(factors);
+      this.factorList = Collections.unmodifiableList(factors);
+    }
+    return this.factorList;
   }
   
   /**
@@ -80,15 +122,15 @@ public class Factorization<E, S extends Sequence<E>> {
    * @return A list representing the concatenation of the sequence of the element.
    */
   public Sequence<E> extractElement(Element e){
-    Sequence<E> s = new Sequence<E>(Collections.emptyList());
-    for (Factor<E, S> f: this.factorList) {
+    ArrayList<E> items = new ArrayList<E>();
+    for (Factor<E, S> f: this.getFactors()) {
       if ((f.isCrossed() && (e == Element.B || e == Element.D))
           || (!f.isCrossed() && (e == Element.A || e == Element.B)))
-        s = Sequence.concat(s, f.getB());
+        items.addAll(f.getBItems());
       else
-        s = Sequence.concat(s, f.getC());
+        items.addAll(f.getCItems());
     }
-    return new Sequence<E>(s);
+    return new Sequence<E>(items);
   }
   
   /**
@@ -98,8 +140,9 @@ public class Factorization<E, S extends Sequence<E>> {
    */
   public String displayElement(Element e){
     String str = "";
-    for (int i = 0; i < this.factorList.size(); i++) {
-      Factor<E, S> f = this.factorList.get(i);
+    List<Factor<E, S>> factors = this.getFactors();
+    for (int i = 0; i < factors.size(); i++) {
+      Factor<E, S> f = factors.get(i);
       if (i > 0)
         str += "|";
       if ((f.isCrossed() && (e == Element.B || e == Element.D))
@@ -116,7 +159,7 @@ public class Factorization<E, S extends Sequence<E>> {
    * @return The degree of the factorization.
    */
   public int degree() {
-    return this.factorList.size();
+    return this.degree;
   }
   
   /**
@@ -124,10 +167,16 @@ public class Factorization<E, S extends Sequence<E>> {
    * @return The size of the factorization.
    */
   public int size() {
-    int size = 0;
-    for (Factor<E, S> f: this.factorList)
-      size += Math.max(f.getB().concatenate().length(), f.getC().concatenate().length());
-    return size;
+    if (this.size < 0) {
+      int size = 0;
+      Factorization<E, S> f = this;
+      while (f.size < 0) { // the size of the shared preceding factorizations may already be known
+        size += f.last.width();
+        f = f.parent;
+      }
+      this.size = size + f.size;
+    }
+    return this.size;
   }
 
   /**
@@ -135,10 +184,10 @@ public class Factorization<E, S extends Sequence<E>> {
    * @return the dual factorization.
    */
   public Factorization<E, S> dual() {
-    LinkedList<Factor<E, S>> newFactorList = new LinkedList<Factor<E,S>>();
-    for (Factor<E, S> f: this.factorList)
-      newFactorList.add(f.dual());
-    return new Factorization<E, S>(newFactorList, this.rebuilder);
+    Factorization<E, S> dual = new Factorization<E, S>(this.rebuilder);
+    for (Factor<E, S> f: this.getFactors())
+      dual = new Factorization<E, S>(dual, f.dual(), this.rebuilder);
+    return dual;
   }
 
   /**
@@ -147,15 +196,16 @@ public class Factorization<E, S extends Sequence<E>> {
    */
   @Override
   public String toString() {
+    List<Factor<E, S>> factors = this.getFactors();
     ArrayList<Integer> maxSizes = new ArrayList<Integer>();
-    for (Factor<E, S> f: this.factorList)
+    for (Factor<E, S> f: factors)
       maxSizes.add(Math.max(f.getB().concatenate().length(), f.getC().concatenate().length()));
     
     String str = "";
     for (int i = 0; i < 4; i++) {
       str += i + " ";
-      for (int j = 0; j < this.factorList.size(); j++) {
-        Factor<E, S> f = this.factorList.get(j);
+      for (int j = 0; j < factors.size(); j++) {
+        Factor<E, S> f = factors.get(j);
         int size = maxSizes.get(j);
         String content;
         if (i==1 || (i==0 && !f.isCrossed()) || (i==3 && f.isCrossed()))
@@ -163,7 +213,7 @@ public class Factorization<E, S extends Sequence<E>> {
         else
           content = f.getC().concatenate();
         str += String.format("%" + size + "s", content);
-        if (j < this.factorList.size() - 1)
+        if (j < factors.size() - 1)
           str += "|";
       }
       str += "\n";
@@ -0,0 +1,96 @@
+package io.github.vletard.analogy.sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Persistent list of items, only growing at its end.
+ * Appending an item is performed in constant time and shares the whole structure of the original chain,
+ * which is never edited.
+ * @author Vincent Letard
+ *
+ * @param <E> the type of the items of the chain.
+ */
+class ItemChain<E> {
+  @SuppressWarnings("rawtypes")
+  private static final ItemChain EMPTY = new ItemChain<Object>(null, null, 0);
+
+  private final ItemChain<E> previous;
+  private final E item;
+  private final int size;
+
+  /**
+   * Cumulated length of the string representations of the items, computed on first use.
+   */
+  private int width;
+
+  private ItemChain(ItemChain<E> previous, E item, int size) {
+    this.previous = previous;
+    this.item = item;
+    this.size = size;
+    this.width = (size == 0) ? 0 : -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E> ItemChain<E> empty() {
+    return (ItemChain<E>) EMPTY;
+  }
+
+  static <E> ItemChain<E> of(Iterable<E> items) {
+    ItemChain<E> chain = empty();
+    return chain.appendAll(items);
+  }
+
+  ItemChain<E> append(E item) {
+    return new ItemChain<E>(this, item, this.size + 1);
+  }
+
+  ItemChain<E> appendAll(Iterable<E> items) {
+    ItemChain<E> chain = this;
+    for (E item: items)
+      chain = chain.append(item);
+    return chain;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the length of the concatenation of the string representations of the items of this chain.
+   * Widths are cached along the chain, so that each item is only converted once whatever the chains sharing it.
+   * @return the width of this chain.
+   */
+  int width() {
+    if (this.width < 0) {
+      ArrayList<ItemChain<E>> pending = new ArrayList<ItemChain<E>>();
+      ItemChain<E> chain = this;
+      while (chain.width < 0) {
+        pending.add(chain);
+        chain = chain.previous;
+      }
+      int width = chain.width;
+      for (int i = pending.size() - 1; i >= 0; i--) {
+        width += pending.get(i).item.toString().length();
+        pending.get(i).width = width;
+      }
+    }
+    return this.width;
+  }
+
+  /**
+   * Copies the items of this chain, in order of insertion.
+   * @return a newly allocated list of the items.
+   */
+  @SuppressWarnings("unchecked")
+  List<E> toList() {
+    Object[] items = new Object[this.size];
+    ItemChain<E> chain = this;
+    for (int i = this.size - 1; i >= 0; i--) {
+      items[i] = chain.item;
+      chain = chain.previous;
+    }
+    return new ArrayList<E>((List<E>) Arrays.asList(items));
+  }
+}
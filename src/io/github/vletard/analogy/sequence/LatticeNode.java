@@ -0,0 +1,78 @@
+package io.github.vletard.analogy.sequence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A state of the {@link SequenceLattice}: a position (a, b, c) in the three sequences of an equation,
+ * reached at a given degree by a given last {@link Step}.
+ * Every path leading to the same state is merged into a single node, which keeps backpointers
+ * to all of its predecessors.
+ * @author Vincent Letard
+ */
+public class LatticeNode {
+  private final int a, b, c;
+  private final Step step;
+  private final int degree;
+  private final ArrayList<LatticeNode> predecessors;
+
+  LatticeNode(int a, int b, int c, Step step, int degree) {
+    this.a = a;
+    this.b = b;
+    this.c = c;
+    this.step = step;
+    this.degree = degree;
+    this.predecessors = new ArrayList<LatticeNode>();
+  }
+
+  /**
+   * Adds a backpointer to this node. Synchronized, as the layers of a lattice may be built concurrently.
+   * @param predecessor the node from which this node is reached
+   */
+  synchronized void addPredecessor(LatticeNode predecessor) {
+    this.predecessors.add(predecessor);
+  }
+
+  public int getA() {
+    return this.a;
+  }
+
+  public int getB() {
+    return this.b;
+  }
+
+  public int getC() {
+    return this.c;
+  }
+
+  /**
+   * Returns the step that leads to this node from any of its predecessors.
+   * The start node of the lattice is the only node with an {@link Step#UNDEFINED} step.
+   * @return the last step of this node.
+   */
+  public Step getStep() {
+    return this.step;
+  }
+
+  /**
+   * Returns the degree (number of factors) of every partial factorization leading to this node.
+   * @return the degree of this node.
+   */
+  public int getDegree() {
+    return this.degree;
+  }
+
+  /**
+   * Returns the nodes from which this node can be reached by performing its step.
+   * @return an unmodifiable list of predecessors.
+   */
+  public List<LatticeNode> getPredecessors() {
+    return Collections.unmodifiableList(this.predecessors);
+  }
+
+  @Override
+  public String toString() {
+    return "(" + this.a + ", " + this.b + ", " + this.c + ", " + this.step + ", " + this.degree + ")";
+  }
+}
@@ -0,0 +1,133 @@
+package io.github.vletard.analogy.sequence;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import io.github.vletard.analogy.DegreeCutoff;
+import io.github.vletard.analogy.Element;
+import io.github.vletard.analogy.EquationEvent;
+import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SolverStats;
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SubtypeRebuilder;
+
+/**
+ * This class is an alternative solving engine for analogical equations on sequences.
+ * Instead of exploring every path of the search independently, it builds the {@link SequenceLattice} of the equation,
+ * in which partial factorizations sharing the same position and last step are merged.
+ * The cost of the search is then polynomial in the sizes of the sequences, and only the enumeration of the solutions
+ * depends on their number.
+ *
+ * Unlike {@link SequenceEquation}, which skips some factorizations by fast forwarding its steps, every factorization
+ * of the equation is enumerated exactly once, in ascending order of degree. Both engines are thus not interchangeable:
+ * the solutions of {@link SequenceEquation} are a subset of the solutions of this engine, which also finds solutions
+ * that fast forwarding never reaches, and in rare cases a lower minimal degree.
+ * @author Vincent Letard
+ *
+ * @param <E> The items composing the sequences of the analogical Equation.
+ */
+public class LatticeSequenceEquation<E, Subtype extends Sequence<E>> extends SequenceEquation<E, Subtype> {
+
+  public LatticeSequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder) {
+    super(a, b, c, rebuilder);
+  }
+
+  public LatticeSequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder, boolean interned) {
+    super(a, b, c, rebuilder, interned);
+  }
+
+  public LatticeSequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder, boolean interned, SolvingOptions options) {
+    super(a, b, c, rebuilder, interned, options);
+  }
+
+  @Override
+  public LatticeSequenceEquation<E, Subtype> dual() {
+    return new LatticeSequenceEquation<E, Subtype>(this.a, this.c, this.b, this.getRebuilder(), this.isInterned(), this.getOptions());
+  }
+
+  /**
+   * Creates the lattice explored by a new iterator of this equation.
+   * @return a new lattice with only its first layer built.
+   */
+  protected SequenceLattice<E, Subtype> createLattice() {
+    return new SequenceLattice<E, Subtype>(this);
+  }
+
+  @Override
+  public Iterator<Solution<Subtype>> iterator() {
+    if (!this.checkCounts())
+      return Collections.emptyIterator();
+
+    final SequenceLattice<E, Subtype> lattice = this.createLattice();
+    return new Iterator<Solution<Subtype>>() {
+      private final DegreeCutoff cutoff = new DegreeCutoff(LatticeSequenceEquation.this.getOptions());
+      private int currentDegree = 0;
+      private Iterator<Factorization<E, Subtype>> factorizations = lattice.factorizations(0);
+      private final SolverStats stats = LatticeSequenceEquation.this.getOptions().getStats();
+      private final EquationEvent event = new EquationEvent(LatticeSequenceEquation.this);
+      private long recordedNodes = 0;
+      private Solution<Subtype> nextElement = null;
+
+      @Override
+      public boolean hasNext() {
+        long start = this.stats.start();
+        boolean found;
+        try {
+          found = this.search();
+        } finally {
+          this.stats.stop(start);
+        }
+        if (!found) {
+          this.recordNodes();
+          this.event.finish();
+        }
+        return found;
+      }
+
+      /**
+       * Records the lattice nodes built since the last call as expanded states of the event.
+       */
+      private void recordNodes() {
+        long nodes = lattice.getNodeCount();
+        this.event.expanded(nodes - this.recordedNodes);
+        this.recordedNodes = nodes;
+      }
+
+      private boolean search() {
+        while (this.nextElement == null) {
+          if (!this.cutoff.accepts(this.currentDegree) || !LatticeSequenceEquation.this.getOptions().getBudget().check())
+            return false;
+          else if (this.factorizations.hasNext()) {
+            Factorization<E, Subtype> factorization = this.factorizations.next();
+            this.cutoff.record(this.currentDegree);
+            Sequence<E> sequence = factorization.extractElement(Element.D);
+            this.nextElement = new SequenceSolution<E, Subtype>(LatticeSequenceEquation.this.getRebuilder().rebuild(sequence), this.currentDegree, factorization);
+            this.stats.solution(this.currentDegree);
+            if (this.recordedNodes == 0)
+              this.recordNodes(); // the work of the first solution, the rest being recorded at the end
+            this.event.solution(this.currentDegree);
+          }
+          else if (!this.cutoff.accepts(this.currentDegree + 1) || lattice.getLayer(this.currentDegree + 1).isEmpty())
+            return false; // the layers beyond the maximum degree are never built
+          else {
+            this.currentDegree ++;
+            this.factorizations = lattice.factorizations(this.currentDegree);
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public Solution<Subtype> next() {
+        if (this.hasNext()) {
+          Solution<Subtype> next = this.nextElement;
+          this.nextElement = null;
+          return next;
+        }
+        else
+          throw new NoSuchElementException();
+      }
+    };
+  }
+}
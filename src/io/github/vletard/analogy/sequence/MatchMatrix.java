@@ -0,0 +1,109 @@
+package io.github.vletard.analogy.sequence;
+
+/**
+ * Packed bit matrix of the equality relation between the items of two encoded sequences X and Y:
+ * the bit (i, j) is set if and only if X[i] equals Y[j].
+ * The matrix is stored twice, by rows and by diagonals, such that both the next match in a row
+ * and the length of a run of matches along a diagonal are found by scanning whole words.
+ * It is built from the positions of each symbol in Y, in time proportional to the number of matches.
+ * @author Vincent Letard
+ */
+public class MatchMatrix {
+  private final int rows, columns;
+
+  /**
+   * rowBits[i] holds the bits (i, j) for every j.
+   */
+  private final long[][] rowBits;
+
+  /**
+   * diagonalBits[j - i + rows] holds the bits (i, j) of a diagonal, indexed on i.
+   */
+  private final long[][] diagonalBits;
+
+  /**
+   * Builds the match matrix of two encoded sequences.
+   * @param x the codes of the sequence indexing rows
+   * @param y the codes of the sequence indexing columns
+   * @param alphabetSize the number of distinct codes (every code must be lower)
+   */
+  public MatchMatrix(int[] x, int[] y, int alphabetSize) {
+    this.rows = x.length;
+    this.columns = y.length;
+    this.rowBits = new long[this.rows][words(this.columns)];
+    this.diagonalBits = new long[this.rows + this.columns + 1][words(this.rows)];
+
+    int[] counts = new int[alphabetSize];
+    for (int code: y)
+      counts[code] ++;
+    int[][] positions = new int[alphabetSize][];
+    for (int code = 0; code < alphabetSize; code++)
+      positions[code] = new int[counts[code]];
+    int[] filled = new int[alphabetSize];
+    for (int j = 0; j < y.length; j++)
+      positions[y[j]][filled[y[j]] ++] = j;
+
+    for (int i = 0; i < x.length; i++)
+      for (int j: positions[x[i]]) {
+        this.rowBits[i][j >>> 6] |= 1L << j;
+        this.diagonalBits[j - i + this.rows][i >>> 6] |= 1L << i;
+      }
+  }
+
+  private static int words(int bits) {
+    return (bits + 63) >>> 6;
+  }
+
+  /**
+   * Returns whether X[i] equals Y[j].
+   * @param i index in X
+   * @param j index in Y
+   * @return true if both items are equal
+   */
+  public boolean get(int i, int j) {
+    return (this.rowBits[i][j >>> 6] & (1L << j)) != 0;
+  }
+
+  /**
+   * Returns the number of consecutive matches (i, j), (i+1, j+1), ... starting at the provided position.
+   * @param i index in X
+   * @param j index in Y
+   * @return the length of the run of matches along the diagonal, 0 if X[i] differs from Y[j].
+   */
+  public int diagonalRun(int i, int j) {
+    if (i >= this.rows || j >= this.columns)
+      return 0;
+    long[] bits = this.diagonalBits[j - i + this.rows];
+    int word = i >>> 6;
+    long current = ~bits[word] & (-1L << i);
+    while (current == 0) {
+      word ++;
+      if (word >= bits.length)
+        return Math.min(this.rows - i, this.columns - j);
+      current = ~bits[word];
+    }
+    int end = (word << 6) + Long.numberOfTrailingZeros(current);
+    return Math.min(end - i, Math.min(this.rows - i, this.columns - j));
+  }
+
+  /**
+   * Returns the lowest index j' greater or equal to j such that X[i] equals Y[j'].
+   * @param i index in X
+   * @param j starting index in Y
+   * @return the index of the next match in the row, or the number of columns if there is none.
+   */
+  public int nextInRow(int i, int j) {
+    if (j >= this.columns)
+      return this.columns;
+    long[] bits = this.rowBits[i];
+    int word = j >>> 6;
+    long current = bits[word] & (-1L << j);
+    while (current == 0) {
+      word ++;
+      if (word >= bits.length)
+        return this.columns;
+      current = bits[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(current);
+  }
+}
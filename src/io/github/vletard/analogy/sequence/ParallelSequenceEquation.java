@@ -0,0 +1,75 @@
+package io.github.vletard.analogy.sequence;
+
+import java.util.concurrent.ForkJoinPool;
+
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SubtypeRebuilder;
+
+/**
+ * This class is a parallel variant of {@link LatticeSequenceEquation}.
+ * Each layer of the {@link SequenceLattice} is built on a {@link ForkJoinPool}: the nodes of the layer that share
+ * the same position sum do not depend on each other, thus they are expanded concurrently, and the reached nodes are merged
+ * in a concurrent map of the layer.
+ * Layers are still built in ascending order of degree, such that solutions are enumerated in that order,
+ * but the order of the solutions of the same degree may differ from one run to another.
+ * @author Vincent Letard
+ *
+ * @param <E> The items composing the sequences of the analogical Equation.
+ */
+public class ParallelSequenceEquation<E, Subtype extends Sequence<E>> extends LatticeSequenceEquation<E, Subtype> {
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs a new sequence equation solved on the common pool.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param rebuilder the rebuilder for the used {@link Sequence} subtype
+   */
+  public ParallelSequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder) {
+    this(a, b, c, rebuilder, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a new sequence equation solved on the provided pool.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param rebuilder the rebuilder for the used {@link Sequence} subtype
+   * @param pool the pool building the layers of the lattice
+   */
+  public ParallelSequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder, ForkJoinPool pool) {
+    this(a, b, c, rebuilder, false, SolvingOptions.DEFAULT, pool);
+  }
+
+  /**
+   * Constructs a new sequence equation solved on the provided pool.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param rebuilder the rebuilder for the used {@link Sequence} subtype
+   * @param interned whether the items are interned once for this equation
+   * @param options the solving options
+   * @param pool the pool building the layers of the lattice
+   */
+  public ParallelSequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder, boolean interned,
+      SolvingOptions options, ForkJoinPool pool) {
+    super(a, b, c, rebuilder, interned, options);
+    this.pool = pool;
+  }
+
+  public ForkJoinPool getPool() {
+    return this.pool;
+  }
+
+  @Override
+  protected SequenceLattice<E, Subtype> createLattice() {
+    return new SequenceLattice<E, Subtype>(this, this.pool);
+  }
+
+  @Override
+  public ParallelSequenceEquation<E, Subtype> dual() {
+    return new ParallelSequenceEquation<E, Subtype>(this.a, this.c, this.b, this.getRebuilder(), this.isInterned(), this.getOptions(), this.pool);
+  }
+}
@@ -1,5 +1,6 @@
 package io.github.vletard.analogy.sequence;
 
+import io.github.vletard.analogy.DefaultProportion;
 import io.github.vletard.analogy.SubtypeRebuilder;
 import io.github.vletard.analogy.sequence.Step;
 
@@ -74,17 +75,36 @@ public class ProportionReadingHead<E>{
       // An alternative to fast forwarding steps can be to adjust the tracking of explored 
       // reading heads (in Proportion.check()) by ignoring factors when comparing two
       // ProportionReadingHead for equality (equality would only depend on indices).
-      while (newHead.canStep(step)) {
-        ProportionReadingHead<E> fastForwardHead = newHead.makeStep(step, fastForward);
+      // The run of possible steps is found in one scan of the match matrices, only the degree remains to be checked.
+      int run = this.runLength(step);
+      int i;
+      for (i = 1; i < run; i++) {
+        ProportionReadingHead<E> fastForwardHead = new ProportionReadingHead<E>(newHead, step);
         if (fastForwardHead.getCurrentDegree() > newHead.getCurrentDegree())
           break;
         else
           newHead = fastForwardHead;
       }
+      DefaultProportion.getStats().fastForward(i - 1);
     }
     return newHead;
   }
 
+  /**
+   * Returns how many times the given step can be repeated from this reading head.
+   * @param step the step to be repeated
+   * @return the length of the run of matches for the step.
+   */
+  private int runLength(Step step){
+    switch (step){
+      case AB : return proportion.getMatchesAB().diagonalRun(a, b);
+      case AC : return proportion.getMatchesAC().diagonalRun(a, c);
+      case CD : return proportion.getMatchesCD().diagonalRun(c, d);
+      case BD : return proportion.getMatchesBD().diagonalRun(b, d);
+      default : return 0;
+    }
+  }
+
   /**
    * Checks whether a given {@link Step} is possible for the current state of this reading head.
    * @param step the Step to be tested
@@ -92,10 +112,10 @@ public class ProportionReadingHead<E>{
    */
   public boolean canStep(Step step){
     switch (step){
-      case AB : return (a < proportion.A.size() && b < proportion.B.size() && proportion.A.get(a).equals(proportion.B.get(b)));
-      case AC : return (a < proportion.A.size() && c < proportion.C.size() && proportion.A.get(a).equals(proportion.C.get(c)));
-      case CD : return (c < proportion.C.size() && d < proportion.D.size() && proportion.C.get(c).equals(proportion.D.get(d)));
-      case BD : return (b < proportion.B.size() && d < proportion.D.size() && proportion.B.get(b).equals(proportion.D.get(d)));
+      case AB : return (a < proportion.A.size() && b < proportion.B.size() && proportion.matchAB(a, b));
+      case AC : return (a < proportion.A.size() && c < proportion.C.size() && proportion.matchAC(a, c));
+      case CD : return (c < proportion.C.size() && d < proportion.D.size() && proportion.matchCD(c, d));
+      case BD : return (b < proportion.B.size() && d < proportion.D.size() && proportion.matchBD(b, d));
       default : return false;
     }
   }
@@ -0,0 +1,33 @@
+package io.github.vletard.analogy.sequence;
+
+import io.github.vletard.analogy.AnalogyDomain;
+import io.github.vletard.analogy.DefaultEquation;
+import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SubtypeRebuilder;
+
+/**
+ * Domain of the {@link Sequence}s, solved by {@link SequenceEquation} and checked by {@link SequenceProportion}.
+ * @author Vincent Letard
+ */
+public class SequenceDomain extends AnalogyDomain {
+
+  public SequenceDomain() {
+    super(Sequence.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> DefaultEquation<E, ? extends Solution<E>> equation(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options) {
+    if (rebuilder == null)
+      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SimpleSequenceEquation<Object>((Sequence<Object>) a, (Sequence<Object>) b, (Sequence<Object>) c, options);
+    else
+      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SequenceEquation<Object, Sequence<Object>>((Sequence<Object>) a, (Sequence<Object>) b, (Sequence<Object>) c, (SubtypeRebuilder<Sequence<Object>, Sequence<Object>>) rebuilder, options);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean isValidProportion(Object a, Object b, Object c, Object d) {
+    return new SequenceProportion<Object>((Sequence<Object>) a, (Sequence<Object>) b, (Sequence<Object>) c, (Sequence<Object>) d).check(false); // the shared cache was already consulted, and the event is emitted, by the caller
+  }
+}
@@ -2,17 +2,19 @@ package io.github.vletard.analogy.sequence;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import io.github.vletard.analogy.DefaultEquation;
+import io.github.vletard.analogy.DegreeCutoff;
 import io.github.vletard.analogy.Element;
+import io.github.vletard.analogy.EquationEvent;
+import io.github.vletard.analogy.SearchBudget;
 import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SolverStats;
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SplittableIterator;
 import io.github.vletard.analogy.SubtypeRebuilder;
 
 /**
@@ -25,10 +27,72 @@ import io.github.vletard.analogy.SubtypeRebuilder;
 public class SequenceEquation<E, Subtype extends Sequence<E>> extends DefaultEquation<Subtype, Solution<Subtype>>{
 
   private final SubtypeRebuilder<Sequence<E>, Subtype> rebuilder;
+
+  /**
+   * Dense integer alphabet of the three sequences, or null if this equation is not interned.
+   */
+  private final SymbolTable<E> symbols;
+  private final int[] codeA, codeB, codeC;
+
+  /**
+   * Equality relations between the items of A and B, and of A and C, computed on first use.
+   */
+  private volatile MatchMatrix matchesAB, matchesAC;
   
   public SequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder){
-    super(a, b, c);
+    this(a, b, c, rebuilder, false);
+  }
+
+  public SequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder, SolvingOptions options){
+    this(a, b, c, rebuilder, false, options);
+  }
+
+  /**
+   * Constructs a new sequence equation, optionally interning the items of the three sequences into a dense
+   * integer alphabet. When interned, item comparisons and counts are performed on the integer codes only,
+   * and the items are only read back while emitting solutions.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param rebuilder the rebuilder for the used {@link Sequence} subtype
+   * @param interned whether the items are interned once for this equation
+   */
+  public SequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder, boolean interned){
+    this(a, b, c, rebuilder, interned, SolvingOptions.DEFAULT);
+  }
+
+  /**
+   * Constructs a new sequence equation with the provided solving options.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param rebuilder the rebuilder for the used {@link Sequence} subtype
+   * @param interned whether the items are interned once for this equation
+   * @param options the solving options
+   */
+  public SequenceEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<Sequence<E>, Subtype> rebuilder, boolean interned, SolvingOptions options){
+    super(a, b, c, options);
     this.rebuilder = rebuilder;
+    if (interned) {
+      this.symbols = new SymbolTable<E>();
+      this.codeA = this.symbols.encode(a);
+      this.codeB = this.symbols.encode(b);
+      this.codeC = this.symbols.encode(c);
+    }
+    else {
+      this.symbols = null;
+      this.codeA = null;
+      this.codeB = null;
+      this.codeC = null;
+    }
+  }
+
+  /**
+   * Returns whether the items of this equation are interned into a dense integer alphabet.
+   * @return true if this equation is interned.
+   */
+  public boolean isInterned() {
+    return this.symbols != null;
   }
 
   /**
@@ -36,10 +100,24 @@ public class SequenceEquation<E, Subtype extends Sequence<E>> extends DefaultEqu
    * to this analogical equation impossible or not.
    * @return false if the proportion between the sequences is impossible
    */
-  private boolean checkCounts() {
+  protected boolean checkCounts() {
     if (this.a.size() - this.b.size() - this.c.size() > 0)
       return false;
 
+    if (this.isInterned()) {
+      int[] counts = new int[this.symbols.size()];
+      for (int code: this.codeA)
+        counts[code] ++;
+      for (int code: this.codeB)
+        counts[code] --;
+      for (int code: this.codeC)
+        counts[code] --;
+      for (int count: counts)
+        if (count > 0)
+          return false;
+      return true;
+    }
+
     Map<E, Integer> counts = new HashMap<E, Integer>();
 
     for (int i=0; i < this.a.size(); i++)
@@ -57,13 +135,90 @@ public class SequenceEquation<E, Subtype extends Sequence<E>> extends DefaultEqu
     return true;
   }
 
+  /**
+   * {@inheritDoc}
+   * The counts of items in the 3 sequences are checked, as well as the minimal degree of a solution against the maximum degree:
+   * 0 if the 3 sequences are empty, 1 otherwise.
+   */
+  @Override
+  public boolean isFeasible() {
+    int minimalDegree = (this.a.size() == 0 && this.b.size() == 0 && this.c.size() == 0) ? 0 : 1;
+    return new DegreeCutoff(this.getOptions()).accepts(minimalDegree) && this.checkCounts();
+  }
+
+  /**
+   * {@inheritDoc}
+   * The estimate is the number of reading positions in the 3 sequences.
+   */
+  @Override
+  public long estimateCost() {
+    return (this.a.size() + 1L) * (this.b.size() + 1L) * (this.c.size() + 1L);
+  }
+
+  /**
+   * Computes the match matrices of this equation, using the interned codes if available.
+   */
+  private void buildMatches() {
+    SymbolTable<E> symbols = this.symbols;
+    int[] a = this.codeA, b = this.codeB, c = this.codeC;
+    if (!this.isInterned()) {
+      symbols = new SymbolTable<E>();
+      a = symbols.encode(this.a);
+      b = symbols.encode(this.b);
+      c = symbols.encode(this.c);
+    }
+    this.matchesAC = new MatchMatrix(a, c, symbols.size());
+    this.matchesAB = new MatchMatrix(a, b, symbols.size());
+  }
+
+  /**
+   * Returns the equality relation between the items of A (rows) and B (columns).
+   * @return the match matrix of A and B.
+   */
+  MatchMatrix getMatchesAB() {
+    if (this.matchesAB == null)
+      this.buildMatches();
+    return this.matchesAB;
+  }
+
+  /**
+   * Returns the equality relation between the items of A (rows) and C (columns).
+   * @return the match matrix of A and C.
+   */
+  MatchMatrix getMatchesAC() {
+    if (this.matchesAC == null)
+      this.buildMatches();
+    return this.matchesAC;
+  }
+
+  /**
+   * Checks whether the item at index i in A equals the item at index j in B.
+   * @param i index in A
+   * @param j index in B
+   * @return true if both items are equal
+   */
+  boolean matchAB(int i, int j) {
+    return this.getMatchesAB().get(i, j);
+  }
+
+  /**
+   * Checks whether the item at index i in A equals the item at index k in C.
+   * @param i index in A
+   * @param k index in C
+   * @return true if both items are equal
+   */
+  boolean matchAC(int i, int k) {
+    return this.getMatchesAC().get(i, k);
+  }
+
+  @Override
   public SubtypeRebuilder<Sequence<E>, Subtype> getRebuilder() {
     return this.rebuilder;
   }
 
   @Override
   public SequenceEquation<E, Subtype> dual() {
-    return new SequenceEquation<E, Subtype>(this.a, this.c, this.b, this.rebuilder);
+    return new SequenceEquation<E, Subtype>(this.a, this.c, this.b, this.rebuilder, this.isInterned(), this.getOptions());
   }
 
   @Override
@@ -72,65 +227,148 @@ public class SequenceEquation<E, Subtype extends Sequence<E>> extends DefaultEqu
       return Collections.emptyIterator();
 
     else
-      return new Iterator<Solution<Subtype>>() {
-        private final SortedMap<Integer, Set<EquationReadingHead<E, Subtype>>> readingRegister = new TreeMap<Integer, Set<EquationReadingHead<E, Subtype>>>();
-        private Solution<Subtype> nextElement = null;
-  
-        {
-          EquationReadingHead<E, Subtype> head = new EquationReadingHead<E, Subtype>(SequenceEquation.this);
-          Set<EquationReadingHead<E, Subtype>> s = new HashSet<EquationReadingHead<E, Subtype>>();
-          s.add(head);
-          this.readingRegister.put(head.getCurrentDegree(), s);
+      return new SolutionIterator(new BucketQueue<EquationReadingHead<E, Subtype>>(), new DegreeLowerBound<E>(this), true);
+  }
+
+  /**
+   * Iterator performing the search of the solutions of this equation.
+   * Heads are ordered on their estimated degree (A* search). Since the estimate never exceeds the degree of the
+   * reachable solutions, and is exact for finished heads, solutions are still found in ascending order of degree.
+   * The same estimate lets the heads exceeding the maximum degree be pruned before they are registered.
+   *
+   * The search is split by moving half of the heads of each degree into a new iterator. The heads of both iterators
+   * lead to disjoint sets of factorizations, hence each iterator enumerates its own solutions in ascending order of degree.
+   */
+  private class SolutionIterator implements SplittableIterator<Solution<Subtype>> {
+
+    /**
+     * Number of heads expanded at most to fill the register of an iterator that is to be split.
+     */
+    private static final int SPLIT_EXPANSIONS = 64;
+
+    private final BucketQueue<EquationReadingHead<E, Subtype>> readingRegister;
+    private final DegreeLowerBound<E> bound;
+    private final DegreeCutoff cutoff = new DegreeCutoff(SequenceEquation.this.getOptions());
+    private final SearchBudget budget = SequenceEquation.this.getOptions().getBudget();
+    private final SolverStats stats = SequenceEquation.this.getOptions().getStats();
+    private final EquationEvent event = new EquationEvent(SequenceEquation.this);
+    private Solution<Subtype> nextElement = null;
+
+    /**
+     * Constructs an iterator searching from the provided heads.
+     * @param readingRegister the heads of the search
+     * @param bound the lower bound of the degree of the heads
+     * @param initial whether the search starts from the initial head of the equation
+     */
+    private SolutionIterator(BucketQueue<EquationReadingHead<E, Subtype>> readingRegister, DegreeLowerBound<E> bound, boolean initial) {
+      this.readingRegister = readingRegister;
+      this.bound = bound;
+      if (initial)
+        this.register(new EquationReadingHead<E, Subtype>(SequenceEquation.this));
+    }
+
+    private void register(EquationReadingHead<E, Subtype> head) {
+      this.stats.headCreated();
+      int estimate = head.getEstimatedDegree(this.bound);
+      if (this.cutoff.accepts(estimate))
+        this.readingRegister.add(estimate, head);
+      else
+        this.stats.headPruned();
+    }
+
+    /**
+     * Expands a head which is not finished, registering its successors.
+     * @return false if the budget got exhausted, in which case the register is cleared.
+     */
+    private boolean expand(EquationReadingHead<E, Subtype> currentHead) {
+      if (!this.budget.expand()) {
+        this.readingRegister.clear(); // the enumeration ends, the budget tells why
+        return false;
+      }
+      this.stats.headExpanded();
+      this.event.expanded(1);
+      try{
+        for (Step step : new Step[]{Step.AB, Step.AC, Step.CD, Step.BD}) {
+          if (currentHead.canStep(step))
+            this.register(currentHead.makeStep(step, true));
         }
-  
-        @Override
-        public boolean hasNext() {
-          while (this.nextElement == null && !this.readingRegister.isEmpty()) {
-            int currentDegree = readingRegister.firstKey();
-            Set<EquationReadingHead<E, Subtype>> s = readingRegister.get(currentDegree);
-            EquationReadingHead<E, Subtype> currentHead = s.iterator().next();
-            s.remove(currentHead);
-            if (s.isEmpty())
-              readingRegister.remove(currentDegree);
-  
-            if (currentHead.isFinished()) {
-              Factorization<E, Subtype> factorization = currentHead.getFactorization();
-              Sequence<E> sequence = factorization.extractElement(Element.D);
-              this.nextElement = new SequenceSolution<E, Subtype>(SequenceEquation.this.rebuilder.rebuild(sequence), currentDegree, factorization);
-            }
-            else{
-              try{
-                for (Step step : new Step[]{Step.AB, Step.AC, Step.CD, Step.BD}) {
-                  if (currentHead.canStep(step)){
-                    EquationReadingHead<E, Subtype> newHead = currentHead.makeStep(step, true);
-                    int newDegree = newHead.getCurrentDegree();
-                    readingRegister.putIfAbsent(newDegree, new HashSet<EquationReadingHead<E, Subtype>>());
-                    readingRegister.get(newDegree).add(newHead);
-                  }
-                }
-              } catch(ImpossibleStepException e) {
-                throw new RuntimeException(e);
-              }
-            }
-          }
-  
-          if (this.nextElement == null)
-            return false;
-          else
-            return true;
+      } catch(ImpossibleStepException e) {
+        throw new RuntimeException(e);
+      }
+      this.stats.frontier(this.readingRegister.size());
+      if (!this.budget.checkFrontier(this.readingRegister.size())) {
+        this.readingRegister.clear();
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean hasNext() {
+      long start = this.stats.start();
+      while (this.nextElement == null && !this.readingRegister.isEmpty()) {
+        if (!this.cutoff.accepts(this.readingRegister.peekPriority())) {
+          this.readingRegister.clear(); // the maximum number of distinct degrees has been reached
+          break;
         }
-  
-        @Override
-        public Solution<Subtype> next() {
-          if (this.hasNext()) {
-            Solution<Subtype> next = this.nextElement;
-            this.nextElement = null;
-            return next;
-          }
-          else
-            throw new NoSuchElementException();
+        EquationReadingHead<E, Subtype> currentHead = readingRegister.poll();
+
+        if (currentHead.isFinished()) {
+          this.cutoff.record(currentHead.getCurrentDegree());
+          Factorization<E, Subtype> factorization = currentHead.getFactorization();
+          Sequence<E> sequence = factorization.extractElement(Element.D);
+          this.nextElement = new SequenceSolution<E, Subtype>(SequenceEquation.this.rebuilder.rebuild(sequence), currentHead.getCurrentDegree(), factorization);
+          this.stats.solution(currentHead.getCurrentDegree());
+          this.event.solution(currentHead.getCurrentDegree());
+        }
+        else if (!this.expand(currentHead))
+          break;
+      }
+      this.stats.stop(start);
+
+      if (this.nextElement == null) {
+        this.event.finish();
+        return false;
+      }
+      else
+        return true;
+    }
+
+    @Override
+    public Solution<Subtype> next() {
+      if (this.hasNext()) {
+        Solution<Subtype> next = this.nextElement;
+        this.nextElement = null;
+        return next;
+      }
+      else
+        throw new NoSuchElementException();
+    }
+
+    /**
+     * {@inheritDoc}
+     * A register holding a single head is first expanded, within a few expansions, until it holds several heads.
+     * The search is not split when the number of distinct degrees is bounded, since that bound applies to the union of the partitions.
+     */
+    @Override
+    public Iterator<Solution<Subtype>> trySplit() {
+      if (SequenceEquation.this.getOptions().getMaxDistinctDegrees() != SolvingOptions.UNBOUNDED)
+        return null;
+      long start = this.stats.start();
+      for (int expansions = 0; this.readingRegister.size() == 1 && expansions < SPLIT_EXPANSIONS; expansions++) {
+        EquationReadingHead<E, Subtype> currentHead = this.readingRegister.poll();
+        if (currentHead.isFinished()) {
+          this.readingRegister.add(currentHead.getCurrentDegree(), currentHead); // left to be enumerated by hasNext
+          break;
         }
-    };
+        if (!this.expand(currentHead))
+          break;
+      }
+      this.stats.stop(start);
+      if (this.readingRegister.size() < 2)
+        return null;
+      return new SolutionIterator(this.readingRegister.split(), this.bound, false);
+    }
   }
 
   @Override
@@ -0,0 +1,404 @@
+package io.github.vletard.analogy.sequence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import io.github.vletard.analogy.SearchBudget;
+import io.github.vletard.analogy.SolverStats;
+
+/**
+ * This class represents the degree-layered lattice of the partial factorizations of a {@link SequenceEquation}.
+ * Partial factorizations reaching the same position (a, b, c) in the three sequences with the same last {@link Step}
+ * share the same future, thus they are merged into a single {@link LatticeNode} per degree.
+ * Each node keeps backpointers to its predecessors, such that the factorizations are only rebuilt when walking
+ * the lattice back from its sinks.
+ *
+ * Within a factor, steps are performed in a canonical order (AB before CD in straight factors, AC before BD in crossed factors),
+ * so that every factorization corresponds to exactly one path of the lattice.
+ * Layers are built on demand, in ascending order of degree.
+ * When a {@link ForkJoinPool} is provided, the nodes of a layer sharing the same position sum are expanded concurrently,
+ * the layer being a concurrent map in which the reached nodes are merged.
+ * Each expanded node is charged to the {@link SearchBudget} of the equation, and a layer interrupted by the exhaustion
+ * of the budget is discarded along with every subsequent one.
+ * @author Vincent Letard
+ *
+ * @param <E> The items composing the sequences of the analogical equation.
+ * @param <S> The subtype of {@link Sequence} used in the equation.
+ */
+public class SequenceLattice<E, S extends Sequence<E>> {
+  private static final Step[] STEPS = new Step[]{Step.AB, Step.AC, Step.CD, Step.BD};
+
+  /**
+   * Number of nodes below which a group is expanded sequentially.
+   */
+  private static final int PARALLEL_THRESHOLD = 256;
+
+  private final SequenceEquation<E, S> equation;
+  private final ForkJoinPool pool;
+  private final ArrayList<Map<Long, LatticeNode>> layers;
+  private boolean exhausted;
+
+  public SequenceLattice(SequenceEquation<E, S> equation) {
+    this(equation, null);
+  }
+
+  /**
+   * Constructs the lattice of an equation, whose layers are built concurrently on the provided pool.
+   * @param equation the equation
+   * @param pool the pool building the layers, or null to build them on the calling thread
+   */
+  public SequenceLattice(SequenceEquation<E, S> equation, ForkJoinPool pool) {
+    this.equation = equation;
+    this.pool = pool;
+    this.layers = new ArrayList<Map<Long, LatticeNode>>();
+    this.exhausted = false;
+    if (pool != null) { // the match matrices are built once before being shared by the workers
+      equation.getMatchesAB();
+      equation.getMatchesAC();
+    }
+
+    HashMap<Long, LatticeNode> first = new HashMap<Long, LatticeNode>();
+    LatticeNode start = new LatticeNode(0, 0, 0, Step.UNDEFINED, 0);
+    first.put(this.key(0, 0, 0, Step.UNDEFINED), start);
+    this.layers.add(first);
+  }
+
+  private long key(int a, int b, int c, Step step) {
+    long key = a;
+    key = key * (this.equation.b.size() + 1) + b;
+    key = key * (this.equation.c.size() + 1) + c;
+    return key * Step.values().length + step.ordinal();
+  }
+
+  private static boolean isStraight(Step step) {
+    return step == Step.AB || step == Step.CD;
+  }
+
+  private static boolean isCrossed(Step step) {
+    return step == Step.AC || step == Step.BD;
+  }
+
+  /**
+   * Checks whether both steps belong to the same factor orientation (straight or crossed).
+   * @param previous the last step performed
+   * @param step the next step
+   * @return true if step extends the factor opened by previous
+   */
+  private static boolean sameOrientation(Step previous, Step step) {
+    return (isStraight(previous) && isStraight(step)) || (isCrossed(previous) && isCrossed(step));
+  }
+
+  /**
+   * Checks whether a step is allowed right after the previous one within the same factor.
+   * @param previous the last step performed
+   * @param step the next step
+   * @return true if the step follows the canonical order within a factor
+   */
+  private static boolean canContinue(Step previous, Step step) {
+    switch (previous) {
+    case AB : return step == Step.AB || step == Step.CD;
+    case CD : return step == Step.CD;
+    case AC : return step == Step.AC || step == Step.BD;
+    case BD : return step == Step.BD;
+    default : return false;
+    }
+  }
+
+  private boolean canStep(LatticeNode node, Step step) {
+    int a = node.getA();
+    int b = node.getB();
+    int c = node.getC();
+    switch (step) {
+    case AB : return a < this.equation.a.size() && b < this.equation.b.size() && this.equation.matchAB(a, b);
+    case AC : return a < this.equation.a.size() && c < this.equation.c.size() && this.equation.matchAC(a, c);
+    case CD : return c < this.equation.c.size();
+    case BD : return b < this.equation.b.size();
+    default : return false;
+    }
+  }
+
+  /**
+   * Links the node obtained by performing the given step from a node of the lattice, creating it if necessary.
+   * @param layer the layer of the reached node
+   * @param pending nodes of the layer still to be expanded, indexed by the sum of their position
+   * @param from the node from which the step is performed
+   * @param step the step to perform
+   * @param degree the degree of the layer
+   */
+  private void link(Map<Long, LatticeNode> layer, List<? extends Collection<LatticeNode>> pending, LatticeNode from, Step step, int degree) {
+    int a = from.getA();
+    int b = from.getB();
+    int c = from.getC();
+    switch (step) {
+    case AB : a += 1; b += 1; break;
+    case AC : a += 1; c += 1; break;
+    case CD : c += 1; break;
+    case BD : b += 1; break;
+    default: throw new IllegalArgumentException("A lattice node can only be reached with a defined step.");
+    }
+    long key = this.key(a, b, c, step);
+    SolverStats stats = this.equation.getOptions().getStats();
+    LatticeNode node = layer.get(key);
+    if (node == null) {
+      LatticeNode created = new LatticeNode(a, b, c, step, degree);
+      node = layer.putIfAbsent(key, created);
+      if (node == null) {
+        node = created;
+        pending.get(a + b + c).add(node);
+        stats.headCreated();
+      }
+      else
+        stats.duplicateDiscarded(); // reached concurrently by another worker
+    }
+    else
+      stats.duplicateDiscarded();
+    node.addPredecessor(from);
+  }
+
+  /**
+   * Expands a node of the lattice, either by opening a new factor from a node of the previous layer,
+   * or by extending the current factor of a node of the layer being built.
+   * @param node the node to be expanded
+   * @param opening whether a new factor is opened
+   * @param layer the layer being built
+   * @param pending nodes of the layer still to be expanded, indexed by the sum of their position
+   * @param degree the degree of the layer being built
+   * @param budget the search budget to be charged
+   * @return false if the budget is exhausted.
+   */
+  private boolean expand(LatticeNode node, boolean opening, Map<Long, LatticeNode> layer, List<? extends Collection<LatticeNode>> pending, int degree, SearchBudget budget) {
+    if (!budget.expand() || !budget.checkFrontier(layer.size()))
+      return false;
+    SolverStats stats = this.equation.getOptions().getStats();
+    stats.headExpanded();
+    stats.frontier(layer.size());
+    for (Step step: STEPS)
+      if ((opening ? !sameOrientation(node.getStep(), step) : canContinue(node.getStep(), step)) && this.canStep(node, step))
+        this.link(layer, pending, node, step, degree);
+    return true;
+  }
+
+  /**
+   * Expands a group of nodes, concurrently if a pool is available and the group is large enough.
+   * The nodes of a group must not reach each other, such that they can be expanded in any order.
+   * @return false if the budget is exhausted.
+   */
+  private boolean expandAll(Collection<LatticeNode> nodes, boolean opening, Map<Long, LatticeNode> layer, List<? extends Collection<LatticeNode>> pending, int degree, SearchBudget budget) {
+    if (this.pool == null || nodes.size() <= PARALLEL_THRESHOLD) {
+      for (LatticeNode node: nodes)
+        if (!this.expand(node, opening, layer, pending, degree, budget))
+          return false;
+      return true;
+    }
+    else {
+      this.pool.invoke(new Expansion(nodes.toArray(new LatticeNode[nodes.size()]), 0, nodes.size(), opening, layer, pending, degree, budget));
+      return !budget.isExhausted() && budget.check(); // interruptions are only visible from the calling thread
+    }
+  }
+
+  /**
+   * Task expanding a range of a group of nodes, split in halves until small enough.
+   */
+  private class Expansion extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final LatticeNode[] nodes;
+    private final int from, to;
+    private final boolean opening;
+    private final Map<Long, LatticeNode> layer;
+    private final List<? extends Collection<LatticeNode>> pending;
+    private final int degree;
+    private final SearchBudget budget;
+
+    private Expansion(LatticeNode[] nodes, int from, int to, boolean opening, Map<Long, LatticeNode> layer,
+        List<? extends Collection<LatticeNode>> pending, int degree, SearchBudget budget) {
+      this.nodes = nodes;
+      this.from = from;
+      this.to = to;
+      this.opening = opening;
+      this.layer = layer;
+      this.pending = pending;
+      this.degree = degree;
+      this.budget = budget;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= PARALLEL_THRESHOLD) {
+        for (int i = this.from; i < this.to; i++)
+          if (!SequenceLattice.this.expand(this.nodes[i], this.opening, this.layer, this.pending, this.degree, this.budget))
+            return;
+      }
+      else {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(new Expansion(this.nodes, this.from, middle, this.opening, this.layer, this.pending, this.degree, this.budget),
+            new Expansion(this.nodes, middle, this.to, this.opening, this.layer, this.pending, this.degree, this.budget));
+      }
+    }
+  }
+
+  /**
+   * Builds the layer following the last built one.
+   * Its nodes are either reached by opening a new factor from the previous layer, or by extending
+   * a factor within the layer itself. Since the latter always increases the position,
+   * nodes are expanded in ascending order of position sum, each sum making a group of independent nodes.
+   */
+  private void buildNextLayer() {
+    Map<Long, LatticeNode> previous = this.layers.get(this.layers.size() - 1);
+    int degree = this.layers.size();
+    int sums = this.equation.a.size() + this.equation.b.size() + this.equation.c.size() + 1;
+    Map<Long, LatticeNode> layer;
+    ArrayList<Collection<LatticeNode>> pending = new ArrayList<Collection<LatticeNode>>();
+    if (this.pool == null) {
+      layer = new HashMap<Long, LatticeNode>();
+      for (int i = 0; i < sums; i++)
+        pending.add(new ArrayList<LatticeNode>());
+    }
+    else {
+      layer = new ConcurrentHashMap<Long, LatticeNode>();
+      for (int i = 0; i < sums; i++)
+        pending.add(new ConcurrentLinkedQueue<LatticeNode>());
+    }
+
+    SearchBudget budget = this.equation.getOptions().getBudget();
+    boolean complete = this.expandAll(previous.values(), true, layer, pending, degree, budget);
+    for (int i = 0; i < sums && complete; i++)
+      complete = this.expandAll(pending.get(i), false, layer, pending, degree, budget);
+
+    if (!complete || layer.isEmpty())
+      this.exhausted = true;
+    else
+      this.layers.add(layer);
+  }
+
+  /**
+   * Returns the number of nodes of the layers built so far, each of them being expanded once to build the next layer.
+   * @return the number of nodes of the lattice.
+   */
+  public long getNodeCount() {
+    long count = 0;
+    for (Map<Long, LatticeNode> layer: this.layers)
+      count += layer.size();
+    return count;
+  }
+
+  /**
+   * Returns the nodes of the lattice having the specified degree, building the lattice up to that degree if necessary.
+   * An empty layer means that no (partial) factorization of this degree nor greater exists.
+   * @param degree the degree of the layer
+   * @return an unmodifiable collection of the nodes of the layer.
+   */
+  public Collection<LatticeNode> getLayer(int degree) {
+    while (this.layers.size() <= degree && !this.exhausted)
+      this.buildNextLayer();
+    if (degree < this.layers.size())
+      return Collections.unmodifiableCollection(this.layers.get(degree).values());
+    else
+      return Collections.emptyList();
+  }
+
+  /**
+   * Returns the nodes of the specified degree that have read the three sequences entirely.
+   * Each path from one of these nodes back to the start of the lattice is a complete factorization.
+   * @param degree the degree of the sinks
+   * @return the list of the sinks of the specified degree.
+   */
+  public List<LatticeNode> getSinks(int degree) {
+    ArrayList<LatticeNode> sinks = new ArrayList<LatticeNode>();
+    if (this.getLayer(degree).isEmpty())
+      return sinks;
+    Map<Long, LatticeNode> layer = this.layers.get(degree);
+    for (Step step: Step.values()) {
+      LatticeNode sink = layer.get(this.key(this.equation.a.size(), this.equation.b.size(), this.equation.c.size(), step));
+      if (sink != null)
+        sinks.add(sink);
+    }
+    return sinks;
+  }
+
+  /**
+   * Rebuilds the factorization corresponding to a path of the lattice.
+   * @param path the nodes of the path, from the start of the lattice (included) to its end
+   * @return the factorization obtained by performing the steps of the path.
+   */
+  public Factorization<E, S> getFactorization(List<LatticeNode> path) {
+    Factorization<E, S> factorization = new Factorization<E, S>(this.equation.getRebuilder());
+    for (LatticeNode node: path) {
+      switch (node.getStep()) {
+      case AB : factorization = factorization.extendListB(false, this.equation.b.get(node.getB() - 1)); break;
+      case AC : factorization = factorization.extendListC(true, this.equation.c.get(node.getC() - 1)); break;
+      case CD : factorization = factorization.extendListC(false, this.equation.c.get(node.getC() - 1)); break;
+      case BD : factorization = factorization.extendListB(true, this.equation.b.get(node.getB() - 1)); break;
+      default : break;
+      }
+    }
+    return factorization;
+  }
+
+  /**
+   * Enumerates on demand every complete factorization of the specified degree, by walking the lattice back from its sinks.
+   * @param degree the degree of the enumerated factorizations
+   * @return an iterator over the factorizations of the specified degree.
+   */
+  public Iterator<Factorization<E, S>> factorizations(int degree) {
+    final List<LatticeNode> sinks = this.getSinks(degree);
+    return new Iterator<Factorization<E, S>>() {
+      private final ArrayList<LatticeNode> path = new ArrayList<LatticeNode>();
+      private final ArrayList<Integer> cursors = new ArrayList<Integer>();
+      private int sinkIndex = 0;
+      private Factorization<E, S> nextElement = null;
+
+      @Override
+      public boolean hasNext() {
+        while (this.nextElement == null) {
+          if (this.path.isEmpty()) {
+            if (this.sinkIndex >= sinks.size())
+              return false;
+            this.path.add(sinks.get(this.sinkIndex++));
+            this.cursors.add(0);
+          }
+          int top = this.path.size() - 1;
+          LatticeNode node = this.path.get(top);
+          int cursor = this.cursors.get(top);
+          if (node.getStep() == Step.UNDEFINED) { // the start of the lattice is reached, the path is complete
+            ArrayList<LatticeNode> forward = new ArrayList<LatticeNode>(this.path);
+            Collections.reverse(forward);
+            this.nextElement = SequenceLattice.this.getFactorization(forward);
+            this.path.remove(top);
+            this.cursors.remove(top);
+          }
+          else if (cursor < node.getPredecessors().size()) {
+            this.cursors.set(top, cursor + 1);
+            this.path.add(node.getPredecessors().get(cursor));
+            this.cursors.add(0);
+          }
+          else {
+            this.path.remove(top);
+            this.cursors.remove(top);
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public Factorization<E, S> next() {
+        if (this.hasNext()) {
+          Factorization<E, S> next = this.nextElement;
+          this.nextElement = null;
+          return next;
+        }
+        else
+          throw new NoSuchElementException();
+      }
+    };
+  }
+}
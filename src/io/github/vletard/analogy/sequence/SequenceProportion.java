@@ -1,14 +1,13 @@
 package io.github.vletard.analogy.sequence;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import io.github.vletard.analogy.DefaultProportion;
+import io.github.vletard.analogy.ProportionCache;
+import io.github.vletard.analogy.ProportionEvent;
+import io.github.vletard.analogy.SolverStats;
 
 /**
  * This class represents an analogical proportion. It can be initialized with 4 sequence elements
@@ -18,8 +17,8 @@ import io.github.vletard.analogy.DefaultProportion;
  * @param <E> Parametric type of the elements inside sequences.
  */
 public class SequenceProportion<E> extends DefaultProportion<Sequence<E>>{
-  private Boolean valid;
-  private Factorization<E, Sequence<E>> factorization;
+  private volatile Boolean valid;
+  private volatile Factorization<E, Sequence<E>> factorization;
   
   public static class InvalidProportionException extends Exception{
     private static final long serialVersionUID = -5958668638828140006L;
@@ -28,10 +27,155 @@ public class SequenceProportion<E> extends DefaultProportion<Sequence<E>>{
     }
   }
 
+  /**
+   * Dense integer alphabet of the four sequences, or null if this proportion is not interned.
+   */
+  private final SymbolTable<E> symbols;
+  private final int[] codeA, codeB, codeC, codeD;
+
+  /**
+   * Equality relations between the items of A and B, A and C, C and D, B and D, computed on first use.
+   */
+  private volatile MatchMatrix matchesAB, matchesAC, matchesCD, matchesBD;
+
   public SequenceProportion(Sequence<E> a, Sequence<E> b, Sequence<E> c, Sequence<E> d){
+    this(a, b, c, d, false);
+  }
+
+  /**
+   * Constructs a new sequence proportion, optionally interning the items of the four sequences into a dense
+   * integer alphabet. When interned, item comparisons and counts are performed on the integer codes only.
+   * @param a item
+   * @param b item
+   * @param c item
+   * @param d item
+   * @param interned whether the items are interned once for this proportion
+   */
+  public SequenceProportion(Sequence<E> a, Sequence<E> b, Sequence<E> c, Sequence<E> d, boolean interned){
     super(a, b, c, d);
+    if (interned) {
+      this.symbols = new SymbolTable<E>();
+      this.codeA = this.symbols.encode(a);
+      this.codeB = this.symbols.encode(b);
+      this.codeC = this.symbols.encode(c);
+      this.codeD = this.symbols.encode(d);
+    }
+    else {
+      this.symbols = null;
+      this.codeA = null;
+      this.codeB = null;
+      this.codeC = null;
+      this.codeD = null;
+    }
   }
-  
+
+  /**
+   * Returns whether the items of this proportion are interned into a dense integer alphabet.
+   * @return true if this proportion is interned.
+   */
+  public boolean isInterned() {
+    return this.symbols != null;
+  }
+
+  /**
+   * Computes the match matrices of this proportion, using the interned codes if available.
+   */
+  private void buildMatches() {
+    SymbolTable<E> symbols = this.symbols;
+    int[] a = this.codeA, b = this.codeB, c = this.codeC, d = this.codeD;
+    if (!this.isInterned()) {
+      symbols = new SymbolTable<E>();
+      a = symbols.encode(this.A);
+      b = symbols.encode(this.B);
+      c = symbols.encode(this.C);
+      d = symbols.encode(this.D);
+    }
+    this.matchesAC = new MatchMatrix(a, c, symbols.size());
+    this.matchesCD = new MatchMatrix(c, d, symbols.size());
+    this.matchesBD = new MatchMatrix(b, d, symbols.size());
+    this.matchesAB = new MatchMatrix(a, b, symbols.size());
+  }
+
+  /**
+   * Returns the equality relation between the items of A (rows) and B (columns).
+   * @return the match matrix of A and B.
+   */
+  MatchMatrix getMatchesAB() {
+    if (this.matchesAB == null)
+      this.buildMatches();
+    return this.matchesAB;
+  }
+
+  /**
+   * Returns the equality relation between the items of A (rows) and C (columns).
+   * @return the match matrix of A and C.
+   */
+  MatchMatrix getMatchesAC() {
+    if (this.matchesAC == null)
+      this.buildMatches();
+    return this.matchesAC;
+  }
+
+  /**
+   * Returns the equality relation between the items of C (rows) and D (columns).
+   * @return the match matrix of C and D.
+   */
+  MatchMatrix getMatchesCD() {
+    if (this.matchesCD == null)
+      this.buildMatches();
+    return this.matchesCD;
+  }
+
+  /**
+   * Returns the equality relation between the items of B (rows) and D (columns).
+   * @return the match matrix of B and D.
+   */
+  MatchMatrix getMatchesBD() {
+    if (this.matchesBD == null)
+      this.buildMatches();
+    return this.matchesBD;
+  }
+
+  /**
+   * Checks whether the item at index i in A equals the item at index j in B.
+   * @param i index in A
+   * @param j index in B
+   * @return true if both items are equal
+   */
+  boolean matchAB(int i, int j) {
+    return this.getMatchesAB().get(i, j);
+  }
+
+  /**
+   * Checks whether the item at index i in A equals the item at index k in C.
+   * @param i index in A
+   * @param k index in C
+   * @return true if both items are equal
+   */
+  boolean matchAC(int i, int k) {
+    return this.getMatchesAC().get(i, k);
+  }
+
+  /**
+   * Checks whether the item at index k in C equals the item at index l in D.
+   * @param k index in C
+   * @param l index in D
+   * @return true if both items are equal
+   */
+  boolean matchCD(int k, int l) {
+    return this.getMatchesCD().get(k, l);
+  }
+
+  /**
+   * Checks whether the item at index j in B equals the item at index l in D.
+   * @param j index in B
+   * @param l index in D
+   * @return true if both items are equal
+   */
+  boolean matchBD(int j, int l) {
+    return this.getMatchesBD().get(j, l);
+  }
+
   /**
    * Gets the (minimal) factorization degree of this analogical Proportion.
    * @return The computed degree.
@@ -47,8 +191,11 @@ public class SequenceProportion<E> extends DefaultProportion<Sequence<E>>{
    * @throws InvalidProportionException if the Proportion is invalid.
    */
   public Factorization<E, Sequence<E>> getFactorization() throws InvalidProportionException {
-    if (this.isValid())
+    if (this.isValid()) {
+      if (this.factorization == null)
+        this.check(); // the validity was found by the atomic check or in the proportion cache
       return this.factorization;
+    }
     else
       throw new InvalidProportionException("An invalid proportion does not have a factorization.");
   }
@@ -58,41 +205,69 @@ public class SequenceProportion<E> extends DefaultProportion<Sequence<E>>{
    * analogical proportion or not. 
    * @return true if the proportion is valid.
    */
-  private boolean check(){
+  boolean check(){
+    return this.check(true);
+  }
+
+  /**
+   * Checks in full depth whether the 4 sequences of this Proportion are a valid
+   * analogical proportion or not.
+   * @param recorded whether a {@link ProportionEvent} is emitted, false when the caller emits its own
+   * @return true if the proportion is valid.
+   */
+  boolean check(boolean recorded){
     if (! this.checkCounts())
       return false;
 
-    SortedMap<Integer, Set<ProportionReadingHead<E>>> readingRegister = new TreeMap<Integer, Set<ProportionReadingHead<E>>>();
+    SolverStats stats = DefaultProportion.getStats();
+    ProportionEvent event = recorded ? new ProportionEvent(this) : null;
+    long start = stats.start();
+    boolean valid;
+    try {
+      valid = this.search(stats, event);
+    } finally {
+      stats.stop(start);
+    }
+    if (event != null)
+      event.finish(valid, valid ? this.factorization.size() : -1);
+    return valid;
+  }
+
+  /**
+   * Searches the minimal factorization of this Proportion, recording the work performed in the provided statistics and event (if any).
+   * @return true if the proportion is valid.
+   */
+  private boolean search(SolverStats stats, ProportionEvent event){
+    BucketQueue<ProportionReadingHead<E>> readingRegister = new BucketQueue<ProportionReadingHead<E>>();
     {
       ProportionReadingHead<E> head = new ProportionReadingHead<E>(this);
-      Set<ProportionReadingHead<E>> s = new HashSet<ProportionReadingHead<E>>();
-      s.add(head);
-      readingRegister.put(head.getCurrentDegree(), s);
+      stats.headCreated();
+      readingRegister.add(head.getCurrentDegree(), head);
     }
     while(!readingRegister.isEmpty()){
-      int currentDegree = readingRegister.firstKey();
-      Set<ProportionReadingHead<E>> s = readingRegister.get(currentDegree);
-      ProportionReadingHead<E> currentHead = s.iterator().next();
-      s.remove(currentHead);
-      if (s.isEmpty())
-        readingRegister.remove(currentDegree);
+      ProportionReadingHead<E> currentHead = readingRegister.poll();
       
       if (currentHead.isFinished()) {
         this.factorization = currentHead.getFactors();
+        stats.solution(this.factorization.size());
         return true;
       }
       else{
+        stats.headExpanded();
+        if (event != null)
+          event.expanded();
         try{
           for (Step step : new Step[]{Step.AB, Step.AC, Step.CD, Step.BD}) {
             if (currentHead.canStep(step)){
               ProportionReadingHead<E> result = currentHead.makeStep(step, true);
-              readingRegister.putIfAbsent(result.getCurrentDegree(), new HashSet<ProportionReadingHead<E>>());
-              readingRegister.get(result.getCurrentDegree()).add(result);
+              stats.headCreated();
+              readingRegister.add(result.getCurrentDegree(), result);
             }
           }
         } catch(ImpossibleStepException e) {
           throw new RuntimeException(e);
         }
+        stats.frontier(readingRegister.size());
       }
     }
     return false;
@@ -107,6 +282,22 @@ public class SequenceProportion<E> extends DefaultProportion<Sequence<E>>{
     if (this.A.size() + this.D.size() - this.B.size() - this.C.size() != 0)
       return false;
 
+    if (this.isInterned()) {
+      int[] counts = new int[this.symbols.size()];
+      for (int code: this.codeA)
+        counts[code] ++;
+      for (int code: this.codeD)
+        counts[code] ++;
+      for (int code: this.codeB)
+        counts[code] --;
+      for (int code: this.codeC)
+        counts[code] --;
+      for (int count: counts)
+        if (count != 0)
+          return false;
+      return true;
+    }
+
     Map<E, Integer> counts = new HashMap<E, Integer>();
 
     for (int i=0; i < this.A.size(); i++)
@@ -128,14 +319,26 @@ public class SequenceProportion<E> extends DefaultProportion<Sequence<E>>{
 
   /**
    * Checks in full depth whether the 4 sequences of this Proportion are a valid
-   * analogical proportion or not (uses caching of the result if available). 
+   * analogical proportion or not (uses caching of the result if available, in this instance or in the shared
+   * {@link ProportionCache}). Proportions between sequences equal two by two are valid without any search nor cache lookup.
    * @return true if the proportion is valid.
    */
   public boolean isValid(){
-    if (this.valid == null){
-      this.valid = check();
+    Boolean valid = this.valid;
+    if (valid == null){
+      valid = this.checkAtomic();
+      if (valid == null) {
+        ProportionCache cache = DefaultProportion.getCache();
+        valid = (cache == null) ? null : cache.get(this.A, this.B, this.C, this.D);
+        if (valid == null) {
+          valid = check();
+          if (cache != null)
+            cache.put(this.A, this.B, this.C, this.D, valid);
+        }
+      }
+      this.valid = valid;
     }
-    return this.valid;
+    return valid;
   }
 
   
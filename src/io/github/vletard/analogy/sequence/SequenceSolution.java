@@ -15,6 +15,14 @@ public class SequenceSolution<T, Subtype extends Sequence<T>> extends Solution<S
     this.crossedRelation = SequenceRelation.newCrossedRelation(factorization);
   }
 
+  /**
+   * Returns this solution as a solution of the dual equation, whose factorization is the dual of this one.
+   */
+  @Override
+  public SequenceSolution<T, Subtype> dual() {
+    return new SequenceSolution<T, Subtype>(this.getContent(), this.getDegree(), this.factorization.dual());
+  }
+
   public Factorization<T, Subtype> getFactorization() {
     return factorization;
   }
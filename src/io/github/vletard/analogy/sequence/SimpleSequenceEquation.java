@@ -1,5 +1,6 @@
 package io.github.vletard.analogy.sequence;
 
+import io.github.vletard.analogy.SolvingOptions;
 import io.github.vletard.analogy.SubtypeRebuilder;
 
 public class SimpleSequenceEquation<T> extends SequenceEquation<T, Sequence<T>> {
@@ -8,4 +9,12 @@ public class SimpleSequenceEquation<T> extends SequenceEquation<T, Sequence<T>>
     super(a, b, c, SubtypeRebuilder.identity());
   }
 
+  public SimpleSequenceEquation(Sequence<T> a, Sequence<T> b, Sequence<T> c, boolean interned) {
+    super(a, b, c, SubtypeRebuilder.identity(), interned);
+  }
+
+  public SimpleSequenceEquation(Sequence<T> a, Sequence<T> b, Sequence<T> c, SolvingOptions options) {
+    super(a, b, c, SubtypeRebuilder.identity(), options);
+  }
+
 }
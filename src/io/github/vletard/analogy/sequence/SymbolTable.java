@@ -0,0 +1,69 @@
+package io.github.vletard.analogy.sequence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class interns the items of a set of sequences into a dense alphabet of integer codes,
+ * such that two items are equal if and only if they have the same code.
+ * Codes range from 0 (included) to {@link #size()} (excluded), in order of first interning.
+ * @author Vincent Letard
+ *
+ * @param <E> the type of the interned items.
+ */
+public class SymbolTable<E> {
+  private final HashMap<E, Integer> codes;
+  private final ArrayList<E> symbols;
+
+  /**
+   * Constructs a new empty symbol table.
+   */
+  public SymbolTable() {
+    this.codes = new HashMap<E, Integer>();
+    this.symbols = new ArrayList<E>();
+  }
+
+  /**
+   * Returns the code of the provided item, assigning it a new code if it was not interned yet.
+   * @param item the item to be interned.
+   * @return the code of the item.
+   */
+  public int intern(E item) {
+    Integer code = this.codes.get(item);
+    if (code == null) {
+      code = this.symbols.size();
+      this.codes.put(item, code);
+      this.symbols.add(item);
+    }
+    return code;
+  }
+
+  /**
+   * Interns every item of the provided sequence.
+   * @param sequence the sequence to be encoded.
+   * @return the array of the codes of the items of the sequence, in the same order.
+   */
+  public int[] encode(Sequence<E> sequence) {
+    int[] encoded = new int[sequence.size()];
+    for (int i = 0; i < encoded.length; i++)
+      encoded[i] = this.intern(sequence.get(i));
+    return encoded;
+  }
+
+  /**
+   * Maps a code back to the item it was assigned to.
+   * @param code the code of the item.
+   * @return the interned item.
+   */
+  public E get(int code) {
+    return this.symbols.get(code);
+  }
+
+  /**
+   * Returns the number of distinct items interned in this table.
+   * @return the size of the alphabet.
+   */
+  public int size() {
+    return this.symbols.size();
+  }
+}
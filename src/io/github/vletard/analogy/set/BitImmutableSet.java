@@ -0,0 +1,210 @@
+package io.github.vletard.analogy.set;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable set storing the membership of the items of a shared {@link SetUniverse} as a bitset.
+ * Equations and proportions between sets of the same universe are solved with word-parallel boolean operations
+ * instead of one atomic analogy per item.
+ * @author Vincent Letard
+ *
+ * @param <T> the type of the items.
+ */
+public class BitImmutableSet<T> extends ImmutableSet<T> {
+  private static final long serialVersionUID = -1652480936418732279L;
+
+  /**
+   * Read-only set view over the bits of a universe.
+   */
+  private static class BitSetView<T> extends AbstractSet<T> implements Serializable {
+    private static final long serialVersionUID = 2755216108496703384L;
+
+    private final SetUniverse<T> universe;
+    private final BitSet bits;
+    private final int size;
+
+    private BitSetView(SetUniverse<T> universe, BitSet bits) {
+      this.universe = universe;
+      this.bits = bits;
+      this.size = bits.cardinality();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      int index = this.universe.indexOf(o);
+      return index >= 0 && this.bits.get(index);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private int next = BitSetView.this.bits.nextSetBit(0);
+
+        @Override
+        public boolean hasNext() {
+          return this.next >= 0;
+        }
+
+        @Override
+        public T next() {
+          if (!this.hasNext())
+            throw new NoSuchElementException();
+          T item = BitSetView.this.universe.get(this.next);
+          this.next = BitSetView.this.bits.nextSetBit(this.next + 1);
+          return item;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return this.size;
+    }
+  }
+
+  private final SetUniverse<T> universe;
+  private final BitSet bits;
+
+  /**
+   * Constructs a new set of the provided items, interning them into the universe.
+   * @param universe the universe shared by the sets to be compared
+   * @param s the items of the set
+   */
+  public BitImmutableSet(SetUniverse<T> universe, Set<T> s) {
+    this(universe, encode(universe, s));
+  }
+
+  /**
+   * Constructs a new set over the provided bits, which must not be modified anymore.
+   */
+  BitImmutableSet(SetUniverse<T> universe, BitSet bits) {
+    super(new BitSetView<T>(universe, bits), false);
+    this.universe = universe;
+    this.bits = bits;
+  }
+
+  private static <T> BitSet encode(SetUniverse<T> universe, Set<T> s) {
+    BitSet bits = new BitSet();
+    for (T item: s)
+      bits.set(universe.intern(item));
+    return bits;
+  }
+
+  /**
+   * Returns the universe of the items of this set.
+   * @return the universe.
+   */
+  public SetUniverse<T> getUniverse() {
+    return this.universe;
+  }
+
+  /**
+   * Checks whether the provided sets are bitsets of the same universe, that can be combined bitwise.
+   * @param sets the sets to be checked
+   * @return true if every set is a {@link BitImmutableSet} of the universe of the first one.
+   */
+  public static boolean shareUniverse(Object... sets) {
+    for (Object s: sets)
+      if (!(s instanceof BitImmutableSet) || ((BitImmutableSet<?>) s).universe != ((BitImmutableSet<?>) sets[0]).universe)
+        return false;
+    return true;
+  }
+
+  /**
+   * Returns the items on which A : B :: C : ? has no solution, that is the items belonging to both B and C but not to A,
+   * or to A but neither to B nor to C.
+   */
+  private static BitSet conflicts(BitSet a, BitSet b, BitSet c) {
+    BitSet ab = (BitSet) a.clone();
+    ab.xor(b);
+    BitSet ac = (BitSet) a.clone();
+    ac.xor(c);
+    ab.and(ac);
+    return ab;
+  }
+
+  /**
+   * Checks whether the equation A : B :: C : ? between sets of the same universe has a solution.
+   * @param a set A
+   * @param b set B
+   * @param c set C
+   * @return true if the equation has a solution.
+   */
+  public static <T> boolean isSolvable(BitImmutableSet<T> a, BitImmutableSet<T> b, BitImmutableSet<T> c) {
+    return conflicts(a.bits, b.bits, c.bits).isEmpty();
+  }
+
+  /**
+   * Solves the equation A : B :: C : ? between sets of the same universe, as D = A xor B xor C.
+   * @param a set A
+   * @param b set B
+   * @param c set C
+   * @return the solution, or null if the equation has none.
+   */
+  public static <T> BitImmutableSet<T> solve(BitImmutableSet<T> a, BitImmutableSet<T> b, BitImmutableSet<T> c) {
+    if (!conflicts(a.bits, b.bits, c.bits).isEmpty())
+      return null;
+    BitSet d = (BitSet) a.bits.clone();
+    d.xor(b.bits);
+    d.xor(c.bits);
+    return new BitImmutableSet<T>(a.universe, d);
+  }
+
+  /**
+   * Checks the proportion A : B :: C : D between sets of the same universe.
+   * Each item must either belong to A and B or to neither and likewise for C and D, or to A and C or to neither
+   * and likewise for B and D, that is (A xor B) or (C xor D) and (A xor C) or (B xor D) must be disjoint.
+   * @param a set A
+   * @param b set B
+   * @param c set C
+   * @param d set D
+   * @return true if the proportion is valid.
+   */
+  public static <T> boolean isValidProportion(BitImmutableSet<T> a, BitImmutableSet<T> b, BitImmutableSet<T> c, BitImmutableSet<T> d) {
+    BitSet straight = (BitSet) a.bits.clone();
+    straight.xor(b.bits);
+    BitSet cd = (BitSet) c.bits.clone();
+    cd.xor(d.bits);
+    straight.or(cd);
+    BitSet crossed = (BitSet) a.bits.clone();
+    crossed.xor(c.bits);
+    BitSet bd = (BitSet) b.bits.clone();
+    bd.xor(d.bits);
+    crossed.or(bd);
+    return !straight.intersects(crossed);
+  }
+
+  /**
+   * Returns the items of this set that do not belong to the other one, which must share its universe.
+   * @param other the set whose items are removed
+   * @return the set difference.
+   */
+  public BitImmutableSet<T> minus(BitImmutableSet<T> other) {
+    BitSet difference = (BitSet) this.bits.clone();
+    difference.andNot(other.bits);
+    return new BitImmutableSet<T>(this.universe, difference);
+  }
+
+  /**
+   * {@inheritDoc}
+   * Sets of the same universe are compared on their bits.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    BitImmutableSet<?> other = (BitImmutableSet<?>) obj;
+    if (this.universe == other.universe)
+      return this.bits.equals(other.bits);
+    return super.equals(obj);
+  }
+}
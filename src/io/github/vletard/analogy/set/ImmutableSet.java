@@ -11,7 +11,16 @@ public class ImmutableSet<T> implements Iterable<T>, Serializable {
   private final Set<T> s;
   
   public ImmutableSet(Set<T> s) {
-    this.s = Collections.unmodifiableSet(new HashSet<T>(s));
+    this(s, true);
+  }
+
+  /**
+   * Constructs a new set, optionally without copying the provided set, for subtypes having their own storage.
+   * @param s the items of the set
+   * @param copy whether the items are copied, otherwise the provided set must never be modified
+   */
+  protected ImmutableSet(Set<T> s, boolean copy) {
+    this.s = Collections.unmodifiableSet(copy ? new HashSet<T>(s) : s);
   }
 
   @Override
@@ -0,0 +1,57 @@
+package io.github.vletard.analogy.set;
+
+import java.util.HashSet;
+
+import io.github.vletard.analogy.AnalogyDomain;
+import io.github.vletard.analogy.DefaultEquation;
+import io.github.vletard.analogy.DefaultProportion;
+import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SubtypeRebuilder;
+
+/**
+ * Domain of the {@link ImmutableSet}s, solved by {@link SetEquation}.
+ * A proportion between sets holds if the memberships of each item are in proportion.
+ * @author Vincent Letard
+ */
+public class SetDomain extends AnalogyDomain {
+
+  public SetDomain() {
+    super(ImmutableSet.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> DefaultEquation<E, ? extends Solution<E>> equation(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options) {
+    if (rebuilder == null)
+      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SimpleSetEquation<Object>((ImmutableSet<Object>) a, (ImmutableSet<Object>) b, (ImmutableSet<Object>) c, options);
+    else
+      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SetEquation<Object, ImmutableSet<Object>>((ImmutableSet<Object>) a, (ImmutableSet<Object>) b, (ImmutableSet<Object>) c, (SubtypeRebuilder<ImmutableSet<Object>, ImmutableSet<Object>>) rebuilder, options);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean isValidProportion(Object A, Object B, Object C, Object D) {
+    ImmutableSet<Object> a = (ImmutableSet<Object>) A;
+    ImmutableSet<Object> b = (ImmutableSet<Object>) B;
+    ImmutableSet<Object> c = (ImmutableSet<Object>) C;
+    ImmutableSet<Object> d = (ImmutableSet<Object>) D;
+    
+    if (BitImmutableSet.shareUniverse(a, b, c, d))
+      return BitImmutableSet.isValidProportion((BitImmutableSet<Object>) a, (BitImmutableSet<Object>) b, (BitImmutableSet<Object>) c, (BitImmutableSet<Object>) d);
+    if (SortedImmutableSet.shareOrder(a, b, c, d))
+      return SortedImmutableSet.isValidProportion((SortedImmutableSet<Object>) a, (SortedImmutableSet<Object>) b, (SortedImmutableSet<Object>) c, (SortedImmutableSet<Object>) d);
+
+    HashSet<Object> union = new HashSet<Object>();
+    union.addAll(a.asSet());
+    union.addAll(b.asSet());
+    union.addAll(c.asSet());
+    union.addAll(d.asSet());
+    
+    for (Object key: union) {
+      if (!new DefaultProportion<Boolean>(a.contains(key), b.contains(key), c.contains(key), d.contains(key)).isValid())
+        return false; // if any of the items does not respect analogical constraints over the 4 sets, the proportion is invalid
+    }
+    return true;
+  }
+}
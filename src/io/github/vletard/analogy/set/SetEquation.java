@@ -6,7 +6,11 @@ import java.util.Iterator;
 
 import io.github.vletard.analogy.DefaultEquation;
 import io.github.vletard.analogy.AtomicEquation;
+import io.github.vletard.analogy.DegreeCutoff;
+import io.github.vletard.analogy.EquationEvent;
 import io.github.vletard.analogy.NoSolutionException;
+import io.github.vletard.analogy.SolverStats;
+import io.github.vletard.analogy.SolvingOptions;
 import io.github.vletard.analogy.SubtypeRebuilder;
 
 public class SetEquation<Item, Subtype extends ImmutableSet<Item>> extends DefaultEquation<Subtype, SetSolution<Item, Subtype>> {
@@ -14,12 +18,72 @@ public class SetEquation<Item, Subtype extends ImmutableSet<Item>> extends Defau
   private final SubtypeRebuilder<ImmutableSet<Item>, Subtype> rebuilder;
   
   public SetEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<ImmutableSet<Item>, Subtype> rebuilder) {
-    super(a, b, c);
+    this(a, b, c, rebuilder, SolvingOptions.DEFAULT);
+  }
+
+  public SetEquation(Subtype a, Subtype b, Subtype c, SubtypeRebuilder<ImmutableSet<Item>, Subtype> rebuilder, SolvingOptions options) {
+    super(a, b, c, options);
     this.rebuilder = rebuilder;
   }
   
+  /**
+   * {@inheritDoc}
+   * The check is exact for set equations: every item of A must belong to B or C, and every item of both B and C must belong to A.
+   */
+  @Override
+  public boolean isFeasible() {
+    if (!new DegreeCutoff(this.getOptions()).accepts(1))
+      return false;
+    if (BitImmutableSet.shareUniverse(this.a, this.b, this.c))
+      return BitImmutableSet.isSolvable((BitImmutableSet<Item>) this.a, (BitImmutableSet<Item>) this.b, (BitImmutableSet<Item>) this.c);
+    if (SortedImmutableSet.shareOrder(this.a, this.b, this.c))
+      return SortedImmutableSet.solve((SortedImmutableSet<Item>) this.a, (SortedImmutableSet<Item>) this.b, (SortedImmutableSet<Item>) this.c) != null;
+    for (Item item: this.a.asSet())
+      if (!this.b.contains(item) && !this.c.contains(item))
+        return false;
+    for (Item item: this.b.asSet())
+      if (this.c.contains(item) && !this.a.contains(item))
+        return false;
+    return true;
+  }
+
+  @Override
+  public long estimateCost() {
+    return (long) this.a.size() + this.b.size() + this.c.size();
+  }
+
   @Override
   public Iterator<SetSolution<Item, Subtype>> iterator() {
+    if (!new DegreeCutoff(this.getOptions()).accepts(1) || !this.getOptions().getBudget().check())
+      return Collections.emptyIterator();
+    SolverStats stats = this.getOptions().getStats();
+    EquationEvent event = new EquationEvent(this);
+    long start = stats.start();
+    ImmutableSet<Item> solution;
+    try {
+      solution = this.solve();
+    } finally {
+      stats.stop(start);
+    }
+    if (solution == null) {
+      event.finish();
+      return Collections.emptyIterator();
+    }
+    stats.solution(1);
+    event.solution(1);
+    event.finish(); // the single solution is computed eagerly
+    return Collections.singleton(new SetSolution<Item, Subtype>(rebuilder.rebuild(solution), 1, this)).iterator();
+  }
+
+  /**
+   * Computes the single solution of this equation, with bitwise operations or a merge if the three sets allow it.
+   * @return the solution, or null if this equation has none.
+   */
+  private ImmutableSet<Item> solve() {
+    if (BitImmutableSet.shareUniverse(this.a, this.b, this.c))
+      return BitImmutableSet.solve((BitImmutableSet<Item>) this.a, (BitImmutableSet<Item>) this.b, (BitImmutableSet<Item>) this.c);
+    if (SortedImmutableSet.shareOrder(this.a, this.b, this.c))
+      return SortedImmutableSet.solve((SortedImmutableSet<Item>) this.a, (SortedImmutableSet<Item>) this.b, (SortedImmutableSet<Item>) this.c);
     HashSet<Item> union = new HashSet<Item>();
     union.addAll(this.a.asSet());
     union.addAll(this.b.asSet());
@@ -29,15 +93,19 @@ public class SetEquation<Item, Subtype extends ImmutableSet<Item>> extends Defau
       for (Item item: union)
         if (new AtomicEquation<Boolean>(a.contains(item), b.contains(item), c.contains(item)).getSolution().getContent())
           solution.add(item);
-      
-      return Collections.singleton(new SetSolution<Item, Subtype>(rebuilder.rebuild(new ImmutableSet<Item>(solution)), 1, this)).iterator();
+      return new ImmutableSet<Item>(solution);
     } catch (NoSolutionException e) { // if one of the objects does not respect the analogical constraint, the equation fails
-      return Collections.emptyIterator();
+      return null;
     }
   }
 
+  @Override
+  public SubtypeRebuilder<ImmutableSet<Item>, Subtype> getRebuilder() {
+    return this.rebuilder;
+  }
+
   @Override
   public SetEquation<Item, Subtype> dual() {
-    return new SetEquation<Item, Subtype>(this.a, this.c, this.b, this.rebuilder);
+    return new SetEquation<Item, Subtype>(this.a, this.c, this.b, this.rebuilder, this.getOptions());
   }
 }
@@ -19,7 +19,16 @@ public class SetRelation<Item, Subtype extends ImmutableSet<Item>> implements Re
     this.added = new HashSet<Item>();
     this.removed = new HashSet<Item>();
     
-    if (crossed) {
+    ImmutableSet<Item> other = crossed ? equation.c : equation.b;
+    if (BitImmutableSet.shareUniverse(equation.a, other)) {
+      BitImmutableSet<Item> a = (BitImmutableSet<Item>) equation.a, o = (BitImmutableSet<Item>) other;
+      this.added.addAll(o.minus(a).asSet());
+      this.removed.addAll(a.minus(o).asSet());
+    } else if (SortedImmutableSet.shareOrder(equation.a, other)) {
+      SortedImmutableSet<Item> a = (SortedImmutableSet<Item>) equation.a, o = (SortedImmutableSet<Item>) other;
+      this.added.addAll(o.minus(a).asSet());
+      this.removed.addAll(a.minus(o).asSet());
+    } else if (crossed) {
       for (Item i: equation.c)
         if (!equation.a.contains(i))
           this.added.add(i);
@@ -11,6 +11,12 @@ public class SetSolution<E, T extends ImmutableSet<E>> extends Solution<T> {
     this.crossedRelation = SetRelation.newCrossedRelation(equation);
   }
 
+  private SetSolution(T content, int degree, SetRelation<E, T> straightRelation, SetRelation<E, T> crossedRelation) {
+    super(content, degree);
+    this.straightRelation = straightRelation;
+    this.crossedRelation = crossedRelation;
+  }
+
   @Override
   public SetRelation<E, T> getStraightRelation() {
     return this.straightRelation;
@@ -20,4 +26,9 @@ public class SetSolution<E, T extends ImmutableSet<E>> extends Solution<T> {
   public SetRelation<E, T> getCrossedRelation() {
     return this.crossedRelation;
   }
+
+  @Override
+  public SetSolution<E, T> dual() {
+    return new SetSolution<E, T>(this.getContent(), this.getDegree(), this.crossedRelation, this.straightRelation);
+  }
 }
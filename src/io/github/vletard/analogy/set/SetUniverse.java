@@ -0,0 +1,71 @@
+package io.github.vletard.analogy.set;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class interns the items of a family of {@link BitImmutableSet}s into dense integer indices,
+ * such that the membership of each item is stored as a single bit.
+ * Indices range from 0 (included) to {@link #size()} (excluded), in order of first interning.
+ * A universe can be shared by several threads.
+ * @author Vincent Letard
+ *
+ * @param <T> the type of the interned items.
+ */
+public class SetUniverse<T> implements Serializable {
+  private static final long serialVersionUID = 6329021386745176813L;
+
+  private final HashMap<T, Integer> indices;
+  private final ArrayList<T> items;
+
+  /**
+   * Constructs a new empty universe.
+   */
+  public SetUniverse() {
+    this.indices = new HashMap<T, Integer>();
+    this.items = new ArrayList<T>();
+  }
+
+  /**
+   * Returns the index of the provided item, assigning it a new index if it was not interned yet.
+   * @param item the item to be interned.
+   * @return the index of the item.
+   */
+  public synchronized int intern(T item) {
+    Integer index = this.indices.get(item);
+    if (index == null) {
+      index = this.items.size();
+      this.indices.put(item, index);
+      this.items.add(item);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the index of the provided item, without interning it.
+   * @param item the item.
+   * @return the index of the item, or -1 if it was never interned.
+   */
+  public synchronized int indexOf(Object item) {
+    Integer index = this.indices.get(item);
+    return (index == null) ? -1 : index;
+  }
+
+  /**
+   * Maps an index back to the item it was assigned to.
+   * @param index the index of the item.
+   * @return the interned item.
+   */
+  public synchronized T get(int index) {
+    return this.items.get(index);
+  }
+
+  /**
+   * Returns the number of interned items.
+   * @return the size of this universe.
+   */
+  public synchronized int size() {
+    return this.items.size();
+  }
+}
@@ -1,9 +1,14 @@
 package io.github.vletard.analogy.set;
 
+import io.github.vletard.analogy.SolvingOptions;
 import io.github.vletard.analogy.SubtypeRebuilder;
 
 public class SimpleSetEquation<T> extends SetEquation<T, ImmutableSet<T>> {
   public SimpleSetEquation(ImmutableSet<T> a, ImmutableSet<T> b, ImmutableSet<T> c) {
     super(a, b, c, SubtypeRebuilder.identity());
   }
+
+  public SimpleSetEquation(ImmutableSet<T> a, ImmutableSet<T> b, ImmutableSet<T> c, SolvingOptions options) {
+    super(a, b, c, SubtypeRebuilder.identity(), options);
+  }
 }
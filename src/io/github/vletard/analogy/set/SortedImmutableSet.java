@@ -0,0 +1,316 @@
+package io.github.vletard.analogy.set;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable set storing its items in a sorted array, for items that cannot be interned into a bounded universe.
+ * Equations and proportions between sets of the same order are solved with a single merge pass over the sorted items,
+ * without hashing nor building their union, and stop at the first item violating the analogy.
+ * The merges also accept sorted iterators, such that very large inputs do not need to be materialized.
+ * @author Vincent Letard
+ *
+ * @param <T> the type of the items.
+ */
+public class SortedImmutableSet<T> extends ImmutableSet<T> {
+  private static final long serialVersionUID = 8014273685301942265L;
+
+  /**
+   * Read-only set view over a sorted array.
+   */
+  private static class SortedArrayView<T> extends AbstractSet<T> implements Serializable {
+    private static final long serialVersionUID = -4480159218386571940L;
+
+    private final Object[] items;
+    private final Comparator<? super T> comparator;
+
+    private SortedArrayView(Object[] items, Comparator<? super T> comparator) {
+      this.items = items;
+      this.comparator = comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object o) {
+      try {
+        return Arrays.binarySearch((T[]) this.items, (T) o, this.comparator) >= 0;
+      } catch (ClassCastException e) {
+        return false;
+      }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return this.next < SortedArrayView.this.items.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+          if (!this.hasNext())
+            throw new NoSuchElementException();
+          return (T) SortedArrayView.this.items[this.next++];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return this.items.length;
+    }
+  }
+
+  /**
+   * Membership of the item currently read by a merge, in each of the merged sets.
+   * The exhaustion of each input is tracked apart from its head, since null may be an item of a set whose order accepts it.
+   */
+  private static class MergeCursor<T> {
+    private final List<Iterator<? extends T>> inputs;
+    private final Object[] heads;
+    private final boolean[] exhausted;
+    private final Comparator<? super T> comparator;
+    private final boolean[] members;
+    private T item;
+
+    private MergeCursor(Comparator<? super T> comparator, List<Iterator<? extends T>> inputs) {
+      this.inputs = inputs;
+      this.heads = new Object[inputs.size()];
+      this.exhausted = new boolean[inputs.size()];
+      this.comparator = comparator;
+      this.members = new boolean[inputs.size()];
+      for (int i = 0; i < inputs.size(); i++)
+        this.pull(i, true);
+    }
+
+    /**
+     * Reads the next item of an input as its head, checking that it is strictly greater than the previous head.
+     */
+    private void pull(int input, boolean first) {
+      Iterator<? extends T> it = this.inputs.get(input);
+      if (!it.hasNext()) {
+        this.exhausted[input] = true;
+        this.heads[input] = null;
+        return;
+      }
+      Object previous = this.heads[input];
+      T item = it.next();
+      if (!first && this.compare(previous, item) >= 0)
+        throw new IllegalArgumentException("The items of a merged set must be sorted in strictly ascending order.");
+      this.heads[input] = item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object x, Object y) {
+      return this.comparator.compare((T) x, (T) y);
+    }
+
+    /**
+     * Moves to the lowest item not read yet, and sets its membership in each input.
+     * @return false if every input is exhausted.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean advance() {
+      int lowest = -1;
+      for (int i = 0; i < this.heads.length; i++)
+        if (!this.exhausted[i] && (lowest < 0 || this.compare(this.heads[i], this.heads[lowest]) < 0))
+          lowest = i;
+      if (lowest < 0)
+        return false;
+      this.item = (T) this.heads[lowest];
+      for (int i = 0; i < this.heads.length; i++)
+        this.members[i] = !this.exhausted[i] && this.compare(this.heads[i], this.item) == 0;
+      for (int i = 0; i < this.heads.length; i++)
+        if (this.members[i])
+          this.pull(i, false);
+      return true;
+    }
+  }
+
+  private final Object[] items;
+  private final Comparator<? super T> comparator;
+
+  /**
+   * Constructs a new set of the provided items, in their natural order.
+   * @param s the items of the set, which must be {@link Comparable}
+   */
+  public SortedImmutableSet(Set<T> s) {
+    this(s, null);
+  }
+
+  /**
+   * Constructs a new set of the provided items, in the order of the comparator.
+   * @param s the items of the set
+   * @param comparator the order of the items, consistent with their equality, or null for their natural order
+   */
+  public SortedImmutableSet(Set<T> s, Comparator<? super T> comparator) {
+    this(sort(s.toArray(), order(comparator)), order(comparator));
+  }
+
+  /**
+   * Constructs a new set of the items provided in strictly ascending order, without materializing them in another collection.
+   * @param sorted the items of the set, in strictly ascending order
+   * @param comparator the order of the items, consistent with their equality, or null for their natural order
+   * @throws IllegalArgumentException if the items are not sorted.
+   */
+  public SortedImmutableSet(Iterator<? extends T> sorted, Comparator<? super T> comparator) {
+    this(collect(new MergeCursor<T>(order(comparator), Collections.<Iterator<? extends T>>singletonList(sorted))), order(comparator));
+  }
+
+  private SortedImmutableSet(Object[] items, Comparator<? super T> comparator) {
+    super(new SortedArrayView<T>(items, comparator), false);
+    this.items = items;
+    this.comparator = comparator;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Comparator<? super T> order(Comparator<? super T> comparator) {
+    return (comparator == null) ? (Comparator<? super T>) Comparator.naturalOrder() : comparator;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Object[] sort(Object[] items, Comparator<? super T> comparator) {
+    Arrays.sort((T[]) items, comparator);
+    return items;
+  }
+
+  private static <T> Object[] collect(MergeCursor<T> cursor) {
+    ArrayList<Object> items = new ArrayList<Object>();
+    while (cursor.advance())
+      items.add(cursor.item);
+    return items.toArray();
+  }
+
+  /**
+   * Returns the order of the items of this set.
+   * @return the comparator of this set.
+   */
+  public Comparator<? super T> comparator() {
+    return this.comparator;
+  }
+
+  /**
+   * Checks whether the provided sets are sorted sets of the same order, that can be merged.
+   * @param sets the sets to be checked
+   * @return true if every set is a {@link SortedImmutableSet} with the comparator of the first one.
+   */
+  public static boolean shareOrder(Object... sets) {
+    for (Object s: sets)
+      if (!(s instanceof SortedImmutableSet) || !((SortedImmutableSet<?>) s).comparator.equals(((SortedImmutableSet<?>) sets[0]).comparator))
+        return false;
+    return true;
+  }
+
+  /**
+   * Solves the equation A : B :: C : ? between sorted sets of the same order.
+   * @param a set A
+   * @param b set B
+   * @param c set C
+   * @return the solution, or null if the equation has none.
+   */
+  public static <T> SortedImmutableSet<T> solve(SortedImmutableSet<T> a, SortedImmutableSet<T> b, SortedImmutableSet<T> c) {
+    return solve(a.iterator(), b.iterator(), c.iterator(), a.comparator);
+  }
+
+  /**
+   * Solves the equation A : B :: C : ? between sets provided as sorted iterators, in a single merge pass.
+   * Each item belongs to D if it belongs to B and not to A, or to C and not to A, or to A, B and C.
+   * The merge stops as soon as an item belongs to both B and C but not to A, or to A but neither to B nor to C.
+   * @param a the items of A in strictly ascending order
+   * @param b the items of B in strictly ascending order
+   * @param c the items of C in strictly ascending order
+   * @param comparator the order of the items, or null for their natural order
+   * @return the solution, or null if the equation has none.
+   * @throws IllegalArgumentException if the items of a set are not sorted.
+   */
+  public static <T> SortedImmutableSet<T> solve(Iterator<? extends T> a, Iterator<? extends T> b, Iterator<? extends T> c, Comparator<? super T> comparator) {
+    MergeCursor<T> cursor = new MergeCursor<T>(order(comparator), Arrays.<Iterator<? extends T>>asList(a, b, c));
+    ArrayList<Object> d = new ArrayList<Object>();
+    while (cursor.advance()) {
+      boolean inA = cursor.members[0], inB = cursor.members[1], inC = cursor.members[2];
+      if (inA != inB && inA != inC)
+        return null;
+      if (inA ^ inB ^ inC)
+        d.add(cursor.item);
+    }
+    return new SortedImmutableSet<T>(d.toArray(), order(comparator));
+  }
+
+  /**
+   * Checks the proportion A : B :: C : D between sorted sets of the same order.
+   * @param a set A
+   * @param b set B
+   * @param c set C
+   * @param d set D
+   * @return true if the proportion is valid.
+   */
+  public static <T> boolean isValidProportion(SortedImmutableSet<T> a, SortedImmutableSet<T> b, SortedImmutableSet<T> c, SortedImmutableSet<T> d) {
+    return isValidProportion(a.iterator(), b.iterator(), c.iterator(), d.iterator(), a.comparator);
+  }
+
+  /**
+   * Checks the proportion A : B :: C : D between sets provided as sorted iterators, in a single merge pass
+   * that stops at the first item violating it.
+   * @param a the items of A in strictly ascending order
+   * @param b the items of B in strictly ascending order
+   * @param c the items of C in strictly ascending order
+   * @param d the items of D in strictly ascending order
+   * @param comparator the order of the items, or null for their natural order
+   * @return true if the proportion is valid.
+   * @throws IllegalArgumentException if the items of a set are not sorted.
+   */
+  public static <T> boolean isValidProportion(Iterator<? extends T> a, Iterator<? extends T> b, Iterator<? extends T> c, Iterator<? extends T> d,
+      Comparator<? super T> comparator) {
+    MergeCursor<T> cursor = new MergeCursor<T>(order(comparator), Arrays.<Iterator<? extends T>>asList(a, b, c, d));
+    while (cursor.advance()) {
+      boolean[] m = cursor.members;
+      if (!(m[0] == m[1] && m[2] == m[3]) && !(m[0] == m[2] && m[1] == m[3]))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the items of this set that do not belong to the other one, which must share its order.
+   * @param other the set whose items are removed
+   * @return the set difference.
+   */
+  public SortedImmutableSet<T> minus(SortedImmutableSet<T> other) {
+    MergeCursor<T> cursor = new MergeCursor<T>(this.comparator, Arrays.<Iterator<? extends T>>asList(this.iterator(), other.iterator()));
+    ArrayList<Object> difference = new ArrayList<Object>();
+    while (cursor.advance())
+      if (cursor.members[0] && !cursor.members[1])
+        difference.add(cursor.item);
+    return new SortedImmutableSet<T>(difference.toArray(), this.comparator);
+  }
+
+  /**
+   * {@inheritDoc}
+   * Sets of the same order are compared on their sorted arrays.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    SortedImmutableSet<?> other = (SortedImmutableSet<?>) obj;
+    if (this.comparator.equals(other.comparator))
+      return Arrays.equals(this.items, other.items);
+    return super.equals(obj);
+  }
+}
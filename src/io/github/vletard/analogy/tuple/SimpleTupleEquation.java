@@ -1,7 +1,13 @@
 package io.github.vletard.analogy.tuple;
 
+import io.github.vletard.analogy.SolvingOptions;
+
 public class SimpleTupleEquation<T> extends TupleEquation<T, Tuple<T>> {
   public SimpleTupleEquation(Tuple<T> a, Tuple<T> b, Tuple<T> c) {
     super(a, b, c, SubTupleRebuilder.tupleIdentity());
   }
+
+  public SimpleTupleEquation(Tuple<T> a, Tuple<T> b, Tuple<T> c, SolvingOptions options) {
+    super(a, b, c, SubTupleRebuilder.tupleIdentity(), options);
+  }
 }
@@ -0,0 +1,45 @@
+package io.github.vletard.analogy.tuple;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import io.github.vletard.analogy.Solution;
+
+/**
+ * Memoized solutions of the sub equation of a key, listed on demand in ascending order of degree.
+ * A list is shared by a {@link TupleSolutionIterator} and the iterators split from it, such that each sub equation is solved
+ * once whatever the number of parts: the part needing a solution that is not listed yet searches it on behalf of the others,
+ * which wait for it. Each part copies the listed solutions into a prefix of its own, which it reads without synchronization.
+ * @author Vincent Letard
+ *
+ * @param <T> the type of the items of the sub equation
+ */
+class SolutionList<T> {
+  private final Iterator<? extends Solution<T>> search;
+  private final ArrayList<Solution<T>> solutions;
+
+  /**
+   * Constructs a new empty list.
+   * @param search the solution iterator of the sub equation, which must not be used anymore by the caller
+   */
+  SolutionList(Iterator<? extends Solution<T>> search) {
+    this.search = search;
+    this.solutions = new ArrayList<Solution<T>>();
+  }
+
+  /**
+   * Appends to the provided prefix the listed solutions it is missing, after searching the solutions of this list up to the
+   * provided index if necessary.
+   * @param prefix the prefix of this list copied by a part
+   * @param index the index of the requested solution
+   * @return true if the solution at that index exists.
+   */
+  synchronized boolean extend(List<Solution<T>> prefix, int index) {
+    while (index >= this.solutions.size() && this.search.hasNext())
+      this.solutions.add(this.search.next());
+    if (prefix.size() < this.solutions.size())
+      prefix.addAll(this.solutions.subList(prefix.size(), this.solutions.size()));
+    return index < prefix.size();
+  }
+}
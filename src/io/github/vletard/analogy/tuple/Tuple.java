@@ -1,10 +1,13 @@
 package io.github.vletard.analogy.tuple;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import io.github.vletard.analogy.util.InvalidParameterException;
@@ -15,22 +18,27 @@ import io.github.vletard.analogy.util.RecursivelyPrintable;
  * Each object is added as a key-value mapping.
  * The key can be of any type, and the value is the actual object.
  * One key can only be associated with one object, but an object may be associated with multiple keys.
+ * The keys are held by an interned {@link TupleSchema} shared by all the tuples of the same layout,
+ * and the objects by a flat array indexed on it.
  * @author Vincent Letard
  *
  * @param <V> type of the objects of this tuple.
  */
 public class Tuple<V> implements RecursivelyPrintable, Serializable {
-  private static final long serialVersionUID = 4818248083124898868L;
-  private final Map<Object, V> items;
-  private final Map<Object, V> freeItems;
+  private static final long serialVersionUID = -3675019404312573571L;
+
+  /**
+   * Shared key layout of this Tuple, indexing the values array.
+   */
+  private final TupleSchema schema;
+  private final Object[] values;
 
   /**
    * Constructs a new Tuple using the provided map.
    * @param m mapping of objects for the Tuple.
    */
   public Tuple(Map<?, ? extends V> m) {
-    this.items = Collections.unmodifiableMap(new HashMap<Object, V>(m));
-    this.freeItems = Collections.emptyMap();
+    this(TupleSchema.of(m.keySet()), m, Collections.emptyMap());
   };
 
   /**
@@ -42,22 +50,61 @@ public class Tuple<V> implements RecursivelyPrintable, Serializable {
    * @throws InvalidParameterException if both key sets are not disjoint.
    */
   public Tuple(Map<?, ? extends V> regular, Map<?, ? extends V> free) throws InvalidParameterException {
-    HashSet<Object> test = new HashSet<Object>(regular.keySet());
-    test.retainAll(free.keySet());
-    if (!test.isEmpty())
-      throw new InvalidParameterException("The key set of the free mapping cannot intersect that of the regular one.");
-    this.items = Collections.unmodifiableMap(new HashMap<Object, V>(regular));
-    this.freeItems = Collections.unmodifiableMap(new HashMap<Object, V>(free));
+    this(TupleSchema.of(regular.keySet(), free.keySet()), regular, free);
+  }
+
+  private Tuple(TupleSchema schema, Map<?, ? extends V> regular, Map<?, ? extends V> free) {
+    this.schema = schema;
+    this.values = new Object[schema.size()];
+    for (int i = 0; i < this.values.length; i++)
+      this.values[i] = (schema.isFree(i) ? free : regular).get(schema.getKey(i));
+  }
+
+  /**
+   * Constructs a new Tuple with the provided schema and values, without any key lookup.
+   * @param schema the key layout of the Tuple.
+   * @param values the objects of the Tuple, indexed on the schema.
+   * @throws InvalidParameterException if the number of values does not match the schema.
+   */
+  public Tuple(TupleSchema schema, List<? extends V> values) throws InvalidParameterException {
+    if (values.size() != schema.size())
+      throw new InvalidParameterException("The number of values does not match the size of the schema.");
+    this.schema = schema;
+    this.values = values.toArray();
+  }
+
+  /**
+   * Constructs a new Tuple of the provided schema, taking ownership of the values array.
+   */
+  Tuple(TupleSchema schema, Object[] values) {
+    assert(values.length == schema.size());
+    this.schema = schema;
+    this.values = values;
+  }
+
+  /**
+   * Constructs a new Tuple sharing the schema and the values of the provided one, for subtypes.
+   * @param other the Tuple to be copied.
+   */
+  protected Tuple(Tuple<? extends V> other) {
+    this.schema = other.schema;
+    this.values = other.values;
+  }
+
+  /**
+   * Gets the key layout of this Tuple, shared by every Tuple having the same regular and free keys.
+   * @return the schema of this Tuple.
+   */
+  public TupleSchema getSchema() {
+    return this.schema;
   }
 
   /**
    * Gets the set of keys of this Tuple.
-   * @return the key set of this Tuple.
+   * @return the unmodifiable key set of this Tuple.
    */
   public Set<Object> keySet() {
-    HashSet<Object> keys = new HashSet<Object>(this.items.keySet());
-    keys.addAll(this.freeItems.keySet());
-    return keys;
+    return this.schema.keySet();
   }
 
   /**
@@ -66,19 +113,27 @@ public class Tuple<V> implements RecursivelyPrintable, Serializable {
    * @return the object associated with the provided key in this Tuple.
    */
   public V get(Object key) {
-    if (this.items.containsKey(key))
-      return this.items.get(key);
-    else
-      return this.freeItems.get(key);
+    int index = this.schema.indexOf(key);
+    return (index < 0) ? null : this.valueAt(index);
   };
 
+  /**
+   * Returns the object at the provided index of the schema of this Tuple.
+   * @param index the index of the key in the schema.
+   * @return the object associated with the key at this index.
+   */
+  @SuppressWarnings("unchecked")
+  public V valueAt(int index) {
+    return (V) this.values[index];
+  }
+
   /**
    * Returns whether this Tuple has a mapping to the provided key.
    * @param key the key to check for a mapping.
    * @return true if the key is mapped to something in this Tuple.
    */
   public boolean containsKey(Object key) {
-    return this.items.containsKey(key) || this.freeItems.containsKey(key);
+    return this.schema.indexOf(key) >= 0;
   }
 
   /**
@@ -86,7 +141,7 @@ public class Tuple<V> implements RecursivelyPrintable, Serializable {
    * @return the regular key set of this Tuple.
    */
   public Set<Object> regularKeys() {
-    return this.items.keySet();
+    return this.schema.regularKeys();
   }
 
   /**
@@ -95,7 +150,17 @@ public class Tuple<V> implements RecursivelyPrintable, Serializable {
    * @return the free key set of this Tuple.
    */
   public Set<Object> freeKeys() {
-    return this.freeItems.keySet();
+    return this.schema.freeKeys();
+  }
+
+  /**
+   * Builds the mapping of either the regular or the free keys of this Tuple.
+   */
+  private HashMap<Object, V> toMap(Set<Object> keys) {
+    HashMap<Object, V> map = new HashMap<Object, V>();
+    for (Object k: keys)
+      map.put(k, this.get(k));
+    return map;
   }
 
   /**
@@ -146,10 +211,10 @@ public class Tuple<V> implements RecursivelyPrintable, Serializable {
   public String prettyPrint(int offset) {
     String output = "";
     output += "{ \n";
-    output += this.prettyPrint(offset, this.items.keySet());
-    if (this.freeItems.size() > 0) {
+    output += this.prettyPrint(offset, this.regularKeys());
+    if (this.freeKeys().size() > 0) {
       output += "free";
-      output += this.prettyPrint(offset, this.freeItems.keySet());
+      output += this.prettyPrint(offset, this.freeKeys());
     }
     output += writeOffset(offset) + "}";
 
@@ -158,18 +223,29 @@ public class Tuple<V> implements RecursivelyPrintable, Serializable {
 
   @Override
   public String toString() {
-    String str = "<" + this.items.toString();
-    if (this.freeItems.size() > 0)
-      str += " / " + this.freeItems.toString();
+    String str = "<" + this.toMap(this.regularKeys()).toString();
+    if (this.freeKeys().size() > 0)
+      str += " / " + this.toMap(this.freeKeys()).toString();
     return str + ">";
   }
 
+  /**
+   * Computes the hash code of the mapping of the keys from index start to index end excluded, as a {@link Map} would.
+   */
+  private int hashCode(int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++)
+      hash += Objects.hashCode(this.schema.getKey(i)) ^ Objects.hashCode(this.values[i]);
+    return hash;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
+    int regularCount = this.regularKeys().size();
     int result = 1;
-    result = prime * result + ((freeItems == null) ? 0 : freeItems.hashCode());
-    result = prime * result + ((items == null) ? 0 : items.hashCode());
+    result = prime * result + this.hashCode(regularCount, this.values.length);
+    result = prime * result + this.hashCode(0, regularCount);
     return result;
   }
 
@@ -183,16 +259,13 @@ public class Tuple<V> implements RecursivelyPrintable, Serializable {
     if (getClass() != obj.getClass())
       return false;
     Tuple other = (Tuple) obj;
-    if (freeItems == null) {
-      if (other.freeItems != null)
-        return false;
-    } else if (!freeItems.equals(other.freeItems))
+    if (this.schema == other.schema)
+      return Arrays.equals(this.values, other.values); // interned schemas share the same key order
+    if (!this.schema.equals(other.schema))
       return false;
-    if (items == null) {
-      if (other.items != null)
+    for (int i = 0; i < this.values.length; i++)
+      if (!Objects.equals(this.values[i], other.get(this.schema.getKey(i))))
         return false;
-    } else if (!items.equals(other.items))
-      return false;
     return true;
   }
 
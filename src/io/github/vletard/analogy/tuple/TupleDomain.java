@@ -0,0 +1,65 @@
+package io.github.vletard.analogy.tuple;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import io.github.vletard.analogy.AnalogyDomain;
+import io.github.vletard.analogy.AtomicEquation;
+import io.github.vletard.analogy.DefaultEquation;
+import io.github.vletard.analogy.DefaultProportion;
+import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SubtypeRebuilder;
+
+/**
+ * Domain of the {@link Tuple}s, solved by {@link TupleEquation}.
+ * A proportion between tuples holds if the items of each key are in proportion.
+ * @author Vincent Letard
+ */
+public class TupleDomain extends AnalogyDomain {
+
+  public TupleDomain() {
+    super(Tuple.class);
+  }
+
+  /**
+   * {@inheritDoc}
+   * Tuples are solved as atomic items if the rebuilder is not a {@link SubTupleRebuilder}.
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> DefaultEquation<E, ? extends Solution<E>> equation(E a, E b, E c, SubtypeRebuilder<?, ?> rebuilder, SolvingOptions options) {
+    if (rebuilder == null)
+      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new SimpleTupleEquation<Object>((Tuple<Object>) a, (Tuple<Object>) b, (Tuple<Object>) c, options);
+    else if (rebuilder instanceof SubTupleRebuilder)
+      return (DefaultEquation<E, ? extends Solution<E>>)(DefaultEquation<?, ? extends Solution<?>>) new TupleEquation<Object, Tuple<Object>>((Tuple<Object>) a, (Tuple<Object>) b, (Tuple<Object>) c, (SubTupleRebuilder<Object, Tuple<Object>>) rebuilder, options);
+    else
+      return new AtomicEquation<E>(a, b, c, options);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean isValidProportion(Object a, Object b, Object c, Object d) {
+    Tuple<Object> A = (Tuple<Object>) a;
+    Tuple<Object> B = (Tuple<Object>) b;
+    Tuple<Object> C = (Tuple<Object>) c;
+    Tuple<Object> D = (Tuple<Object>) d;
+    
+    Set<Object> keys;
+    if (A.getSchema() == B.getSchema() && A.getSchema() == C.getSchema() && A.getSchema() == D.getSchema())
+      keys = A.keySet(); // interned schemas, no union is needed
+    else {
+      keys = new HashSet<Object>();
+      keys.addAll(A.keySet());
+      keys.addAll(B.keySet());
+      keys.addAll(C.keySet());
+      keys.addAll(D.keySet());
+    }
+    
+    for (Object key: keys) {
+      if (!new DefaultProportion<Object>(A.get(key), B.get(key), C.get(key), D.get(key)).isValid())
+        return false; // if any of the entries does not respect analogical constraints over the 4 tuples, the proportion is invalid
+    }
+    return true;
+  }
+}
@@ -1,28 +1,149 @@
 package io.github.vletard.analogy.tuple;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 import io.github.vletard.analogy.DefaultEquation;
 import io.github.vletard.analogy.Solution;
+import io.github.vletard.analogy.SolvingOptions;
 
 public class TupleEquation<T, Subtype extends Tuple<T>> extends DefaultEquation<Subtype, Solution<Subtype>> {
 
   private final SubTupleRebuilder<T, Subtype> rebuilder;
+
+  /**
+   * Plan of the sub equations, computed on first use and shared by the feasibility check and every iterator of this equation.
+   * It is only published once computed, a concurrent first use computing an equivalent plan.
+   */
+  private volatile LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan;
+  private volatile boolean planned;
   
   public TupleEquation(Subtype a, Subtype b, Subtype c, SubTupleRebuilder<T, Subtype> rebuilder) {
-    super(a, b, c);
+    this(a, b, c, rebuilder, SolvingOptions.DEFAULT);
+  }
+
+  public TupleEquation(Subtype a, Subtype b, Subtype c, SubTupleRebuilder<T, Subtype> rebuilder, SolvingOptions options) {
+    super(a, b, c, options);
     this.rebuilder = rebuilder;
+    this.plan = null;
+    this.planned = false;
   }
 
-  protected SubTupleRebuilder<T, Subtype> getRebuilder() {
+  @Override
+  public SubTupleRebuilder<T, Subtype> getRebuilder() {
     return this.rebuilder;
   }
 
+  /**
+   * Returns the union of the key sets of the three tuples, which is only computed if their schemas differ.
+   * @return the keys of the sub equations.
+   */
+  Set<Object> keySet() {
+    if (this.a.getSchema() == this.b.getSchema() && this.a.getSchema() == this.c.getSchema())
+      return this.a.keySet();
+    HashSet<Object> keySet = new HashSet<Object>();
+    keySet.addAll(this.a.keySet());
+    keySet.addAll(this.b.keySet());
+    keySet.addAll(this.c.keySet());
+    return keySet;
+  }
+
+  /**
+   * Returns the union of the free key sets of the three tuples.
+   * @return the keys whose solutions do not count in the degree of the tuple solutions.
+   */
+  Set<Object> freeKeySet() {
+    HashSet<Object> keySet = new HashSet<Object>(this.a.freeKeys());
+    if (this.b.getSchema() != this.a.getSchema())
+      keySet.addAll(this.b.freeKeys());
+    if (this.c.getSchema() != this.a.getSchema())
+      keySet.addAll(this.c.freeKeys());
+    return keySet;
+  }
+
+  /**
+   * Builds the sub equation of each key and checks their feasibility, stopping at the first infeasible one.
+   * The keys are ordered on the estimated cost of their sub equation, the cheapest first. This order stands as a proxy for
+   * trying the likely failures first, since the odds that a search fails cannot be estimated without performing it: the sub equations
+   * known to fail are already dismissed by their feasibility check, and a cheap sub equation that fails within the degree bounds
+   * ends the enumeration before the expensive ones are searched.
+   * The plan is only computed once per equation.
+   * @return the sub equations in the order in which they are to be solved, or null if one of them has no solution.
+   */
+  LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan() {
+    if (!this.planned) {
+      this.plan = this.buildPlan();
+      this.planned = true;
+    }
+    return this.plan;
+  }
+
+  private LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> buildPlan() {
+    Set<Object> keySet = this.keySet();
+    HashMap<Object, DefaultEquation<T, ? extends Solution<T>>> equations = new HashMap<Object, DefaultEquation<T, ? extends Solution<T>>>();
+    final HashMap<Object, Long> costs = new HashMap<Object, Long>();
+    Set<Object> freeKeys = this.freeKeySet();
+    SolvingOptions options = this.getOptions().forSubEquation();
+    SolvingOptions freeOptions = options.withMaxDegree(SolvingOptions.UNBOUNDED); // free keys add nothing to the degree of a solution
+    for (Object k: keySet) {
+      DefaultEquation<T, ? extends Solution<T>> equation = DefaultEquation.factory(this.a.get(k), this.b.get(k), this.c.get(k), this.rebuilder.get(k),
+          freeKeys.contains(k) ? freeOptions : options);
+      if (!equation.isFeasible())
+        return null;
+      equations.put(k, equation);
+      costs.put(k, equation.estimateCost());
+    }
+
+    ArrayList<Object> keys = new ArrayList<Object>(equations.keySet());
+    keys.sort(new Comparator<Object>() {
+      @Override
+      public int compare(Object k1, Object k2) {
+        return Long.compare(costs.get(k1), costs.get(k2));
+      }
+    });
+    LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan = new LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>>();
+    for (Object k: keys)
+      plan.put(k, equations.get(k));
+    return plan;
+  }
+
+  /**
+   * {@inheritDoc}
+   * The sub equations of every key are checked.
+   */
+  @Override
+  public boolean isFeasible() {
+    return this.plan() != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   * The estimate is the sum of the estimates of the planned sub equations, 1 if one of them has no solution.
+   */
+  @Override
+  public long estimateCost() {
+    LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan = this.plan();
+    if (plan == null)
+      return 1; // no search is started
+    long cost = 0;
+    for (DefaultEquation<T, ? extends Solution<T>> equation: plan.values())
+      cost += equation.estimateCost();
+    return cost;
+  }
+
   @Override
   public Iterator<Solution<Subtype>> iterator() {
     if (this.a instanceof Tuple && this.b instanceof Tuple && this.c instanceof Tuple) {
-      return new TupleSolutionIterator<T, Subtype>(this);
+      LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan = this.plan();
+      if (plan == null)
+        return Collections.emptyIterator(); // no search is started when any key has no solution
+      return new TupleSolutionIterator<T, Subtype>(this, plan);
     }
     else
       return Collections.emptyIterator();
@@ -30,6 +151,6 @@ public class TupleEquation<T, Subtype extends Tuple<T>> extends DefaultEquation<
 
   @Override
   public TupleEquation<T, Subtype> dual() {
-    return new TupleEquation<T, Subtype>(this.a, this.c, this.b, this.rebuilder);
+    return new TupleEquation<T, Subtype>(this.a, this.c, this.b, this.rebuilder, this.getOptions());
   }
 }
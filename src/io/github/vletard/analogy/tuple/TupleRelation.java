@@ -1,48 +1,29 @@
 package io.github.vletard.analogy.tuple;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import io.github.vletard.analogy.Relation;
-import io.github.vletard.analogy.util.InvalidParameterException;
+import io.github.vletard.analogy.Solution;
 
 public class TupleRelation extends Tuple<Relation> implements Relation {
   private static final long serialVersionUID = 5416368724720335976L;
 
-  private TupleRelation(Map<Object, Relation> regularMap, Map<Object, Relation> freeMap) throws InvalidParameterException {
-    super(regularMap, freeMap);
+  private TupleRelation(TupleSchema schema, Object[] relations) {
+    super(schema, relations);
   }
 
   public static TupleRelation newStraightRelation(TupleSolution<?, ?> solution) {
-    Map<Object, Relation> regularMap = new HashMap<Object, Relation>();
-    for (Object key: solution.getSubSolutions().regularKeys())
-      regularMap.put(key, solution.getSubSolutions().get(key).getStraightRelation());
-
-    Map<Object, Relation> freeMap = new HashMap<Object, Relation>();
-    for (Object key: solution.getSubSolutions().freeKeys())
-      freeMap.put(key, solution.getSubSolutions().get(key).getStraightRelation());
-    
-    try {
-      return new TupleRelation(regularMap, freeMap);
-    } catch (InvalidParameterException e) {
-      throw new RuntimeException("Unexpected exception.", e);
-    }
+    Tuple<? extends Solution<?>> subSolutions = solution.getSubSolutions();
+    Object[] relations = new Object[subSolutions.getSchema().size()];
+    for (int i = 0; i < relations.length; i++)
+      relations[i] = subSolutions.valueAt(i).getStraightRelation();
+    return new TupleRelation(subSolutions.getSchema(), relations);
   }
 
   public static TupleRelation newCrossedRelation(TupleSolution<?, ?> solution) {
-    Map<Object, Relation> regularMap = new HashMap<Object, Relation>();
-    for (Object key: solution.getSubSolutions().regularKeys())
-      regularMap.put(key, solution.getSubSolutions().get(key).getCrossedRelation());
-
-    Map<Object, Relation> freeMap = new HashMap<Object, Relation>();
-    for (Object key: solution.getSubSolutions().freeKeys())
-      freeMap.put(key, solution.getSubSolutions().get(key).getCrossedRelation());
-    
-    try {
-      return new TupleRelation(regularMap, freeMap);
-    } catch (InvalidParameterException e) {
-      throw new RuntimeException("Unexpected exception.", e);
-    }
+    Tuple<? extends Solution<?>> subSolutions = solution.getSubSolutions();
+    Object[] relations = new Object[subSolutions.getSchema().size()];
+    for (int i = 0; i < relations.length; i++)
+      relations[i] = subSolutions.valueAt(i).getCrossedRelation();
+    return new TupleRelation(subSolutions.getSchema(), relations);
   }
 
   @Override
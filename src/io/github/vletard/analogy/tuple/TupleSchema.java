@@ -0,0 +1,201 @@
+package io.github.vletard.analogy.tuple;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import io.github.vletard.analogy.util.InvalidParameterException;
+
+/**
+ * Represents the key layout shared by {@link Tuple}s: an ordered array of keys, the regular keys first and the free keys last.
+ * Schemas are interned, such that tuples having the same regular and free key sets share a single instance
+ * and store their values in a flat array indexed on it.
+ * Interned schemas are only weakly referenced, and are released when no tuple uses them anymore.
+ * @author Vincent Letard
+ */
+public final class TupleSchema implements Serializable {
+  private static final long serialVersionUID = -2911364617050946321L;
+
+  private static final Map<TupleSchema, WeakReference<TupleSchema>> interned = new WeakHashMap<TupleSchema, WeakReference<TupleSchema>>();
+
+  /**
+   * The schema of tuples without any key.
+   */
+  public static final TupleSchema EMPTY = intern(new TupleSchema(Collections.emptySet(), Collections.emptySet()));
+
+  private final Object[] keys;
+  private final int regularCount;
+  private final transient Map<Object, Integer> indices;
+  private final transient Set<Object> keySet, regularKeys, freeKeys;
+  private final transient int hashCode;
+  private transient volatile TupleSchema regularSchema;
+
+  private TupleSchema(Collection<?> regular, Collection<?> free) {
+    this.keys = new Object[regular.size() + free.size()];
+    int i = 0;
+    for (Object k: regular)
+      this.keys[i++] = k;
+    for (Object k: free)
+      this.keys[i++] = k;
+    this.regularCount = regular.size();
+
+    this.indices = new HashMap<Object, Integer>();
+    for (i = 0; i < this.keys.length; i++)
+      this.indices.put(this.keys[i], i);
+    this.keySet = Collections.unmodifiableSet(new LinkedHashSet<Object>(Arrays.asList(this.keys)));
+    this.regularKeys = Collections.unmodifiableSet(new LinkedHashSet<Object>(Arrays.asList(this.keys).subList(0, this.regularCount)));
+    this.freeKeys = Collections.unmodifiableSet(new LinkedHashSet<Object>(Arrays.asList(this.keys).subList(this.regularCount, this.keys.length)));
+    this.hashCode = 31 * this.regularKeys.hashCode() + this.freeKeys.hashCode();
+    this.regularSchema = null;
+  }
+
+  private static TupleSchema intern(TupleSchema schema) {
+    synchronized (interned) {
+      WeakReference<TupleSchema> reference = interned.get(schema);
+      TupleSchema existing = (reference == null) ? null : reference.get();
+      if (existing != null)
+        return existing;
+      interned.put(schema, new WeakReference<TupleSchema>(schema));
+      return schema;
+    }
+  }
+
+  /**
+   * Returns the interned schema of the provided key sets.
+   * @param regular the regular keys
+   * @param free the free keys
+   * @return the shared schema of these key sets.
+   * @throws InvalidParameterException if both key sets are not disjoint.
+   */
+  public static TupleSchema of(Set<?> regular, Set<?> free) throws InvalidParameterException {
+    for (Object k: free)
+      if (regular.contains(k))
+        throw new InvalidParameterException("The key set of the free mapping cannot intersect that of the regular one.");
+    if (regular.isEmpty() && free.isEmpty())
+      return EMPTY;
+    return intern(new TupleSchema(regular, free));
+  }
+
+  /**
+   * Returns the interned schema of the provided regular keys, without free key.
+   * @param regular the regular keys
+   * @return the shared schema of this key set.
+   */
+  public static TupleSchema of(Set<?> regular) {
+    if (regular.isEmpty())
+      return EMPTY;
+    return intern(new TupleSchema(regular, Collections.emptySet()));
+  }
+
+  /**
+   * Returns the number of keys of this schema.
+   * @return the number of regular and free keys.
+   */
+  public int size() {
+    return this.keys.length;
+  }
+
+  /**
+   * Returns the key at the provided index, the regular keys being indexed before the free keys.
+   * @param index the index of the key
+   * @return the key.
+   */
+  public Object getKey(int index) {
+    return this.keys[index];
+  }
+
+  /**
+   * Returns the index of the provided key.
+   * @param key the key
+   * @return the index of the key, or -1 if it does not belong to this schema.
+   */
+  public int indexOf(Object key) {
+    Integer index = this.indices.get(key);
+    return (index == null) ? -1 : index;
+  }
+
+  /**
+   * Checks whether the key at the provided index is a free key.
+   * @param index the index of the key
+   * @return true if the key is free.
+   */
+  public boolean isFree(int index) {
+    return index >= this.regularCount;
+  }
+
+  /**
+   * Returns the unmodifiable set of the keys of this schema, in index order.
+   * @return the key set.
+   */
+  public Set<Object> keySet() {
+    return this.keySet;
+  }
+
+  /**
+   * Returns the unmodifiable set of the regular keys of this schema, in index order.
+   * @return the regular key set.
+   */
+  public Set<Object> regularKeys() {
+    return this.regularKeys;
+  }
+
+  /**
+   * Returns the unmodifiable set of the free keys of this schema, in index order.
+   * @return the free key set.
+   */
+  public Set<Object> freeKeys() {
+    return this.freeKeys;
+  }
+
+  /**
+   * Returns the schema having the same keys as this one, all of them being regular.
+   * @return the interned regular schema.
+   */
+  public TupleSchema asRegular() {
+    if (this.freeKeys.isEmpty())
+      return this;
+    if (this.regularSchema == null)
+      this.regularSchema = of(this.keySet);
+    return this.regularSchema;
+  }
+
+  /**
+   * Interns the deserialized schemas, restoring the transient index structures.
+   */
+  private Object readResolve() throws ObjectStreamException {
+    return intern(new TupleSchema(Arrays.asList(this.keys).subList(0, this.regularCount),
+        Arrays.asList(this.keys).subList(this.regularCount, this.keys.length)));
+  }
+
+  @Override
+  public String toString() {
+    return "TupleSchema [regular=" + this.regularKeys + ", free=" + this.freeKeys + "]";
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    TupleSchema other = (TupleSchema) obj;
+    if (this.hashCode != other.hashCode)
+      return false;
+    return this.regularKeys.equals(other.regularKeys) && this.freeKeys.equals(other.freeKeys);
+  }
+}
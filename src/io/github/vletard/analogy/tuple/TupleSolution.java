@@ -1,11 +1,8 @@
 package io.github.vletard.analogy.tuple;
 
-import java.util.HashMap;
-
 import io.github.vletard.analogy.Relation;
 import io.github.vletard.analogy.Solution;
 import io.github.vletard.analogy.SubtypeRebuilder;
-import io.github.vletard.analogy.util.InvalidParameterException;
 
 public class TupleSolution<E, T extends Tuple<E>> extends Solution<T> {
   private final Tuple<Solution<E>> solutionTuple;
@@ -18,25 +15,41 @@ public class TupleSolution<E, T extends Tuple<E>> extends Solution<T> {
     this.crossedRelation = TupleRelation.newCrossedRelation(this);
   }
 
+  private TupleSolution(Tuple<Solution<E>> solutionTuple, T content, int degree) {
+    super(content, degree);
+    this.solutionTuple = solutionTuple;
+    this.straightRelation = TupleRelation.newStraightRelation(this);
+    this.crossedRelation = TupleRelation.newCrossedRelation(this);
+  }
+
   private static <E, T extends Tuple<E>> T extractContent(Tuple<Solution<E>> solutionTuple, SubtypeRebuilder<Tuple<E>, T> rebuilder) {
-    HashMap<Object, E> regular = new HashMap<Object, E>();
-    for (Object key: solutionTuple.keySet())
-      regular.put(key, solutionTuple.get(key).getContent());
-
-    HashMap<Object, E> free = new HashMap<Object, E>();
-    for (Object key: solutionTuple.freeKeys())
-      regular.put(key, solutionTuple.get(key).getContent());
-    try {
-      return rebuilder.rebuild(new Tuple<E>(regular, free));
-    } catch (InvalidParameterException e) {
-      throw new RuntimeException("Unexpected exception.", e);
-    }
+    TupleSchema schema = solutionTuple.getSchema();
+    TupleSchema contentSchema = schema.asRegular(); // the contents of free keys are regular in the solution
+    Object[] content = new Object[schema.size()];
+    for (int i = 0; i < content.length; i++)
+      content[contentSchema.indexOf(schema.getKey(i))] = solutionTuple.valueAt(i).getContent();
+    return rebuilder.rebuild(new Tuple<E>(contentSchema, content));
   }
 
   protected Tuple<Solution<E>> getSubSolutions() {
     return this.solutionTuple;
   }
 
+  /**
+   * Returns this solution as a solution of the dual equation, made of the duals of its sub-solutions.
+   * @return the dual solution, or null if one of the sub-solutions has no dual form.
+   */
+  @Override
+  public TupleSolution<E, T> dual() {
+    Object[] duals = new Object[this.solutionTuple.getSchema().size()];
+    for (int i = 0; i < duals.length; i++) {
+      duals[i] = this.solutionTuple.valueAt(i).dual();
+      if (duals[i] == null)
+        return null;
+    }
+    return new TupleSolution<E, T>(new Tuple<Solution<E>>(this.solutionTuple.getSchema(), duals), this.getContent(), this.getDegree());
+  }
+
   @Override
   public Relation getStraightRelation() {
     return this.straightRelation;
@@ -1,244 +1,425 @@
 package io.github.vletard.analogy.tuple;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import io.github.vletard.analogy.DefaultEquation;
-import io.github.vletard.analogy.Relation;
+import io.github.vletard.analogy.DegreeCutoff;
+import io.github.vletard.analogy.EquationEvent;
+import io.github.vletard.analogy.SearchBudget;
 import io.github.vletard.analogy.Solution;
-import io.github.vletard.analogy.SubtypeRebuilder;
+import io.github.vletard.analogy.SolverStats;
+import io.github.vletard.analogy.SolvingOptions;
+import io.github.vletard.analogy.SplittableIterator;
 import io.github.vletard.analogy.util.InvalidParameterException;
+import io.github.vletard.analogy.util.PrefetchingIterator;
 
-public class TupleSolutionIterator<T, Subtype extends Tuple<T>> implements Iterator<Solution<Subtype>> {
+/**
+ * This iterator enumerates the solutions of a {@link TupleEquation}, combining the solutions of the sub equation of each key.
+ * Degrees are aggregated by maximum, the degree of the solutions of free keys being considered as 0.
+ *
+ * Combinations are enumerated in ascending order of degree without recursion nor rescanning.
+ * The combinations of degree D are partitioned on their pivot, that is the first key (in the key order) whose solution
+ * has a degree of exactly D: every key before the pivot has a solution of degree lower than D, and every key after it
+ * has a solution of degree lower or equal to D. Since the solutions of each key are listed in ascending order of degree,
+ * each of these ranges is a prefix (or a slice for the pivot) of the list of the key, thus the combinations of a pivot
+ * are the product of these ranges, which is walked by an odometer over the keys.
+ * The sub equations are built and checked for feasibility beforehand by {@link TupleEquation}, which also sets the order of the keys.
+ * The solutions of the sub equations are only computed on demand, when a range has to be extended,
+ * unless a prefetching executor is set in the options: each sub equation then computes its solutions concurrently,
+ * ahead of demand within a bounded lookahead, and the slowest key alone bounds the latency.
+ *
+ * Before the enumeration starts, the iterator can be split on the solutions of the first key: each part only enumerates
+ * the combinations whose solution index of the first key belongs to its own residue class. The solutions of each sub equation
+ * are listed once in a {@link SolutionList} shared by the parts, thus splitting divides the combinations without repeating
+ * any search.
+ */
+public class TupleSolutionIterator<T, Subtype extends Tuple<T>> implements SplittableIterator<Solution<Subtype>> {
 
   /**
    * Original equation for this tuple solution iterator. Permits access to the 3 elements and the rebuilder.
    */
   private final TupleEquation<T, Subtype> equation;
-  
+
+  /**
+   * Sub equations of the keys, shared with the iterators split from this one.
+   */
+  private final LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan;
+
   /**
-   * List defining an order on the tuple equation keys.
+   * List defining an order on the tuple equation keys, the cheapest sub equations first.
    */
   private final ArrayList<Object> keys;
 
   /**
-   * List defining an order on the tuple equation free keys.
+   * Whether each key (indexed on the keys ArrayList) is a free key.
+   */
+  private final boolean[] free;
+
+  /**
+   * Schema of the tuples of sub solutions, shared by every solution of this iterator.
+   */
+  private final TupleSchema schema;
+
+  /**
+   * Index of each key (indexed on the keys ArrayList) in the schema of the tuples of sub solutions.
    */
-  private final HashSet<Object> freeKeys;
+  private final int[] slots;
 
   /**
-   * The list of the solution iterators of each sub equation of this tuple equation.
+   * Memoized solutions of the sub equation of each key (indexed on the keys ArrayList), shared with the iterators split from this one.
    */
-  private final ArrayList<Iterator<Solution<T>>> iterators;
+  private final ArrayList<SolutionList<T>> lists;
 
   /**
-   * List of partial solution lists growing on demand.
+   * List of partial solution lists growing on demand, in ascending order of degree, copied from the shared lists.
    * The ordering is indexed on the keys ArrayList.
    */
   private final ArrayList<ArrayList<Solution<T>>> partialLists;
 
   /**
-   * Index of the next element among the partial lists.
+   * For each regular key, the number of its solutions of degree lower than the current degree.
+   */
+  private final int[] below;
+
+  /**
+   * Current index of each key among its partial list.
    */
-  private final ArrayList<Integer> currentIndex;
+  private final int[] currentIndex;
 
   /**
    * The degree of solutions that are currently returned by this iterator.
-   * Solutions of that degree must be exhausted before incrementing.
    */
   private int currentDegree;
 
   /**
-   * Flag for whether the hasNext() method is expected to increment the currentIndex
+   * Residue class of the solution indices of the first key enumerated by this iterator: the indices congruent to offset modulo stride.
+   */
+  private int stride, offset;
+
+  /**
+   * Index of the pivot key of the current combinations.
+   */
+  private int pivot;
+
+  /**
+   * Whether the first combination has been searched yet.
+   */
+  private boolean started;
+
+  /**
+   * Whether every combination has been enumerated.
+   */
+  private boolean finished;
+
+  /**
+   * Flag for whether the hasNext() method is expected to move to the next combination
    * before checking for a next element.
    */
   private boolean dueForIncrementation;
 
+  /**
+   * Degree bounds of the equation options, the maximum degree also being pushed down to each sub equation.
+   */
+  private final DegreeCutoff cutoff;
+
+  private final SearchBudget budget;
+
+  /**
+   * Statistics of the equation options, in which the time spent waiting for the solutions of each key is recorded.
+   */
+  private final SolverStats stats;
+
+  /**
+   * Flight Recorder event of this enumeration.
+   */
+  private final EquationEvent event;
+
   public TupleSolutionIterator(TupleEquation<T, Subtype> equation){
+    this(equation, equation.plan());
+  }
+
+  /**
+   * Builds an iterator over the solutions of the provided equation, combining the solutions of planned sub equations.
+   * @param equation the tuple equation
+   * @param plan the sub equations of every key in the order in which they are to be solved, or null if one of them has no solution
+   */
+  TupleSolutionIterator(TupleEquation<T, Subtype> equation, LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan){
+    this(equation, plan, null, 1, 0);
+  }
+
+  /**
+   * Builds an iterator over the combinations whose solution index of the first key is congruent to offset modulo stride.
+   * @param lists the solution lists of the keys shared with the iterator this one is split from, or null to create them
+   */
+  private TupleSolutionIterator(TupleEquation<T, Subtype> equation, LinkedHashMap<Object, DefaultEquation<T, ? extends Solution<T>>> plan,
+      ArrayList<SolutionList<T>> lists, int stride, int offset){
     {
-      HashSet<Object> keySet = new HashSet<Object>();
-      keySet.addAll(equation.a.keySet());
-      keySet.addAll(equation.b.keySet());
-      keySet.addAll(equation.c.keySet());
-      this.keys = new ArrayList<Object>(keySet); // assigning an arbitrary order to the key set for indexing structures
-
-      keySet = new HashSet<Object>();
-      keySet.addAll(equation.a.freeKeys());
-      keySet.addAll(equation.b.freeKeys());
-      keySet.addAll(equation.c.freeKeys());
-      this.freeKeys = keySet;
+      this.keys = (plan == null) ? new ArrayList<Object>() : new ArrayList<Object>(plan.keySet());
+
+      Set<Object> keySet = equation.freeKeySet();
+      this.free = new boolean[this.keys.size()];
+      HashSet<Object> regularKeys = new HashSet<Object>();
+      for (int i = 0; i < this.keys.size(); i++) {
+        this.free[i] = keySet.contains(this.keys.get(i));
+        if (!this.free[i])
+          regularKeys.add(this.keys.get(i));
+      }
+      if (plan == null)
+        keySet.clear(); // no key is solved
+      try {
+        this.schema = TupleSchema.of(regularKeys, keySet);
+      } catch (InvalidParameterException e) {
+        throw new RuntimeException("Unexpected exception.", e);
+      }
+      this.slots = new int[this.keys.size()];
+      for (int i = 0; i < this.keys.size(); i++)
+        this.slots[i] = this.schema.indexOf(this.keys.get(i));
       this.equation = equation;
+      this.plan = plan;
     }
 
-    this.iterators = new ArrayList<Iterator<Solution<T>>>();
+    if (lists == null) {
+      lists = new ArrayList<SolutionList<T>>();
+      SolvingOptions options = this.equation.getOptions();
+      Executor executor = (this.keys.size() > 1) ? options.getPrefetchExecutor() : null;
+      for (Object k: this.keys) {
+        Iterator<? extends Solution<T>> it = plan.get(k).iterator();
+        if (executor != null)
+          it = new PrefetchingIterator<Solution<T>>(it, executor, options.getPrefetchLookahead());
+        lists.add(new SolutionList<T>(it));
+      }
+    }
+    this.lists = lists;
     this.partialLists = new ArrayList<ArrayList<Solution<T>>>();
-    this.currentIndex = new ArrayList<Integer>();
-    for (Object k: this.keys) {
-      Iterator<Solution<T>> it = (Iterator<Solution<T>>) DefaultEquation.factory(this.equation.a.get(k), 
-          this.equation.b.get(k), this.equation.c.get(k), this.equation.getRebuilder().get(k)).iterator();
-      this.currentIndex.add(0);
-      this.iterators.add(it);
+    for (int i = 0; i < this.keys.size(); i++)
       this.partialLists.add(new ArrayList<Solution<T>>());
-    }
+    this.below = new int[this.keys.size()];
+    this.currentIndex = new int[this.keys.size()];
     this.currentDegree = 0;
+    this.stride = stride;
+    this.offset = offset;
+    this.pivot = 0;
+    this.started = false;
+    this.finished = (plan == null);
     this.dueForIncrementation = false;
+    this.cutoff = new DegreeCutoff(equation.getOptions());
+    this.budget = equation.getOptions().getBudget();
+    this.stats = equation.getOptions().getStats();
+    this.event = new EquationEvent(equation);
   }
 
-  private Boolean increment(List<Integer> degrees, int index) {
-    if (index >= this.currentIndex.size())
-      return false;
+  /**
+   * Returns the degree of a solution of a key, free keys having a degree of 0.
+   */
+  private int degree(int key, int index) {
+    return this.free[key] ? 0 : this.partialLists.get(key).get(index).getDegree();
+  }
 
-    LinkedList<Integer> degreeList = new LinkedList<Integer>(degrees);
-    int partialListIndex = this.currentIndex.get(index);
-    if (partialListIndex + 1 >= this.partialLists.get(index).size()) {
-      // attempt to compute one more element to store in the partial list
-      Iterator<Solution<T>> it = this.iterators.get(index);
-      if (it.hasNext())
-        this.partialLists.get(index).add(it.next());
+  /**
+   * Checks whether the partial list of a key has an element at the provided index, computing it if necessary.
+   */
+  private boolean available(int key, int index) {
+    ArrayList<Solution<T>> partialList = this.partialLists.get(key);
+    if (index < partialList.size())
+      return true;
+    long start = this.stats.start();
+    try {
+      return this.lists.get(key).extend(partialList, index);
+    } finally {
+      this.stats.stop(this.keys.get(key), start);
     }
-    boolean greaterDegreeAvailable = false;
-    if (partialListIndex + 1 < this.partialLists.get(index).size()) {
-      // attempt to increment the partial list index while remaining in the currentDegree limit
-      if (this.freeKeys.contains(this.keys.get(index)))
-        degreeList.set(index, 0);
-      else
-        degreeList.set(index, this.partialLists.get(index).get(partialListIndex + 1).getDegree());
-      int aggregate = this.aggregateDegree(degreeList);
-      if (aggregate <= this.currentDegree) {
-        this.currentIndex.set(index, partialListIndex + 1);
-        return true;
+  }
+
+  /**
+   * Checks whether the solution of a key at the provided index exists and belongs to the range of that key for the current pivot.
+   * Keys before the pivot range over solutions of degree lower than the current degree, the others over solutions of degree
+   * lower or equal to it.
+   */
+  private boolean inRange(int key, int index) {
+    if (!this.available(key, index))
+      return false;
+    if (key < this.pivot)
+      return this.degree(key, index) < this.currentDegree;
+    else
+      return this.degree(key, index) <= this.currentDegree;
+  }
+
+  /**
+   * Returns the first index of the range of a key for the current pivot.
+   */
+  private int rangeStart(int key) {
+    int start = (key == this.pivot) ? this.below[key] : 0;
+    if (key == 0)
+      start += Math.floorMod(this.offset - start, this.stride); // first index of the residue class
+    return start;
+  }
+
+  /**
+   * Searches the first pivot, starting from the current one, whose product of ranges is not empty for the current degree,
+   * and moves to its first combination.
+   * @return false if there is none.
+   */
+  private boolean seekPivot() {
+    for (; this.pivot < this.keys.size(); this.pivot++) {
+      if (this.pivot > 0 && !(this.available(this.pivot - 1, 0) && this.degree(this.pivot - 1, 0) < this.currentDegree))
+        return false; // the keys before the pivot must have a solution of lower degree, for this pivot and the next ones
+      int start = this.below[this.pivot];
+      if (this.available(this.pivot, start) && this.degree(this.pivot, start) == this.currentDegree) {
+        for (int i = 0; i < this.keys.size(); i++)
+          this.currentIndex[i] = this.rangeStart(i);
+        if (this.stride == 1 || this.inRange(0, this.currentIndex[0]))
+          return true; // otherwise the range of the first key has no index of the residue class
       }
-      else
-        greaterDegreeAvailable = true;
     }
+    return false;
+  }
 
-    // if the current index was not incremented yet, reset it and increment a subsequent index
-    if (this.freeKeys.contains(this.keys.get(index)))
-      degreeList.set(index, 0);
-    else
-      degreeList.set(index, this.partialLists.get(index).get(0).getDegree());
-    Boolean result = this.increment(degrees, index+1);
-    if (result == Boolean.TRUE){
-      this.currentIndex.set(index, 0); // only if the call succeeded
-      return true;
+  /**
+   * Moves to the lowest degree, greater than the current one, having solutions in at least one regular key.
+   * @return false if there is none, or if it exceeds the maximum degree.
+   */
+  private boolean nextDegree() {
+    int next = Integer.MAX_VALUE;
+    for (int i = 0; i < this.keys.size(); i++) {
+      if (this.free[i])
+        continue;
+      while (this.available(i, this.below[i]) && this.degree(i, this.below[i]) <= this.currentDegree)
+        this.below[i] ++;
+      if (this.available(i, this.below[i]))
+        next = Math.min(next, this.degree(i, this.below[i]));
     }
-    else if (greaterDegreeAvailable || result == null)
-      return null;
-    else
+    if (next == Integer.MAX_VALUE || !this.cutoff.accepts(next))
       return false;
+    this.currentDegree = next; // no solution of any key lies between both degrees, thus the below counts remain valid
+    this.pivot = 0;
+    return true;
   }
 
-  private boolean increment() {
-    if (this.currentIndex.size() > 0) {
-      Boolean result = false;
-      do {  // global increment
-        LinkedList<Integer> degreeList = new LinkedList<Integer>();
-        for (int i = 0; i < this.keys.size(); i++) {
-          Solution<T> s = this.partialLists.get(i).get(this.currentIndex.get(i));
-          if (this.freeKeys.contains(this.keys.get(i)))
-            degreeList.add(0);
-          else
-            degreeList.add(s.getDegree());
-        }
-
-        do { // increment until the resulting degree is greater or equal to the current degree (or until no more elements can be found)
-          result = this.increment(Collections.unmodifiableList(degreeList), 0);
-          degreeList = new LinkedList<Integer>();
-          for (int i = 0; i < this.keys.size(); i++) {
-            Solution<T> s = this.partialLists.get(i).get(this.currentIndex.get(i));
-            if (this.freeKeys.contains(this.keys.get(i)))
-              degreeList.add(0);
-            else
-              degreeList.add(s.getDegree());
-          }
-        } while (result == Boolean.TRUE && this.aggregateDegree(degreeList) < this.currentDegree);
-        if (result == Boolean.TRUE) // partialLists has been extended
-          return true;
-        else if (result == Boolean.FALSE) // could not extend partialLists
-          return false;
-        else { // result is null, meaning that a greater degree is available
-          for (int i = 0; i < this.keys.size(); i++)
-            this.currentIndex.set(i, 0); // reinitializing indices
-          this.currentDegree ++; // increasing searched degree before looping
-        }
-      } while (result == null);
-      return true;
+  /**
+   * Moves to the first combination of this iterator.
+   * @return false if there is none.
+   */
+  private boolean start() {
+    this.started = true;
+    if (this.keys.isEmpty())
+      return this.cutoff.accepts(0); // the single empty combination
+    int first = 0;
+    for (int i = 0; i < this.keys.size(); i++) {
+      if (!this.available(i, 0))
+        return false; // no solution can be built without this key
+      first = Math.max(first, this.degree(i, 0));
     }
-    else
+    if (!this.cutoff.accepts(first))
       return false;
+    this.currentDegree = first;
+    for (int i = 0; i < this.keys.size(); i++)
+      if (!this.free[i])
+        while (this.available(i, this.below[i]) && this.degree(i, this.below[i]) < this.currentDegree)
+          this.below[i] ++;
+    do { // the residue class of a split iterator may have no combination of the first degree
+      if (this.seekPivot())
+        return true;
+    } while (this.budget.check() && this.nextDegree());
+    return false;
   }
 
-  @Override
-  public boolean hasNext() {
-    if (this.dueForIncrementation) {
-      if (this.increment()) {
-        this.dueForIncrementation = false;
+  /**
+   * Moves to the next combination, by incrementing the odometer of the current pivot,
+   * or by moving to the next pivot or to the next degree.
+   * @return false if every combination has been enumerated.
+   */
+  private boolean increment() {
+    if (this.keys.isEmpty())
+      return false;
+    this.event.expanded(1);
+    for (int i = 0; i < this.keys.size(); i++) {
+      int step = (i == 0) ? this.stride : 1;
+      if (this.inRange(i, this.currentIndex[i] + step)) {
+        this.currentIndex[i] += step;
+        for (int j = 0; j < i; j++)
+          this.currentIndex[j] = this.rangeStart(j);
         return true;
       }
-      else
+    }
+    this.pivot ++;
+    do {
+      if (!this.budget.check())
         return false;
+      if (this.seekPivot())
+        return true;
+    } while (this.nextDegree());
+    return false;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (this.finished) {
+      this.event.finish();
+      return false;
+    }
+    long start = this.stats.start();
+    try {
+      if (this.search())
+        return true;
+      this.event.finish();
+      return false;
+    } finally {
+      this.stats.stop(start);
     }
-    else
-      for (int i = 0; i < this.keys.size(); i++) {
-        ArrayList<Solution<T>> partialList = this.partialLists.get(i);
-        if (partialList.size() <= this.currentIndex.get(i)) {
-          // this state is supposed to only occur during the first call (delayed initialization)
-          assert(partialList.size() == 0);
-          if (this.iterators.get(i).hasNext())
-            partialList.add(this.iterators.get(i).next());
-          else
-            return false;
-        }
-      }
-    return true;
   }
 
   /**
-   * Returns an aggregation of the list of degrees of the subordinate solutions.
-   * For this tuple structure, degrees are aggregated by maximum.
-   * @return the maximum of the degree list
+   * Moves to the first or to the next combination if due.
+   * @return false if every combination has been enumerated.
    */
-  private int aggregateDegree(List<Integer> degreeList) {
-    int aggregate = 0;
-    for (int d: degreeList)
-      aggregate = Math.max(aggregate, d);
-    return aggregate;
+  private boolean search() {
+    if (!this.started) {
+      this.finished = !this.start();
+      return !this.finished;
+    }
+    if (this.dueForIncrementation) {
+      this.dueForIncrementation = false;
+      // sub equations end early when the shared budget gets exhausted, the combination is then dismissed
+      this.finished = !this.budget.expand() || !this.increment() || this.budget.isExhausted();
+    }
+    return !this.finished;
+  }
+
+  /**
+   * {@inheritDoc}
+   * Only an iterator which has not started its enumeration can be split, the new iterator taking every other index of its
+   * residue class. The search is not split when the number of distinct degrees is bounded, since that bound applies to the union
+   * of the parts, nor when the first key is the only one, its sub equation being the whole work.
+   */
+  @Override
+  public Iterator<Solution<Subtype>> trySplit() {
+    if (this.started || this.finished || this.keys.size() < 2
+        || this.equation.getOptions().getMaxDistinctDegrees() != SolvingOptions.UNBOUNDED)
+      return null;
+    TupleSolutionIterator<T, Subtype> part = new TupleSolutionIterator<T, Subtype>(this.equation, this.plan, this.lists, this.stride * 2,
+        this.offset + this.stride);
+    this.stride *= 2;
+    return part;
   }
 
   @Override
   public Solution<Subtype> next() {
     if (this.hasNext()) {
-      HashMap<Object, Solution<T>> regular = new HashMap<Object, Solution<T>>();
-      HashMap<Object, Solution<T>> free = new HashMap<Object, Solution<T>>();
-      LinkedList<Integer> degreeList = new LinkedList<Integer>();
-      
-//      HashMap<Object, Relation> regularRelations = new HashMap<Object, Relation>();
-//      HashMap<Object, Relation> freeRelations = new HashMap<Object, Relation>();
-      for (int i = 0; i < this.keys.size(); i++) {
-        Object k = this.keys.get(i);
-        Solution<T> s = this.partialLists.get(i).get(this.currentIndex.get(i));
-        if (this.freeKeys.contains(this.keys.get(i))) {
-          free.put(k, s);
-          degreeList.add(0);
-//          freeRelations.put(k, s.getRelation());
-        } else {
-          regular.put(k, s);
-          degreeList.add(s.getDegree());
-//          regularRelations.put(k, s.getRelation());
-        }
-      }
+      Object[] subSolutions = new Object[this.keys.size()];
+      for (int i = 0; i < this.keys.size(); i++)
+        subSolutions[this.slots[i]] = this.partialLists.get(i).get(this.currentIndex[i]);
       this.dueForIncrementation = true;
-      try {
-        return new TupleSolution<T, Subtype>(new Tuple<Solution<T>>(regular, free), aggregateDegree(degreeList), this.equation);
-      } catch (InvalidParameterException e) {
-        throw new RuntimeException("Unexpected exception.", e);
-      }
+      this.cutoff.record(this.currentDegree);
+      this.stats.solution(this.currentDegree);
+      this.event.solution(this.currentDegree);
+      return new TupleSolution<T, Subtype>(new Tuple<Solution<T>>(this.schema, subSolutions), this.currentDegree, this.equation);
     }
     else
       throw new NoSuchElementException();
@@ -0,0 +1,151 @@
+package io.github.vletard.analogy.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterator wrapper computing the elements of another iterator ahead of demand, on an {@link Executor}.
+ * At most lookahead elements are buffered: the filling task stops when the buffer is full and is scheduled again
+ * as soon as an element is consumed, such that no thread of the executor is ever blocked waiting for the consumer,
+ * even if the iteration is abandoned.
+ * The wrapped iterator is only accessed by one filling task at a time.
+ * Exceptions raised by the wrapped iterator are thrown back to the consumer, in place of the missing element.
+ * @author Vincent Letard
+ *
+ * @param <E> the type of the elements.
+ */
+public class PrefetchingIterator<E> implements Iterator<E> {
+  private static final Object END = new Object();
+
+  /**
+   * Buffered exception of the wrapped iterator.
+   */
+  private static class Failure {
+    private final Throwable cause;
+
+    private Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  private final Iterator<? extends E> source;
+  private final Executor executor;
+  private final ArrayBlockingQueue<Object> buffer;
+  private final AtomicBoolean running;
+  private final Runnable filling;
+  private volatile boolean ended;
+  private Object next;
+
+  /**
+   * Wraps an iterator and immediately starts computing its first elements.
+   * @param source the wrapped iterator, which must not be used anymore by the caller
+   * @param executor the executor running the filling tasks
+   * @param lookahead the maximum number of elements computed ahead of demand
+   */
+  public PrefetchingIterator(Iterator<? extends E> source, Executor executor, int lookahead) {
+    if (lookahead < 1)
+      throw new IllegalArgumentException("The lookahead of a prefetching iterator must be positive.");
+    this.source = source;
+    this.executor = executor;
+    this.buffer = new ArrayBlockingQueue<Object>(lookahead);
+    this.running = new AtomicBoolean(false);
+    this.filling = new Runnable() {
+      @Override
+      public void run() {
+        PrefetchingIterator.this.fill();
+      }
+    };
+    this.ended = false;
+    this.next = null;
+    this.schedule();
+  }
+
+  /**
+   * Schedules a filling task if none is running and the wrapped iterator is not exhausted.
+   */
+  private void schedule() {
+    if (!this.ended && this.running.compareAndSet(false, true)) {
+      try {
+        this.executor.execute(this.filling);
+      } catch (RejectedExecutionException e) {
+        this.running.set(false); // the consumer fills the buffer itself when needed
+      }
+    }
+  }
+
+  /**
+   * Fills the buffer from the wrapped iterator, the running flag being held by the caller.
+   */
+  private void fill() {
+    try {
+      while (!this.ended && this.buffer.remainingCapacity() > 0) {
+        if (this.source.hasNext())
+          this.buffer.add(this.source.next());
+        else {
+          this.ended = true;
+          this.buffer.add(END);
+        }
+      }
+    } catch (RuntimeException | Error e) {
+      this.ended = true;
+      this.buffer.add(new Failure(e));
+    } finally {
+      this.running.set(false);
+    }
+    if (this.buffer.remainingCapacity() > 0)
+      this.schedule(); // an element may have been consumed after the last check
+  }
+
+  /**
+   * {@inheritDoc}
+   * @throws CancellationException if the current thread is interrupted while waiting for the next element,
+   * its interruption flag being restored, since the end of the iteration cannot be told apart from the missing elements.
+   */
+  @Override
+  public boolean hasNext() {
+    while (this.next == null) {
+      Object element = this.buffer.poll();
+      if (element == null) {
+        if (this.running.compareAndSet(false, true)) {
+          this.fill(); // no filling task is pending, computing on the current thread
+          continue;
+        }
+        try {
+          element = this.buffer.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          CancellationException cancellation = new CancellationException("Interrupted while waiting for a prefetched element.");
+          cancellation.initCause(e);
+          throw cancellation;
+        }
+      }
+      this.next = element;
+      this.schedule();
+    }
+    if (this.next instanceof Failure) {
+      Throwable cause = ((Failure) this.next).cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      else
+        throw (RuntimeException) cause;
+    }
+    return this.next != END;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public E next() {
+    if (this.hasNext()) {
+      E element = (E) this.next;
+      this.next = null;
+      return element;
+    }
+    else
+      throw new NoSuchElementException();
+  }
+}